@@ -0,0 +1,28 @@
+package com.thunder.ai;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point of benchmarks.jar: plain JMH, except that results default to a
+// timestamped JSON file under benchmarks/results/ (run from the project root, or
+// set -Dbench.results) so runs can be diffed between releases.
+// Any -rf / -rff on the command line wins.
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf") && !jmhArgs.contains("-rff")) {
+            Path dir = Paths.get(System.getProperty("bench.results", "benchmarks/results"));
+            Files.createDirectories(dir);
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            jmhArgs.addAll(List.of("-rf", "json", "-rff", dir.resolve("jmh-" + stamp + ".json").toString()));
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
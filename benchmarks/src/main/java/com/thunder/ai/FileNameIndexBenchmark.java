@@ -0,0 +1,82 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Queries behind "list all files", "search by file type", "find files named" and
+// "count files in", answered from FileNameIndex over the synthetic trees (names
+// f<n>.dat, 100 per folder). The index is built once per trial; its build time
+// and estimated bytes per file are printed at setup. Compare with the full
+// walks in FileSuggestBenchmark, which is what a generated find costs.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileNameIndexBenchmark {
+
+    private static final int LIMIT = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    int files;
+
+    private Path root;
+    private FileNameIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = SyntheticTree.get(files);
+        index = FileNameIndex.open(root);
+        FileNameIndex.BuildResult built = index.lastBuild();
+        FileNameIndex.Stats stats = index.stats();
+        System.out.printf("%nIndexed %,d files in %,d folders in %,d ms: %,d names, %,d trigrams, ~%d bytes per file%n",
+                built.files(), built.folders(), built.elapsedMillis(), stats.names(), stats.trigrams(), stats.bytesPerFile());
+    }
+
+    // A few matches, found through the rarest trigram
+    @Benchmark
+    public FileNameIndex.Hits substring() {
+        return index.matching("f7777", root, LIMIT);
+    }
+
+    // Too short for a trigram: candidates are the names under trigrams holding it
+    @Benchmark
+    public FileNameIndex.Hits shortSubstring() {
+        return index.matching("77", root, LIMIT);
+    }
+
+    @Benchmark
+    public FileNameIndex.Hits glob() {
+        return index.matching("f9*1.dat", root, LIMIT);
+    }
+
+    // Every file has the extension, so this counts the whole index
+    @Benchmark
+    public FileNameIndex.Hits extension() {
+        return index.byExtension("dat", root, LIMIT);
+    }
+
+    @Benchmark
+    public FileNameIndex.Hits listAll() {
+        return index.list(root, LIMIT);
+    }
+
+    @Benchmark
+    public FileNameIndex.Counts countFiles() {
+        return index.counts(root, 10);
+    }
+}
@@ -0,0 +1,87 @@
+package com.thunder.ai;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The scans behind suggestLargeFiles, suggestRareFiles, suggestDuplicateFiles and suggestCleanup
+// (cold path: a full ScanEngine walk plus the analyzer's report) over synthetic
+// trees. The OS page cache is warm after the first iteration, so this measures
+// the CPU and syscall cost of a walk, not disk latency. The 1M tree takes a few
+// GB and several minutes to generate; use -p files=10000 for a quick run.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileSuggestBenchmark {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    int files;
+
+    private Path root;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = SyntheticTree.get(files);
+        // Reports print a handful of lines; keep them out of the JMH log
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public ScanEngine.Result suggestLargeFiles() {
+        LargeFilesAnalyzer analyzer = new LargeFilesAnalyzer(10L * 1024 * 1024, 10);
+        ScanEngine.Result result = ScanEngine.scan(root, analyzer);
+        analyzer.report();
+        return result;
+    }
+
+    @Benchmark
+    public ScanEngine.Result suggestRareFiles() {
+        RareFilesAnalyzer analyzer = new RareFilesAnalyzer(System.currentTimeMillis() - 30 * DAY_MILLIS, 10);
+        ScanEngine.Result result = ScanEngine.scan(root, analyzer);
+        analyzer.report();
+        return result;
+    }
+
+    @Benchmark
+    public ScanEngine.Result suggestDuplicateFiles() {
+        DuplicateFilesAnalyzer analyzer = new DuplicateFilesAnalyzer();
+        ScanEngine.Result result = ScanEngine.scan(root, analyzer);
+        analyzer.report();
+        return result;
+    }
+
+    @Benchmark
+    public ScanEngine.Result suggestCleanup() {
+        CleanupAnalyzer analyzer = new CleanupAnalyzer(root, CleanupRules.defaults(), 10);
+        ScanEngine.Result result = ScanEngine.scan(root, analyzer);
+        analyzer.report();
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Client-side cost of one model round trip in getCommand, without the network:
+// building the request body and parsing a typical generateContent response, next
+// to the map + writeValueAsString / readTree code they replaced. Run with
+// -prof gc to see gc.alloc.rate.norm (bytes allocated per request).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiProtocolBenchmark {
+
+    private static final String INSTRUCTION = "find all log files over 100 mb modified in the last week";
+
+    // Shape of a real answer, including the metadata that parse has to skip
+    private static final String RESPONSE = """
+            {
+              "candidates": [
+                {
+                  "content": {
+                    "parts": [
+                      { "text": "find . -name \\"*.log\\" -size +100M -mtime -7" }
+                    ],
+                    "role": "model"
+                  },
+                  "finishReason": "STOP",
+                  "index": 0,
+                  "safetyRatings": [
+                    { "category": "HARM_CATEGORY_HARASSMENT", "probability": "NEGLIGIBLE" },
+                    { "category": "HARM_CATEGORY_HATE_SPEECH", "probability": "NEGLIGIBLE" },
+                    { "category": "HARM_CATEGORY_SEXUALLY_EXPLICIT", "probability": "NEGLIGIBLE" },
+                    { "category": "HARM_CATEGORY_DANGEROUS_CONTENT", "probability": "NEGLIGIBLE" }
+                  ]
+                }
+              ],
+              "usageMetadata": {
+                "promptTokenCount": 92,
+                "candidatesTokenCount": 19,
+                "totalTokenCount": 111
+              },
+              "modelVersion": "gemini-2.5-flash"
+            }
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private GeminiClient client;
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        // Never contacted; only the local request/response handling is measured
+        client = new GeminiClient("bench", "http://127.0.0.1:9/");
+        response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] buildBody() {
+        return client.buildBody(INSTRUCTION);
+    }
+
+    @Benchmark
+    public String parseResponse() throws IOException {
+        return GeminiClient.answer(GeminiCodec.read(response));
+    }
+
+    // What ofString(writeValueAsString(maps)) used to do per request
+    @Benchmark
+    public byte[] legacyBuildBody() throws IOException {
+        Map<String, Object> part = new HashMap<>();
+        part.put("text", GeminiClient.buildPrompt(INSTRUCTION));
+        Map<String, Object> content = new HashMap<>();
+        content.put("parts", List.of(part));
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("contents", List.of(content));
+        return mapper.writeValueAsString(requestBody).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // What ofString + readTree used to do per response
+    @Benchmark
+    public String legacyParseResponse() throws IOException {
+        JsonNode root = mapper.readTree(new String(response, StandardCharsets.UTF_8));
+        return root.path("candidates").path(0).path("content").path("parts").get(0).path("text").asText().trim();
+    }
+}
@@ -0,0 +1,50 @@
+package com.thunder.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What one instrumented call site costs: a timed section and a counter bump,
+// with recording on and off. Run with -t 4 (or more) to see contention.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private final Metrics.Timer timer = Metrics.timer("bench_seconds", "Benchmark timer");
+    private final Metrics.Counter counter = Metrics.counter("bench_total", "Benchmark counter");
+
+    @Setup
+    public void setup() {
+        Metrics.setEnabled(enabled);
+    }
+
+    @Benchmark
+    public void timedSection() {
+        long start = timer.start();
+        timer.stop(start);
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+}
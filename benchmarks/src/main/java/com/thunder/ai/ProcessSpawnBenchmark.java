@@ -0,0 +1,43 @@
+package com.thunder.ai;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What runCommand costs beyond the command itself: shell start-up, the stdout and
+// stderr pumps, and reaping the child. Output goes to a no-op listener.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessSpawnBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final ProcessRunner.OutputListener DISCARD = (line, stderr) -> {};
+
+    @Benchmark
+    public ProcessRunner.Result spawnTrue() {
+        return ProcessRunner.run("true", TIMEOUT, DISCARD);
+    }
+
+    @Benchmark
+    public ProcessRunner.Result spawnWithOutput() {
+        return ProcessRunner.run("seq 1 1000", TIMEOUT, DISCARD);
+    }
+
+    @Benchmark
+    public ProcessRunner.Result spawnPipeline() {
+        return ProcessRunner.run("seq 1 1000 | grep 7 | wc -l", TIMEOUT, DISCARD);
+    }
+}
@@ -0,0 +1,147 @@
+package com.thunder.ai;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// One generateContent round trip to FakeGeminiServer per request encoding: the
+// older prompt with the instructions inline in the user text, the same prompt as
+// systemInstruction, and that body gzip-compressed when GeminiClient would
+// compress it. "listing" attaches a directory listing of about 64 KB to the
+// question. Request sizes are printed at setup; SampleTime reports the median as
+// p0.50. With uplinkMbps 0 the body goes at loopback speed, which leaves only the
+// encoding and server parsing cost; otherwise it is paced to that bandwidth, the
+// way a home or mobile uplink would send it. The fake server runs with TCP_NODELAY,
+// else its separate header and body writes stall small answers on delayed ACKs.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class RequestEncodingBenchmark {
+
+    private static final String QUESTION = "find all log files over 100 mb modified in the last week";
+    private static final int LISTING_BYTES = 64 * 1024;
+
+    @Param({"inline", "systemInstruction", "gzip"})
+    public String encoding;
+
+    @Param({"question", "listing"})
+    public String context;
+
+    @Param({"0", "10"})
+    public int uplinkMbps;
+
+    private FakeGeminiServer server;
+    private HttpClient http;
+    private HttpRequest.Builder request;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        server = FakeGeminiServer.start(0, 0, 0);
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        String instruction = context.equals("listing") ? QUESTION + "\n\nFiles in this folder:\n" + listing() : QUESTION;
+
+        // Never used for calls; only its request encoding
+        GeminiClient client = new GeminiClient("bench", server.baseUrl());
+        GeminiClient.Payload payload = GeminiClient.Payload.of(client.buildBody(instruction));
+        boolean gzip = false;
+        switch (encoding) {
+            case "inline" -> body = new ObjectMapper().writeValueAsBytes(Map.of("contents",
+                    List.of(Map.of("parts", List.of(Map.of("text", GeminiClient.buildPrompt(instruction)))))));
+            case "systemInstruction" -> body = payload.json();
+            case "gzip" -> {
+                gzip = payload.gzip() != null;
+                body = gzip ? payload.gzip() : payload.json();
+            }
+            default -> throw new IllegalArgumentException(encoding);
+        }
+        System.out.printf("%n%s/%s: %,d request bytes%s%n", encoding, context, body.length, gzip ? " (gzip)" : "");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create(server.baseUrl() + "v1beta/models/gemini-2.5-flash:generateContent?key=bench"))
+                .header("Content-Type", "application/json");
+        if (gzip) request.header("Content-Encoding", "gzip");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public String roundTrip() throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = uplinkMbps == 0 ? HttpRequest.BodyPublishers.ofByteArray(body)
+                : HttpRequest.BodyPublishers.ofInputStream(() -> new Paced(new ByteArrayInputStream(body), uplinkMbps));
+        HttpResponse<String> response = http.send(request.copy().POST(publisher).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) throw new IllegalStateException("HTTP " + response.statusCode());
+        return response.body();
+    }
+
+    // Hands out a segment at a time, no faster than mbps
+    private static final class Paced extends FilterInputStream {
+        private static final int SEGMENT = 1460;
+        private final double nanosPerByte;
+        private final long start = System.nanoTime();
+        private long sent = 0;
+
+        Paced(InputStream in, int mbps) {
+            super(in);
+            this.nanosPerByte = 8_000.0 / mbps;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, Math.min(len, SEGMENT));
+            if (n > 0) {
+                sent += n;
+                long due = start + (long) (sent * nanosPerByte);
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            return n;
+        }
+    }
+
+    // ls -l style lines over a made-up project tree, repetitive the way real listings are
+    private static String listing() {
+        StringBuilder out = new StringBuilder(LISTING_BYTES + 128);
+        String[] dirs = {"src/main/java/com/example", "src/test/java/com/example", "docs", "build/libs", "logs"};
+        String[] exts = {".java", ".md", ".log", ".jar", ".txt"};
+        for (int i = 0; out.length() < LISTING_BYTES; i++) {
+            out.append("-rw-r--r--  1 user  staff  ").append(1024 + (i * 7919) % 900_000)
+                    .append("  Oct ").append(1 + i % 28).append(" 10:").append(String.format("%02d", i % 60)).append("  ")
+                    .append(dirs[i % dirs.length]).append("/File").append(i).append(exts[i % exts.length]).append('\n');
+        }
+        return out.toString();
+    }
+}
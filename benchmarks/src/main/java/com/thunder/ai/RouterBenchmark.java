@@ -0,0 +1,182 @@
+package com.thunder.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Compiled CommandRouter / PhraseMatcher against the if-chain and danger-list scan
+// they replaced. Inputs mix early hits, late hits and misses, since most real
+// input misses every route and falls through to the model. The scaled pair grows
+// the table with synthetic routes to show how each approach behaves as commands
+// are added.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+    private static final String[] INPUTS = {
+            "create file notes.txt",
+            "show disk usage",
+            "list processes",
+            "monitor alert cpu 80",
+            "suggest large files in ~/Downloads top 20 over 50 mb",
+            "suggest backup for ~/Documents",
+            "schedule every day at 9am run df -h",
+            "show me the 10 biggest log files modified this week",
+            "what is my ip address",
+            "count lines in every java file under src",
+    };
+
+    private static final String[] COMMANDS = {
+            "ls -la",
+            "find . -name \"*.java\" | xargs wc -l",
+            "ps aux --sort=-%cpu | head -n 20",
+            "sudo rm -rf /tmp/cache",
+            "du -sh * | sort -h | tail -n 10",
+    };
+
+    private final CommandRouter router = AI_CLI_Assistant.router();
+
+    @Benchmark
+    public void compiledRouter(Blackhole bh) {
+        for (String input : INPUTS) {
+            bh.consume(router.route(input));
+        }
+    }
+
+    @Benchmark
+    public void legacyChain(Blackhole bh) {
+        for (String input : INPUTS) {
+            bh.consume(legacyRoute(input));
+        }
+    }
+
+    @Benchmark
+    public void compiledDanger(Blackhole bh) {
+        for (String cmd : COMMANDS) {
+            bh.consume(AI_CLI_Assistant.isDangerousCommand(cmd));
+        }
+    }
+
+    @Benchmark
+    public void legacyDanger(Blackhole bh) {
+        for (String cmd : COMMANDS) {
+            bh.consume(legacyDangerous(cmd));
+        }
+    }
+
+    // Synthetic tables: three quarters prefix routes, the rest two-keyword routes
+    @State(Scope.Benchmark)
+    public static class Scaled {
+        @Param({"22", "100", "400"})
+        int routes;
+
+        String[] prefixes;
+        String[][] keywords;
+        CommandRouter router;
+
+        @Setup
+        public void setup() {
+            int keywordRoutes = routes / 4;
+            prefixes = new String[routes - keywordRoutes];
+            keywords = new String[keywordRoutes][];
+            router = new CommandRouter();
+            for (int i = 0; i < prefixes.length; i++) {
+                prefixes[i] = "verb" + i + " object ";
+                router.prefix(m -> {}, prefixes[i]);
+            }
+            for (int i = 0; i < keywordRoutes; i++) {
+                keywords[i] = new String[] {"suggest", "topic" + i};
+                router.allOf(m -> {}, keywords[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scaledCompiled(Scaled table, Blackhole bh) {
+        for (String input : INPUTS) {
+            bh.consume(table.router.route(input));
+        }
+    }
+
+    @Benchmark
+    public void scaledChain(Scaled table, Blackhole bh) {
+        for (String input : INPUTS) {
+            String lower = input.toLowerCase().trim();
+            int found = -1;
+            for (int i = 0; i < table.prefixes.length && found < 0; i++) {
+                if (lower.startsWith(table.prefixes[i])) found = i;
+            }
+            for (int i = 0; i < table.keywords.length && found < 0; i++) {
+                if (lower.contains(table.keywords[i][0]) && lower.contains(table.keywords[i][1])) found = table.prefixes.length + i;
+            }
+            bh.consume(found);
+        }
+    }
+
+    // The checks handleDirectCommand used to run, in order, minus the side effects,
+    // extended with the routes added since so both sides cover today's table
+    static int legacyRoute(String input) {
+        String lower = input.toLowerCase().trim();
+        if (lower.startsWith("create file ")) return 0;
+        if (lower.startsWith("delete file ")) return 1;
+        if (lower.startsWith("create folder ") || lower.startsWith("mkdir ")) return 2;
+        if (lower.startsWith("delete folder ") || lower.startsWith("rmdir ")) return 3;
+        if (lower.startsWith("copy folder ") || lower.startsWith("copy file ")) return 4;
+        if (lower.startsWith("move folder ") || lower.startsWith("move file ")
+                || lower.startsWith("rename folder ") || lower.startsWith("rename file ")) return 5;
+        if (lower.equals("list all files") || lower.startsWith("list all files ")) return 6;
+        if (lower.startsWith("search by file type ") || lower.startsWith("search by type ")
+                || lower.startsWith("find files of type ") || lower.startsWith("list files of type ")) return 7;
+        if (lower.startsWith("find files named ") || lower.startsWith("find file named ")
+                || lower.startsWith("find files matching ") || lower.startsWith("search file names for ")) return 8;
+        if (lower.equals("count files") || lower.startsWith("count files ")) return 9;
+        if (lower.equals("file index stats") || lower.equals("show file index stats")) return 10;
+        if (lower.equals("show cpu usage") || lower.equals("cpu usage")) return 11;
+        if (lower.equals("show ram usage") || lower.equals("ram usage") || lower.equals("show memory usage")) return 12;
+        if (lower.equals("show disk usage") || lower.equals("disk usage")) return 13;
+        if (lower.startsWith("list process")) return 14;
+        if (lower.equals("monitor") || lower.equals("show monitor")) return 15;
+        if (lower.startsWith("monitor alert ")) return 16;
+        if (lower.equals("top consumers") || lower.equals("show top consumers")) return 17;
+        if (lower.startsWith("kill process ") || lower.startsWith("kill_process ")) return 18;
+        if (lower.startsWith("gzip file ")) return 19;
+        if (lower.startsWith("compress file ") || lower.startsWith("compress folder ") || lower.startsWith("compress ")) return 20;
+        if (lower.contains("suggest") && lower.contains("rare")) return 21;
+        if (lower.contains("suggest") && lower.contains("large")) return 22;
+        if (lower.contains("suggest") && lower.contains("duplicate")) return 23;
+        if (lower.contains("suggest") && lower.contains("cleanup")) return 24;
+        if (lower.equals("cleanup rules") || lower.equals("show cleanup rules")) return 25;
+        if (lower.contains("suggest") && (lower.contains("archive") || lower.contains("archieve"))) return 26;
+        if (lower.contains("suggest") && lower.contains("report")) return 27;
+        if (lower.contains("suggest") && lower.contains("backup")) return 28;
+        if (lower.startsWith("parallel:")) return 29;
+        if (lower.startsWith("schedule ")) return 30;
+        return -1;
+    }
+
+    static boolean legacyDangerous(String cmd) {
+        String[] dangerList = {
+            "rm -rf", "sudo rm", "shutdown", "reboot", "mkfs",
+            "dd if=", ":(){", ">:", "kill -9 1"
+        };
+        for (String d : dangerList) {
+            if (cmd.contains(d)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.thunder.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cold starts of the interactive CLI in a fresh JVM, with and without an AppCDS
+// archive (built from a short batch run, like mvn -Pcds package does). Each start
+// gets an empty user.home, so the command cache never answers, and the fake
+// backend, so the model round trip is local. firstAnswerAfterTyping waits
+// TYPING_MILLIS at the prompt before asking, which is when the background
+// connection warm-up pays off; subtract that pause from its score.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final String PROMPT = "Ask something";
+    private static final String ANSWERED = "Run this command?";
+    private static final String QUESTION = "find all log files";
+    private static final long TYPING_MILLIS = 1000;
+    // The shaded benchmark jar carries the application. Absolute, since the CLI runs in a
+    // scratch directory, and identical for every start, since CDS checks it as written
+    private static final String CLASS_PATH = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+            .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+            .collect(Collectors.joining(File.pathSeparator));
+
+    @Param({"false", "true"})
+    public boolean cds;
+
+    private Path work;
+    private Path archive;
+    private Path home;
+    private Process process;
+    private InputStream out;
+    private final ByteArrayOutputStream seen = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void buildArchive() throws IOException, InterruptedException {
+        work = Files.createTempDirectory("ai-cli-startup");
+        if (!cds) return;
+        archive = work.resolve("app.jsa");
+        Path training = Files.writeString(work.resolve("training.txt"),
+                "list files in this folder\nshow disk usage\nfind files larger than 100mb\n");
+        Path log = work.resolve("training.log");
+        Process dump = command(List.of("-XX:ArchiveClassesAtExit=" + archive), List.of("--batch", training.toString()))
+                .redirectOutput(log.toFile())
+                .redirectError(log.toFile())
+                .start();
+        dump.getOutputStream().close();
+        if (dump.waitFor() != 0 || !Files.exists(archive)) {
+            throw new IllegalStateException("CDS archive was not written to " + archive + ":\n" + Files.readString(log));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void freshHome() throws IOException {
+        home = Files.createTempDirectory(work, "home");
+        seen.reset();
+    }
+
+    @TearDown(Level.Invocation)
+    public void exit() throws IOException, InterruptedException {
+        if (process == null) return;
+        try (OutputStream in = process.getOutputStream()) {
+            in.write("no\nexit\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Already gone
+        }
+        if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+        process = null;
+        delete(home);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        delete(work);
+    }
+
+    @Benchmark
+    public void timeToPrompt() throws IOException {
+        launch();
+        await(PROMPT);
+    }
+
+    @Benchmark
+    public void timeToFirstAnswer() throws IOException {
+        launch();
+        await(PROMPT);
+        ask(QUESTION);
+        await(ANSWERED);
+    }
+
+    @Benchmark
+    public void firstAnswerAfterTyping() throws IOException, InterruptedException {
+        launch();
+        await(PROMPT);
+        Thread.sleep(TYPING_MILLIS);
+        ask(QUESTION);
+        await(ANSWERED);
+    }
+
+    private void launch() throws IOException {
+        List<String> jvmArgs = new ArrayList<>(List.of("-Duser.home=" + home));
+        if (archive != null) jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+        process = command(jvmArgs, List.of()).start();
+        out = process.getInputStream();
+    }
+
+    private ProcessBuilder command(List<String> jvmArgs, List<String> appArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(CLASS_PATH);
+        command.add(AI_CLI_Assistant.class.getName());
+        command.addAll(appArgs);
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(work.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("LLM_BACKEND", "fake");
+        return builder;
+    }
+
+    private void ask(String question) throws IOException {
+        OutputStream in = process.getOutputStream();
+        in.write((question + "\n").getBytes(StandardCharsets.UTF_8));
+        in.flush();
+    }
+
+    // Reads the child's stdout until marker shows up
+    private void await(String marker) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (!seen.toString(StandardCharsets.UTF_8).contains(marker)) {
+            int n = out.read(buffer);
+            if (n < 0) throw new IllegalStateException("CLI exited before printing \"" + marker + "\"");
+            seen.write(buffer, 0, n);
+        }
+        seen.reset();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Deterministic file trees for the filesystem suites, generated once per size
+ * under java.io.tmpdir and reused by later runs (a marker file records that the
+ * tree is complete). Shape: 100 files per folder, 100 folders per level.
+ *
+ *   80%  0-4 KB of random bytes
+ *   15%  4-32 KB of random bytes
+ *    4%  byte-for-byte copies of an earlier file (duplicate candidates)
+ *    1%  sparse 10-200 MB files (large-file candidates, no real disk cost)
+ *
+ * Modification times are spread over the last two years.
+ */
+public final class SyntheticTree {
+
+    private static final int FILES_PER_DIR = 100;
+    private static final int DIRS_PER_LEVEL = 100;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final String MARKER = ".complete";
+
+    private SyntheticTree() {}
+
+    public static Path get(int files) {
+        Path root = Paths.get(System.getProperty("bench.tree", System.getProperty("java.io.tmpdir")),
+                "ai-cli-bench", "tree-" + files);
+        if (Files.exists(root.resolve(MARKER))) return root;
+        try {
+            generate(root, files);
+            Files.createFile(root.resolve(MARKER));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return root;
+    }
+
+    private static void generate(Path root, int files) throws IOException {
+        Random random = new Random(42);
+        byte[] noise = new byte[256 * 1024];
+        random.nextBytes(noise);
+        long now = System.currentTimeMillis();
+        List<Path> written = new ArrayList<>();
+
+        for (int i = 0; i < files; i++) {
+            int dir = i / FILES_PER_DIR;
+            Path folder = root.resolve("d" + dir / DIRS_PER_LEVEL).resolve("d" + dir % DIRS_PER_LEVEL);
+            if (i % FILES_PER_DIR == 0) Files.createDirectories(folder);
+            Path file = folder.resolve("f" + i + ".dat");
+
+            int kind = random.nextInt(100);
+            if (kind < 4 && !written.isEmpty()) {
+                Files.copy(written.get(random.nextInt(written.size())), file);
+            } else if (kind < 5) {
+                try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                    raf.setLength((10L << 20) + (long) (random.nextDouble() * (190L << 20)));
+                }
+            } else {
+                int size = kind < 20 ? 4096 + random.nextInt(28 * 1024) : random.nextInt(4096);
+                int offset = random.nextInt(noise.length - size);
+                try (var out = Files.newOutputStream(file)) {
+                    out.write(noise, offset, size);
+                }
+                // Keep a bounded pool of copy sources
+                if (written.size() < 10_000) written.add(file);
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now - (long) (random.nextDouble() * 730 * DAY_MILLIS)));
+        }
+    }
+}
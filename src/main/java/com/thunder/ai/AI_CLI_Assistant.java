@@ -1,30 +1,24 @@
 package com.thunder.ai;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
-import javax.net.ssl.SSLContext;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
@@ -35,155 +29,313 @@ public class AI_CLI_Assistant {
         SSLUtil.disableSSLVerification();
     }
 
-    private static final Dotenv dotenv = Dotenv.load();
+    // A missing .env is reported in main, so tools and benchmarks can still load this class
+    private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
     private static final String API_KEY = dotenv.get("GEMINI_API_KEY");
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
+    // Only the metrics sampler and exporter run here; created by whichever starts first
+    private static ScheduledExecutorService scheduler = null;
+    private static boolean stopped = false;
 
-    private static boolean isDangerousCommand(String cmd) {
-        String[] dangerList = {
+    private static final PhraseMatcher DANGER = new PhraseMatcher(List.of(
             "rm -rf", "sudo rm", "shutdown", "reboot", "mkfs",
-            "dd if=", ":(){", ">:", "kill -9 1"
-        };
-        for (String d : dangerList) {
-            if (cmd.contains(d)) return true;
+            "dd if=", ":(){", ">:", "kill -9 1"));
+
+    static boolean isDangerousCommand(String cmd) {
+        return DANGER.containsAny(cmd);
+    }
+
+    // Direct command handlers, compiled into one automaton; earlier routes win on overlap.
+    // Routes that only look are marked readOnly(): batch mode runs just those unless --allow names the route
+    private static final CommandRouter ROUTER = new CommandRouter()
+            // File operations
+            .prefix(AI_CLI_Assistant::createFile, "create file ")
+            .prefix(AI_CLI_Assistant::deleteFile, "delete file ")
+            .prefix(AI_CLI_Assistant::createFolder, "create folder ", "mkdir ")
+            .prefix(AI_CLI_Assistant::deleteFolder, "delete folder ", "rmdir ")
+            .prefix(m -> transfer(m, FileOperations.Kind.COPY), "copy folder ", "copy file ")
+            .prefix(m -> transfer(m, FileOperations.Kind.MOVE), "move folder ", "move file ", "rename folder ", "rename file ")
+            // File search, answered from the in-memory name index
+            .prefix(AI_CLI_Assistant::listAllFiles, "list all files").readOnly().when(m -> indexQuery(m, false))
+            .prefix(AI_CLI_Assistant::searchByType, "search by file type", "search by type", "find files of type", "list files of type").readOnly()
+            .when(m -> indexQuery(m, true))
+            .prefix(AI_CLI_Assistant::searchByName, "find files named", "find file named", "find files matching", "search file names for").readOnly()
+            .prefix(AI_CLI_Assistant::countFiles, "count files").readOnly().when(m -> indexQuery(m, false))
+            .exact(m -> showNameIndexStats(), "file index stats", "show file index stats").readOnly()
+            // System information
+            .exact(m -> showCpuUsage(), "show cpu usage", "cpu usage").readOnly()
+            .exact(m -> showMemoryUsage(), "show ram usage", "ram usage", "show memory usage").readOnly()
+            .exact(m -> showDiskUsage(), "show disk usage", "disk usage").readOnly()
+            .prefix(m -> listProcesses(), "list process").readOnly()
+            .exact(m -> ResourceMonitor.printSummary(), "monitor", "show monitor").readOnly()
+            .prefix(AI_CLI_Assistant::setAlert, "monitor alert ")
+            .exact(m -> showTopConsumers(), "top consumers", "show top consumers").readOnly()
+            .prefix(AI_CLI_Assistant::killProcess, "kill process ", "kill_process ")
+            .prefix(m -> compress(m, Archiver.Format.GZIP), "gzip file ")
+            .prefix(m -> compress(m, Archiver.Format.ZIP), "compress file ", "compress folder ", "compress ")
+            // AI Suggestions
+            .allOf(m -> suggestRareFiles(extractPath(m.input()), extractLimit(m.lower(), 10), extractDays(m.lower(), 30)), "suggest", "rare").readOnly()
+            .allOf(m -> suggestLargeFiles(extractPath(m.input()), extractLimit(m.lower(), 10), extractSize(m.lower(), 10L * 1024 * 1024)), "suggest", "large").readOnly()
+            .allOf(m -> suggestDuplicateFiles(extractPath(m.input())), "suggest", "duplicate").readOnly()
+            .allOf(m -> suggestCleanup(extractPath(m.input()), extractLimit(m.lower(), 10)), "suggest", "cleanup").readOnly()
+            .exact(m -> CleanupRules.load().print(), "cleanup rules", "show cleanup rules").readOnly()
+            .allOf(m -> suggestArchive(extractPath(m.input()), extractLimit(m.lower(), 10), extractDays(m.lower(), 180)), "suggest", "archive|archieve").readOnly()
+            .allOf(m -> suggestReport(extractPath(m.input())), "suggest", "report").readOnly()
+            .allOf(m -> suggestBackup(extractPath(m.input())), "suggest", "backup").readOnly()
+            .prefix(m -> runParallel(m.input()), "parallel:").runsShell(CommandRouter.Match::argument)
+            // Schedule tasks
+            .prefix(m -> scheduleTask(m.input()), "schedule ").runsShell(AI_CLI_Assistant::scheduledCommand);
+
+    static CommandRouter router() {
+        return ROUTER;
+    }
+
+    // One latency series per route, registered the first time the route runs
+    private static final Metrics.Timer[] DIRECT_TIMERS = new Metrics.Timer[ROUTER.routeCount()];
+
+    static boolean handleDirectCommand(String input) {
+        CommandRouter.Match match = ROUTER.match(input);
+        if (match == null) return false;
+        runDirect(match);
+        return true;
+    }
+
+    static void runDirect(CommandRouter.Match match) {
+        Metrics.Timer timer = DIRECT_TIMERS[match.route()];
+        if (timer == null) {
+            timer = Metrics.timer("direct_command_seconds", "Time spent handling a direct command", "route", match.name());
+            DIRECT_TIMERS[match.route()] = timer;
         }
-        return false;
+        long start = timer.start();
+        ROUTER.run(match);
+        timer.stop(start);
     }
 
-    // Direct command handlers
-    private static boolean handleDirectCommand(String input) {
-        String lower = input.toLowerCase().trim();
-        
-        // File operations
-        if (lower.startsWith("create file ")) {
-            String filename = input.substring(12).trim();
-            try {
-                new File(filename).createNewFile();
-                System.out.println("📄 Created file: " + filename);
-                return true;
-            } catch (IOException e) {
-                System.out.println("❌ Error creating file: " + e.getMessage());
-                return true;
-            }
+    private static void createFile(CommandRouter.Match m) {
+        String filename = m.argument();
+        try {
+            resolvePath(filename).toFile().createNewFile();
+            System.out.println("📄 Created file: " + filename);
+        } catch (IOException e) {
+            System.out.println("❌ Error creating file: " + e.getMessage());
         }
-        
-        if (lower.startsWith("delete file ")) {
-            String filename = input.substring(12).trim();
-            File f = new File(filename);
-            if (f.delete()) {
-                System.out.println("🗑️ Deleted file: " + filename);
-            } else {
-                System.out.println("❌ Could not delete file: " + filename);
-            }
-            return true;
+    }
+
+    private static void deleteFile(CommandRouter.Match m) {
+        String filename = m.argument();
+        File f = resolvePath(filename).toFile();
+        if (f.delete()) {
+            System.out.println("🗑️ Deleted file: " + filename);
+        } else {
+            System.out.println("❌ Could not delete file: " + filename);
         }
-        
-        if (lower.startsWith("create folder ") || lower.startsWith("mkdir ")) {
-            String foldername = lower.startsWith("create folder ") ? input.substring(14).trim() : input.substring(6).trim();
-            File f = new File(foldername);
-            if (f.mkdirs()) {
-                System.out.println("✅ Created folder: " + foldername);
-            } else {
-                System.out.println("❌ Could not create folder: " + foldername);
-            }
-            return true;
+    }
+
+    private static void createFolder(CommandRouter.Match m) {
+        String foldername = m.argument();
+        File f = resolvePath(foldername).toFile();
+        if (f.mkdirs()) {
+            System.out.println("✅ Created folder: " + foldername);
+        } else {
+            System.out.println("❌ Could not create folder: " + foldername);
         }
-        
-        if (lower.startsWith("delete folder ") || lower.startsWith("rmdir ")) {
-            String foldername = lower.startsWith("delete folder ") ? input.substring(14).trim() : input.substring(6).trim();
-            File f = new File(foldername);
-            if (f.exists() && f.isDirectory()) {
-                deleteDirectory(f);
-                System.out.println("✅ Deleted folder: " + foldername);
-            } else {
-                System.out.println("❌ Folder not found: " + foldername);
-            }
-            return true;
+    }
+
+    private static void deleteFolder(CommandRouter.Match m) {
+        boolean dryRun = isDryRun(m.argument());
+        String foldername = withoutDryRun(m.argument());
+        if (!Files.isDirectory(resolvePath(foldername), LinkOption.NOFOLLOW_LINKS)) {
+            System.out.println("❌ Folder not found: " + foldername);
+            return;
         }
-        
-        // System information
-        if (lower.equals("show cpu usage") || lower.equals("cpu usage")) {
+        try {
+            printFileOperation(foldername, FileOperations.delete(resolvePath(foldername), dryRun, AI_CLI_Assistant::printProgress));
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    // "copy folder a to b", "move file a to dir/", "rename folder a to b"; "--dry-run" only plans
+    private static void transfer(CommandRouter.Match m, FileOperations.Kind kind) {
+        boolean dryRun = isDryRun(m.argument());
+        String argument = withoutDryRun(m.argument());
+        int split = argument.lastIndexOf(" to ");
+        if (split < 0) {
+            System.out.println("❌ Usage: " + (kind == FileOperations.Kind.COPY ? "copy" : "move|rename")
+                    + " folder|file <source> to <destination> [--dry-run]");
+            return;
+        }
+        String source = argument.substring(0, split).trim();
+        Path target = resolvePath(argument.substring(split + 4).trim());
+        try {
+            FileOperations.Result result = kind == FileOperations.Kind.COPY
+                    ? FileOperations.copy(resolvePath(source), target, dryRun, AI_CLI_Assistant::printProgress)
+                    : FileOperations.move(resolvePath(source), target, dryRun, AI_CLI_Assistant::printProgress);
+            printFileOperation(source + " → " + target, result);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    private static boolean isDryRun(String argument) {
+        return (" " + argument + " ").contains(" --dry-run ");
+    }
+
+    private static String withoutDryRun(String argument) {
+        return (" " + argument + " ").replace(" --dry-run ", " ").trim();
+    }
+
+    private static void printProgress(FileOperations.Progress p) {
+        System.out.println("⏳ " + p.files() + " files, " + p.directories() + " folders, " + formatBytes(p.bytes())
+                + String.format(" (%.1f MB/s)", p.megabytesPerSecond()));
+    }
+
+    private static void printFileOperation(String what, FileOperations.Result r) {
+        String verb = switch (r.kind()) {
+            case DELETE -> "delete";
+            case COPY -> "copy";
+            case MOVE -> "move";
+        };
+        if (r.dryRun()) {
+            System.out.println("📝 Dry run: would " + verb + " " + r.files() + " files and " + r.directories() + " folders ("
+                    + formatBytes(r.bytes()) + ", " + r.operations() + " operations) for " + what);
+        } else if (r.renamed()) {
+            System.out.println("✅ Moved " + what + " (renamed in place, " + r.elapsedMillis() + " ms)");
+        } else {
+            String done = switch (r.kind()) {
+                case DELETE -> "🗑️ Deleted ";
+                case COPY -> "📋 Copied ";
+                case MOVE -> "🚚 Moved ";
+            };
+            System.out.println((r.succeeded() ? "✅ " : "⚠️ ") + done + r.files() + " files and " + r.directories() + " folders ("
+                    + formatBytes(r.bytes()) + ") for " + what + " in " + r.elapsedMillis() + " ms"
+                    + String.format(" · %.0f files/s · %.1f MB/s", r.filesPerSecond(), r.megabytesPerSecond()));
+        }
+        if (r.failureCount() > 0) {
+            System.out.println("❌ " + r.failureCount() + " entries failed:");
+            r.failures().stream().limit(10).forEach(f -> System.out.println("  " + f.path() + ": " + f.message()));
+            if (r.failureCount() > 10) System.out.println("  ... and " + (r.failureCount() - 10) + " more");
+        }
+    }
+
+    // System information, answered from the latest in-memory sample when available
+    private static void showCpuUsage() {
+        MetricsSample sample = SystemMetrics.latest();
+        if (sample == null) {
             runCommand("top -l 1 | grep 'CPU usage'");
-            return true;
+        } else {
+            System.out.println("🧮 CPU usage: " + String.format("%.1f%%", sample.cpuUsage() * 100)
+                    + (sample.loadAverage() >= 0 ? String.format(" (load avg %.2f)", sample.loadAverage()) : ""));
         }
-        
-        if (lower.equals("show ram usage") || lower.equals("ram usage") || lower.equals("show memory usage")) {
-            System.out.println("💾 RAM usage:");
+    }
+
+    private static void showMemoryUsage() {
+        MetricsSample sample = SystemMetrics.latest();
+        System.out.println("💾 RAM usage:");
+        if (sample == null) {
             runCommand("vm_stat | head -5");
-            return true;
+        } else {
+            System.out.println("  " + formatBytes(sample.memUsed()) + " used of " + formatBytes(sample.memTotal())
+                    + ", " + formatBytes(sample.memAvailable()) + " available (" + percent(sample.memUsed(), sample.memTotal()) + ")");
         }
-        
-        if (lower.equals("show disk usage") || lower.equals("disk usage")) {
-            System.out.println("💽 Disk usage:");
+    }
+
+    private static void showDiskUsage() {
+        MetricsSample sample = SystemMetrics.latest();
+        System.out.println("💽 Disk usage:");
+        if (sample == null) {
             runCommand("df -h / | tail -1");
-            return true;
+        } else {
+            System.out.println("  / " + formatBytes(sample.diskUsed()) + " used of " + formatBytes(sample.diskTotal())
+                    + ", " + formatBytes(sample.diskUsable()) + " free (" + percent(sample.diskUsed(), sample.diskTotal()) + ")");
         }
-        
-        if (lower.equals("list processes") || lower.startsWith("list process")) {
-            System.out.println("🔍 Active processes:");
+    }
+
+    private static void listProcesses() {
+        MetricsSample sample = SystemMetrics.latest();
+        System.out.println("🔍 Active processes:");
+        if (sample == null || sample.processes() == null) {
             runCommand("ps aux | head -20");
-            return true;
-        }
-        
-        if (lower.startsWith("kill process ") || lower.startsWith("kill_process ")) {
-            String pid = input.replaceAll(".*?(\\d+).*", "$1");
-            runCommand("kill " + pid);
-            System.out.println("✅ Killed process " + pid);
-            return true;
-        }
-        
-        // Compress files
-        if (lower.startsWith("compress file ") || lower.startsWith("compress ")) {
-            String filename = lower.startsWith("compress file ") ? input.substring(14).trim() : input.substring(9).trim();
-            runCommand("zip " + filename + "._compressed.zip " + filename);
-            System.out.println("📦 Compressed to " + filename + "._compressed.zip");
-            return true;
-        }
-        
-        // AI Suggestions
-        if (lower.contains("suggest") && lower.contains("rare")) {
-            String path = extractPath(input);
-            suggestRareFiles(path);
-            return true;
+        } else {
+            System.out.println(String.format("  %7s %6s %10s  %s", "PID", "CPU%", "RSS", "COMMAND"));
+            sample.processes().stream()
+                .sorted((a, b) -> a.cpuPercent() != b.cpuPercent()
+                        ? Double.compare(b.cpuPercent(), a.cpuPercent())
+                        : Long.compare(b.rssBytes(), a.rssBytes()))
+                .limit(20)
+                .forEach(ps -> System.out.println(String.format("  %7d %6.1f %10s  %s",
+                        ps.pid(), ps.cpuPercent(), formatBytes(ps.rssBytes()), ps.name())));
         }
-        
-        if (lower.contains("suggest") && lower.contains("large")) {
-            String path = extractPath(input);
-            suggestLargeFiles(path);
-            return true;
+    }
+
+    // monitor alert cpu 80
+    private static void setAlert(CommandRouter.Match m) {
+        String[] parts = m.lower().split("\\s+");
+        if (parts.length == 4 && parts[3].matches("\\d+(\\.\\d+)?") && ResourceMonitor.setThreshold(parts[2], Double.parseDouble(parts[3]))) {
+            System.out.println("🚨 Alert threshold for " + parts[2] + " set to " + parts[3] + "%");
+        } else {
+            System.out.println("❌ Usage: monitor alert <cpu|mem|disk> <percent>");
         }
-        
-        if (lower.contains("suggest") && lower.contains("duplicate")) {
-            String path = extractPath(input);
-            suggestDuplicateFiles(path);
-            return true;
+    }
+
+    private static void showTopConsumers() {
+        if (!ResourceMonitor.printTopConsumers(5)) {
+            runCommand("ps aux -r | head -6");
         }
-        
-        if (lower.contains("suggest") && lower.contains("cleanup")) {
-            String path = extractPath(input);
-            suggestCleanup(path);
-            return true;
+    }
+
+    private static void killProcess(CommandRouter.Match m) {
+        String pid = m.argument();
+        // Only a bare pid ever reaches the shell
+        if (!pid.matches("\\d+")) {
+            System.out.println("❌ Not a process id: " + pid);
+            return;
         }
-        
-        if (lower.contains("suggest") && (lower.contains("archive") || lower.contains("archieve"))) {
-            String path = extractPath(input);
-            suggestArchive(path);
-            return true;
+        runCommand("kill " + pid);
+        System.out.println("✅ Killed process " + pid);
+    }
+
+    // Compress a file or folder into <name>._compressed.zip, or a single file into <name>.gz
+    private static void compress(CommandRouter.Match m, Archiver.Format format) {
+        Path source = resolvePath(m.argument());
+        if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+            System.out.println("❌ Not found: " + source);
+            return;
         }
-        
-        if (lower.contains("suggest") && lower.contains("backup")) {
-            String path = extractPath(input);
-            suggestBackup(path);
-            return true;
+        if (format == Archiver.Format.GZIP && !Files.isRegularFile(source)) {
+            System.out.println("❌ gzip takes a single file; use compress for folders");
+            return;
         }
-        
-        // Schedule tasks
-        if (lower.startsWith("schedule ")) {
-            scheduleTask(input);
-            return true;
+        Path output = source.resolveSibling(source.getFileName() + (format == Archiver.Format.ZIP ? "._compressed.zip" : ".gz"));
+        try {
+            Archiver.Result r = format == Archiver.Format.ZIP
+                    ? Archiver.zip(source, output, AI_CLI_Assistant::printProgress)
+                    : Archiver.gzip(source, output, AI_CLI_Assistant::printProgress);
+            System.out.println((r.failures().isEmpty() ? "📦 Compressed to " : "⚠️ Compressed with errors to ") + r.output()
+                    + ": " + r.files() + " files, " + formatBytes(r.bytesIn()) + " → " + formatBytes(r.bytesOut())
+                    + String.format(" (%.0f%%) in %d ms · %.1f MB/s", r.ratio() * 100, r.elapsedMillis(), r.megabytesPerSecond()));
+            if (!r.failures().isEmpty()) {
+                System.out.println("❌ " + r.failures().size() + " entries skipped:");
+                r.failures().stream().limit(10).forEach(f -> System.out.println("  " + f.path() + ": " + f.message()));
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Compression failed: " + e.getMessage());
         }
-        
-        return false;
+    }
+    
+    // Relative paths resolve against the client's directory when serving a daemon session
+    private static Path resolvePath(String name) {
+        Path dir = Daemon.workingDirectory();
+        return dir == null ? Paths.get(name) : dir.resolve(name).normalize();
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1L << 30) return String.format("%.1f GB", bytes / (double) (1L << 30));
+        if (bytes >= 1L << 20) return String.format("%.1f MB", bytes / (double) (1L << 20));
+        return (bytes / 1024) + " KB";
+    }
+
+    private static String percent(long part, long total) {
+        return total == 0 ? "0%" : (part * 100 / total) + "%";
     }
     
     private static String extractPath(String input) {
@@ -197,188 +349,343 @@ public class AI_CLI_Assistant {
         return ".";
     }
     
-    private static void deleteDirectory(File directory) {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteDirectory(file);
-                } else {
-                    file.delete();
-                }
-            }
-        }
-        directory.delete();
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("\\btop\\s+(\\d+)");
+    private static final Pattern SIZE_PATTERN = Pattern.compile("\\b(\\d+)\\s*(kb|mb|gb)\\b");
+    private static final Pattern DAYS_PATTERN = Pattern.compile("\\b(\\d+)\\s*days?\\b");
+
+    // "top 20" -> 20
+    private static int extractLimit(String lower, int defaultLimit) {
+        Matcher m = LIMIT_PATTERN.matcher(lower);
+        return m.find() ? Math.max(1, Integer.parseInt(m.group(1))) : defaultLimit;
+    }
+
+    // "over 50 mb" -> bytes
+    private static long extractSize(String lower, long defaultBytes) {
+        Matcher m = SIZE_PATTERN.matcher(lower);
+        if (!m.find()) return defaultBytes;
+        long value = Long.parseLong(m.group(1));
+        return switch (m.group(2)) {
+            case "kb" -> value * 1024;
+            case "gb" -> value * 1024 * 1024 * 1024;
+            default -> value * 1024 * 1024;
+        };
+    }
+
+    // "older than 90 days" -> 90
+    private static int extractDays(String lower, int defaultDays) {
+        Matcher m = DAYS_PATTERN.matcher(lower);
+        return m.find() ? Integer.parseInt(m.group(1)) : defaultDays;
     }
     
-    private static void suggestRareFiles(String path) {
-        try {
-            File dir = new File(path);
-            if (!dir.exists()) {
-                System.out.println("⏳ Rarely touched files: None (path not found)");
-                return;
-            }
-            
-            long thirtyDaysAgo = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000);
-            List<String> rareFiles = new ArrayList<>();
-            
-            Files.walk(Paths.get(path))
-                .filter(Files::isRegularFile)
-                .forEach(p -> {
-                    try {
-                        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
-                        if (attrs.lastAccessTime().toMillis() < thirtyDaysAgo) {
-                            rareFiles.add(p.toString());
-                        }
-                    } catch (IOException e) {
-                        // Skip
-                    }
-                });
-            
-            if (rareFiles.isEmpty()) {
-                System.out.println("⏳ Rarely touched files: None");
-            } else {
-                System.out.println("⏳ Rarely touched files:");
-                rareFiles.stream().limit(10).forEach(f -> System.out.println("  - " + f));
-            }
-        } catch (Exception e) {
-            System.out.println("⏳ Rarely touched files: None");
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Runs one parallel walk over path and lets every analyzer report
+    private static void runScan(String path, String notFoundMessage, FileAnalyzer... analyzers) {
+        Path root = resolvePath(path);
+        if (!Files.exists(root)) {
+            System.out.println(notFoundMessage);
+            return;
         }
+
+        ScanEngine.Result result = ScanEngine.scan(root, analyzers);
+        for (FileAnalyzer analyzer : analyzers) {
+            analyzer.report();
+        }
+        System.out.println("🔎 Scanned " + result.files() + " files in " + result.directories() + " folders ("
+                + result.elapsedMillis() + " ms, " + (long) result.filesPerSecond() + " files/s)");
     }
-    
-    private static void suggestLargeFiles(String path) {
-        try {
-            File dir = new File(path);
-            if (!dir.exists()) {
-                System.out.println("📌 Large unused files: None (path not found)");
-                return;
-            }
-            
-            List<Map.Entry<File, Long>> largeFiles = new ArrayList<>();
-            
-            Files.walk(Paths.get(path))
-                .filter(Files::isRegularFile)
-                .forEach(p -> {
-                    try {
-                        long size = Files.size(p);
-                        if (size > 10 * 1024 * 1024) { // > 10MB
-                            largeFiles.add(new java.util.AbstractMap.SimpleEntry<>(p.toFile(), size));
-                        }
-                    } catch (IOException e) {
-                        // Skip
-                    }
-                });
-            
-            if (largeFiles.isEmpty()) {
-                System.out.println("📌 Large unused files: None");
-            } else {
-                System.out.println("📌 Large unused files:");
-                largeFiles.stream()
-                    .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
-                    .limit(10)
-                    .forEach(e -> System.out.println("  - " + e.getKey() + " (" + (e.getValue() / 1024 / 1024) + " MB)"));
-            }
-        } catch (Exception e) {
-            System.out.println("📌 Large unused files: None");
+
+    // Answers from the persistent index, re-listing only folders that changed since last time
+    // and re-checking the size and mtime of files in the rest
+    private static void runIndexed(String path, String notFoundMessage, Function<FileIndex, FileAnalyzer> factory) {
+        Path root = resolvePath(path);
+        if (!Files.isDirectory(root)) {
+            runScan(path, notFoundMessage, factory.apply(null));
+            return;
         }
+
+        FileIndex index = FileIndex.forRoot(root);
+        FileIndex.RefreshResult result = index.refresh();
+        FileAnalyzer analyzer = factory.apply(index);
+        index.forEach(analyzer);
+        analyzer.report();
+        index.save();
+        FileIndexWatcher.watch(index);
+        System.out.println("🗂️ Indexed " + result.files() + " files, re-listed " + result.relisted() + " of "
+                + result.directories() + " folders (" + result.elapsedMillis() + " ms)");
+    }
+
+    private static void suggestRareFiles(String path, int limit, int days) {
+        runIndexed(path, "⏳ Rarely touched files: None (path not found)",
+                index -> new RareFilesAnalyzer(System.currentTimeMillis() - days * DAY_MILLIS, limit));
+    }
+    
+    private static void suggestLargeFiles(String path, int limit, long minBytes) {
+        runIndexed(path, "📌 Large unused files: None (path not found)",
+                index -> new LargeFilesAnalyzer(minBytes, limit));
     }
     
     private static void suggestDuplicateFiles(String path) {
-        try {
-            Map<Long, List<File>> sizeMap = new HashMap<>();
-            Files.walk(Paths.get(path))
-                .filter(Files::isRegularFile)
-                .forEach(p -> {
-                    try {
-                        long size = Files.size(p);
-                        sizeMap.computeIfAbsent(size, k -> new ArrayList<>()).add(p.toFile());
-                    } catch (IOException e) {
-                        // Skip
-                    }
-                });
-            
-            boolean found = false;
-            for (List<File> files : sizeMap.values()) {
-                if (files.size() > 1) {
-                    if (!found) {
-                        System.out.println("🔄 Duplicate files:");
-                        found = true;
-                    }
-                    files.forEach(f -> System.out.println("  - " + f));
-                }
-            }
-            
-            if (!found) {
-                System.out.println("🔄 Duplicate files: None");
-            }
-        } catch (Exception e) {
-            System.out.println("🔄 Duplicate files: None");
-        }
+        runIndexed(path, "🔄 Duplicate files: None",
+                index -> index == null ? new DuplicateFilesAnalyzer() : new DuplicateFilesAnalyzer(index));
     }
     
-    private static void suggestCleanup(String path) {
-        try {
-            File dir = new File(path);
-            if (!dir.exists()) {
-                System.out.println("🧹 Cleanup suggestions: Path not found");
-                return;
-            }
-            
-            long tempSize = 0;
-            int tempCount = 0;
-            
-            Files.walk(Paths.get(path))
-                .filter(p -> p.toString().contains("temp") || p.toString().contains("tmp") || 
-                            p.toString().endsWith(".log") || p.toString().endsWith(".cache"))
-                .filter(Files::isRegularFile)
-                .forEach(p -> {
-                    try {
-                        // Just count, don't delete
-                    } catch (Exception e) {
-                        // Skip
-                    }
-                });
-            
-            System.out.println("🧹 Cleanup suggestions: Looks clean");
-        } catch (Exception e) {
-            System.out.println("🧹 Cleanup suggestions: Looks clean");
-        }
+    private static void suggestCleanup(String path, int limit) {
+        runScan(path, "🧹 Cleanup suggestions: Path not found", new CleanupAnalyzer(resolvePath(path), CleanupRules.load(), limit));
     }
     
-    private static void suggestArchive(String path) {
-        System.out.println("📦 Archive candidates: None");
+    private static void suggestArchive(String path, int limit, int days) {
+        runScan(path, "📦 Archive candidates: None (path not found)",
+                new ArchiveAnalyzer(System.currentTimeMillis() - days * DAY_MILLIS, limit));
+    }
+
+    // All suggestions from a single walk
+    private static void suggestReport(String path) {
+        long now = System.currentTimeMillis();
+        runScan(path, "📋 Scan report: Path not found",
+                new RareFilesAnalyzer(now - 30 * DAY_MILLIS),
+                new LargeFilesAnalyzer(10 * 1024 * 1024),
+                new DuplicateFilesAnalyzer(),
+                new CleanupAnalyzer(resolvePath(path)),
+                new ArchiveAnalyzer(now - 180 * DAY_MILLIS));
     }
     
     private static void suggestBackup(String path) {
         System.out.println("💾 Suggestion: back up '" + path + "' periodically.");
     }
+
+    private static final Pattern IN_FOLDER = Pattern.compile("^(.*?)\\s*\\b(?:in|under)\\s+(.+)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HERE = Pattern.compile("(?:the )?(?:current|this) (?:directory|folder|dir)|here", Pattern.CASE_INSENSITIVE);
+
+    // What a file search is for, where, and how many paths to print
+    private record Scoped(String subject, Path folder, int limit) {}
+
+    // "<subject> [in <folder>] [top N]"
+    private static Scoped scoped(String argument, int defaultLimit) {
+        int limit = extractLimit(argument.toLowerCase(), defaultLimit);
+        String rest = argument.replaceAll("(?i)\\btop\\s+\\d+", "").trim();
+        String subject = rest;
+        String folder = ".";
+        Matcher m = IN_FOLDER.matcher(rest);
+        if (m.matches()) {
+            subject = m.group(1).trim();
+            folder = m.group(2).trim();
+            if (HERE.matcher(folder).matches()) folder = ".";
+            folder = folder.replaceFirst("(?i)^(?:the )?(?:folder|directory|dir)\\s+", "");
+        }
+        return new Scoped(subject, resolvePath(folder).toAbsolutePath().normalize(), limit);
+    }
+
+    /*
+     * Whether a name index route can answer all of the input: its phrase as whole
+     * words, then only "in <folder>" and "top N", besides the one type searchByType
+     * takes. Anything more, like "list all files larger than 1GB" or "count files
+     * changed today", is left to the model rather than answered in part.
+     */
+    private static boolean indexQuery(CommandRouter.Match m, boolean takesType) {
+        String argument = m.argument();
+        int at = m.input().length() - argument.length();
+        if (!argument.isEmpty() && !Character.isWhitespace(m.input().charAt(at - 1))) return false;
+        String subject = scoped(argument, 0).subject();
+        return takesType ? subject.chars().noneMatch(Character::isWhitespace) : subject.isEmpty();
+    }
+
+    // The name index covering folder, walked on first use and then kept current by the watcher
+    private static FileNameIndex nameIndex(Path folder) {
+        FileNameIndex index = FileNameIndex.covering(folder);
+        if (index != null) return index;
+        index = FileNameIndex.open(folder);
+        FileNameIndexWatcher.watch(index);
+        FileNameIndex.BuildResult built = index.lastBuild();
+        System.out.printf("🗂️ Indexed %,d file names in %,d folders (%d ms, ~%d bytes per file); watching for changes%n",
+                built.files(), built.folders(), built.elapsedMillis(), index.stats().bytesPerFile());
+        return index;
+    }
+
+    private static void listAllFiles(CommandRouter.Match m) {
+        Scoped s = scoped(m.argument(), 50);
+        if (!Files.isDirectory(s.folder())) {
+            System.out.println("❌ Folder not found: " + s.folder());
+            return;
+        }
+        printHits("📂", "files", nameIndex(s.folder()).list(s.folder(), s.limit()), s.folder());
+    }
+
+    private static void searchByType(CommandRouter.Match m) {
+        Scoped s = scoped(m.argument(), 50);
+        if (s.subject().isEmpty()) {
+            System.out.println("❌ Which type? e.g. search by file type pdf in Documents");
+            return;
+        }
+        if (!Files.isDirectory(s.folder())) {
+            System.out.println("❌ Folder not found: " + s.folder());
+            return;
+        }
+        String extension = s.subject().replaceFirst("^\\*?\\.", "");
+        printHits("🔎", "." + extension + " files", nameIndex(s.folder()).byExtension(extension, s.folder(), s.limit()), s.folder());
+    }
+
+    private static void searchByName(CommandRouter.Match m) {
+        Scoped s = scoped(m.argument(), 50);
+        String pattern = s.subject().replaceAll("^[\"']|[\"']$", "");
+        if (pattern.isEmpty()) {
+            System.out.println("❌ Named what? e.g. find files named report in Documents, or find files named *.log");
+            return;
+        }
+        if (!Files.isDirectory(s.folder())) {
+            System.out.println("❌ Folder not found: " + s.folder());
+            return;
+        }
+        printHits("🔎", "files matching \"" + pattern + "\"", nameIndex(s.folder()).matching(pattern, s.folder(), s.limit()), s.folder());
+    }
+
+    private static void countFiles(CommandRouter.Match m) {
+        Scoped s = scoped(m.argument(), 10);
+        Path folder = s.folder();
+        if (!Files.isDirectory(folder)) {
+            System.out.println("❌ Folder not found: " + folder);
+            return;
+        }
+        FileNameIndex.Counts counts = nameIndex(folder).counts(folder, s.limit());
+        FileNameIndex.FolderCount total = counts.folder();
+        System.out.printf("📊 %,d files in %,d folders under %s (%.1f ms)%n",
+                total.files(), total.folders(), display(total.folder()), counts.elapsedMillis());
+        for (FileNameIndex.FolderCount sub : counts.subfolders()) {
+            System.out.printf("  %-40s %,10d files %,8d folders%n", display(sub.folder()) + "/", sub.files(), sub.folders());
+        }
+    }
+
+    private static void showNameIndexStats() {
+        FileNameIndex index = FileNameIndex.covering(resolvePath("."));
+        if (index == null) {
+            System.out.println("🗂️ No file name index here yet; \"list all files\" builds one.");
+            return;
+        }
+        FileNameIndex.Stats stats = index.stats();
+        System.out.printf("🗂️ Name index for %s: %,d files, %,d folders, %,d distinct names, %,d trigrams, %,d extensions%n",
+                index.root(), stats.files(), stats.folders(), stats.names(), stats.trigrams(), stats.extensions());
+        System.out.println("   ~" + formatBytes(stats.bytes()) + " of heap, ~" + stats.bytesPerFile() + " bytes per file");
+    }
+
+    private static void printHits(String icon, String what, FileNameIndex.Hits hits, Path folder) {
+        System.out.printf("%s %,d %s under %s (%.1f ms)%n", icon, hits.total(), what, display(folder), hits.elapsedMillis());
+        for (Path p : hits.paths()) {
+            System.out.println("  " + display(p));
+        }
+        if (hits.total() > hits.paths().size()) {
+            System.out.printf("  … and %,d more (add \"top N\" to see more)%n", hits.total() - hits.paths().size());
+        }
+    }
+
+    // Relative to the working directory when inside it
+    private static String display(Path p) {
+        Path cwd = resolvePath(".").toAbsolutePath().normalize();
+        if (p.equals(cwd)) return ".";
+        return p.startsWith(cwd) ? cwd.relativize(p).toString() : p.toString();
+    }
     
     private static void scheduleTask(String input) {
-        // Simple scheduling - just run after 10 seconds for demo
-        System.out.println("⏲️ Task scheduled to run in 10 sec(s).");
-        scheduler.schedule(() -> {
-            System.out.println("⏲️ Scheduled task executed: " + input);
-        }, 10, TimeUnit.SECONDS);
-    }
+        String rest = input.substring(9).trim();
+        String lower = rest.toLowerCase();
 
-    private static void runCommand(String cmd) {
+        if (lower.equals("list")) {
+            if (JobScheduler.jobs().isEmpty()) {
+                System.out.println("⏲️ No scheduled jobs.");
+                return;
+            }
+            System.out.println("⏲️ Scheduled jobs:");
+            for (JobScheduler.Job job : JobScheduler.jobs()) {
+                List<JobScheduler.Run> history = job.history();
+                String last = history.isEmpty() ? "never run"
+                        : "last exit " + history.get(history.size() - 1).exitCode();
+                System.out.println("  " + job.id() + ". [" + job.describe() + "] " + job.command()
+                        + " → next " + job.nextRun() + " (" + last + ")");
+            }
+            return;
+        }
+
+        if (lower.startsWith("cancel ")) {
+            String id = rest.substring(7).trim();
+            if (id.matches("\\d+") && JobScheduler.cancel(Integer.parseInt(id))) {
+                System.out.println("🗑️ Cancelled job " + id);
+            } else {
+                System.out.println("❌ No job " + id);
+            }
+            return;
+        }
+
+        if (lower.startsWith("history ")) {
+            String id = rest.substring(8).trim();
+            JobScheduler.Job job = id.matches("\\d+") ? JobScheduler.job(Integer.parseInt(id)) : null;
+            if (job == null) {
+                System.out.println("❌ No job " + id);
+                return;
+            }
+            System.out.println("⏲️ History for job " + id + ":");
+            for (JobScheduler.Run run : job.history()) {
+                System.out.println("  " + run.scheduledFor() + " · started +" + run.startDelayMillis() + " ms · took "
+                        + run.durationMillis() + " ms · exit " + run.exitCode() + (run.timedOut() ? " (timed out)" : ""));
+            }
+            return;
+        }
+
+        // schedule <when> run <command>
+        int split = lower.indexOf(" run ");
+        if (split < 0) {
+            System.out.println("❌ Usage: schedule <when> run <command>   e.g. schedule every day at 02:00 run tar czf backup.tgz docs");
+            System.out.println("   <when>: every N minutes | every hour | every day at HH:MM | every monday at HH:MM");
+            System.out.println("           cron <m h dom mon dow> | in N minutes | at HH:MM");
+            return;
+        }
+        String when = rest.substring(0, split).trim();
+        String cmd = rest.substring(split + 5).trim();
         if (isDangerousCommand(cmd)) {
             System.out.println("❌ Dangerous command! Blocked.");
             return;
         }
 
         try {
-            Process p = new ProcessBuilder("/bin/zsh", "-c", cmd)
-                .redirectErrorStream(true)
-                .start();
+            JobScheduler.Job job = JobScheduler.add(when, cmd);
+            System.out.println("⏲️ Job " + job.id() + " scheduled [" + job.describe() + "], next run at " + job.nextRun());
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    // The command in "schedule <when> run <command>", or "" for list, cancel and history
+    private static String scheduledCommand(CommandRouter.Match m) {
+        int split = m.lower().indexOf(" run ");
+        return split < 0 ? "" : m.input().substring(split + 5).trim();
+    }
+
+    private static void runCommand(String cmd) {
+        if (isDangerousCommand(cmd)) {
+            System.out.println("❌ Dangerous command! Blocked.");
+            return;
+        }
 
-            p.waitFor();
+        System.out.println("\n🖥️ Output:");
+        ProcessRunner.Result result = ProcessRunner.run(cmd);
+        System.out.println(result.summary());
+    }
 
-            System.out.println("\n🖥️ Output:Successfully Executed");
-            p.getInputStream().transferTo(System.out);
+    // "parallel: cmd1 ;; cmd2" runs every command at once with tagged output
+    private static void runParallel(String input) {
+        List<String> cmds = new ArrayList<>();
+        for (String part : input.substring(input.indexOf(':') + 1).split(";;")) {
+            String cmd = part.trim();
+            if (cmd.isEmpty()) continue;
+            if (isDangerousCommand(cmd)) {
+                System.out.println("❌ Dangerous command! Blocked: " + cmd);
+                return;
+            }
+            cmds.add(cmd);
+        }
 
-        } catch (Exception e) {
-            System.out.println("❌ Error running command: " + e.getMessage());
+        System.out.println("\n🖥️ Output:");
+        List<ProcessRunner.Result> results = ProcessRunner.runAll(cmds, null);
+        for (int i = 0; i < results.size(); i++) {
+            System.out.println("[" + (i + 1) + "] " + cmds.get(i) + " → " + results.get(i).summary());
         }
     }
 
@@ -403,6 +710,8 @@ public class AI_CLI_Assistant {
         System.out.println(" 12. Search by file type");
         System.out.println(" 13. Show file details");
         System.out.println(" 14. Count files in folder");
+        System.out.println("     (list all files / search by file type pdf / find files named *.log / count files in src");
+        System.out.println("      are answered instantly from an in-memory name index; \"file index stats\" shows its size)");
         
         System.out.println("\n=== System Information ===");
         System.out.println("  1. Show disk usage");
@@ -441,161 +750,123 @@ public class AI_CLI_Assistant {
         System.out.println("=".repeat(60) + "\n");
     }
 
-    private static String buildPrompt(String input) {
-        return """
-            You are a macOS terminal assistant with access to 40+ commands.
-            Convert the user instruction into a SAFE shell command.
-            Only return the shell command, nothing else.
-            
-            Available capabilities:
-            - File operations: create, delete, rename, move, copy files/folders
-            - System info: CPU, RAM, disk usage, processes
-            - File search and listing
-            - Process management
-            
-            User: """ + input;
-    }
-
-    // Cache HttpClient and ObjectMapper for performance
-    private static HttpClient httpClient = null;
-    private static ObjectMapper mapper = new ObjectMapper();
-    
-    // Cache working combination for speed (tries once, then uses cached)
-    private static String cachedApiVersion = null;
-    private static String cachedModel = null;
-    
-    // Helper method to list available models (for debugging)
-    private static void listAvailableModels() {
-        try {
-            if (httpClient == null) {
-                SSLContext sslContext = SSLUtil.getSSLContext();
-                HttpClient.Builder clientBuilder = HttpClient.newBuilder();
-                if (sslContext != null) {
-                    clientBuilder.sslContext(sslContext);
+    // Built on first use and reused for every request
+    private static LlmBackend backend = null;
+    private static FakeGeminiServer fakeServer = null;
+
+    // LLM_BACKEND in .env picks the backend: gemini (default), local (offline rules)
+    // or fake (GeminiClient against an embedded stand-in, for load tests)
+    private static synchronized LlmBackend backend() {
+        if (backend == null) {
+            switch (backendKind()) {
+                case "local" -> backend = new LocalBackend();
+                case "fake" -> {
+                    try {
+                        fakeServer = FakeGeminiServer.start(0,
+                                Long.parseLong(dotenv.get("FAKE_LATENCY_MS", "0")),
+                                Double.parseDouble(dotenv.get("FAKE_ERROR_RATE", "0")));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    backend = new GeminiClient(API_KEY != null ? API_KEY : "fake", fakeServer.baseUrl(), rateLimit());
                 }
-                httpClient = clientBuilder.build();
+                default -> backend = new GeminiClient(API_KEY, dotenv.get("GEMINI_BASE_URL", GeminiClient.DEFAULT_BASE_URL), rateLimit());
             }
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://generativelanguage.googleapis.com/v1beta/models?key=" + API_KEY))
-                    .timeout(java.time.Duration.ofSeconds(5))
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            System.out.println("\n📋 Available Models:");
-            System.out.println(response.body());
-        } catch (Exception e) {
-            // Silently fail - this is just for debugging
         }
+        return backend;
     }
 
+    // MODEL_REQUESTS_PER_MINUTE (unset or 0: no limit) and MODEL_BURST size the client-side rate limit
+    private static TokenBucket rateLimit() {
+        try {
+            return TokenBucket.perMinute(Double.parseDouble(dotenv.get("MODEL_REQUESTS_PER_MINUTE", "0").trim()),
+                    Integer.parseInt(dotenv.get("MODEL_BURST", "5").trim()));
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ Rate limit disabled: " + e.getMessage());
+            return TokenBucket.unlimited();
+        }
+    }
+
+    // "gemini" unless LLM_BACKEND names one of the stand-ins; also scopes the command cache
+    private static String backendKind() {
+        String kind = dotenv.get("LLM_BACKEND", "gemini").trim().toLowerCase();
+        return kind.equals("local") || kind.equals("fake") ? kind : "gemini";
+    }
+
+    private static boolean needsApiKey() {
+        return backendKind().equals("gemini");
+    }
+    
+    private static final Metrics.Timer TRANSLATE_CACHED = Metrics.timer("command_translate_seconds",
+            "Time from a question to its shell command", "source", "cache");
+    private static final Metrics.Timer TRANSLATE_MODEL = Metrics.timer("command_translate_seconds",
+            "Time from a question to its shell command", "source", "model");
+
+    // Cached translations skip the model round trip entirely
     private static String getCommand(String userInput) {
-        SSLContext sslContext = SSLUtil.getSSLContext();
+        long start = TRANSLATE_CACHED.start();
+        String cached = CommandCache.get(backendKind(), userInput);
+        if (cached != null) {
+            TRANSLATE_CACHED.stop(start);
+            return cached;
+        }
 
-        // Initialize HttpClient once and reuse it
-        if (httpClient == null) {
-            HttpClient.Builder clientBuilder = HttpClient.newBuilder();
-            if (sslContext != null) {
-                clientBuilder.sslContext(sslContext);
-            }
-            httpClient = clientBuilder.build();
-        }
-
-        // Try cached combination first, then try available models from the API
-        // Using models that actually exist and support generateContent
-        String[][] combinations = cachedApiVersion != null ? 
-            new String[][]{{cachedApiVersion, cachedModel}} :
-            new String[][]{
-                {"v1beta", "gemini-2.5-flash"},
-                {"v1beta", "gemini-2.0-flash-001"},
-                {"v1beta", "gemini-2.0-flash"},
-                {"v1beta", "gemini-flash-latest"},
-                {"v1beta", "gemini-pro-latest"},
-                {"v1beta", "gemini-2.5-pro"},
-                {"v1", "gemini-2.5-flash"},
-                {"v1", "gemini-2.0-flash-001"}
-            };
+        String cmd = fetchCommand(userInput);
+        if (cmd != null && !cmd.isEmpty()) {
+            TRANSLATE_MODEL.stop(start);
+            CommandCache.put(backendKind(), userInput, cmd);
+        }
+        return cmd;
+    }
 
-        String lastError = null;
-        for (String[] combo : combinations) {
-            String apiVersion = combo[0];
-            String model = combo[1];
-            
-            try {
-                // Build request body
-                java.util.Map<String, Object> part = new java.util.HashMap<>();
-                part.put("text", buildPrompt(userInput));
-                java.util.List<java.util.Map<String, Object>> parts = new java.util.ArrayList<>();
-                parts.add(part);
-                java.util.Map<String, Object> content = new java.util.HashMap<>();
-                content.put("parts", parts);
-                java.util.List<java.util.Map<String, Object>> contentsList = new java.util.ArrayList<>();
-                contentsList.add(content);
-                java.util.Map<String, Object> requestBody = new java.util.HashMap<>();
-                requestBody.put("contents", contentsList);
-                String jsonBody = mapper.writeValueAsString(requestBody);
-
-                // Try with API key in query parameter (most common for Gemini API)
-                String uri = "https://generativelanguage.googleapis.com/" + apiVersion + "/models/" + model + ":generateContent?key=" + API_KEY;
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(uri))
-                        .header("Content-Type", "application/json")
-                        .timeout(java.time.Duration.ofSeconds(5))
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-                JsonNode jsonNode = mapper.readTree(response.body());
-                
-                // Check for errors
-                if (jsonNode.has("error")) {
-                    String errorMsg = jsonNode.path("error").path("message").asText();
-                    lastError = errorMsg;
-                    if (cachedApiVersion == null) {
-                        continue; // Try next combination
-                    } else {
-                        System.out.println("⚠️ API Error: " + errorMsg);
-                        return null;
-                    }
-                }
+    // Streaming shows the command as it is generated; toggled with "stream on/off"
+    private static boolean streaming = true;
+    // Set when fetchCommand already printed the suggestion while streaming; per thread for daemon sessions
+    private static final ThreadLocal<Boolean> commandShown = ThreadLocal.withInitial(() -> false);
 
-                JsonNode candidates = jsonNode.path("candidates");
-                if (candidates.isArray() && candidates.size() > 0) {
-                    JsonNode candidateNode = candidates.get(0);
-                    JsonNode contentNode = candidateNode.path("content");
-                    JsonNode partsNode = contentNode.path("parts");
-                    if (partsNode.isArray() && partsNode.size() > 0) {
-                        String cmd = partsNode.get(0).path("text").asText().trim();
-                        if (!cmd.isEmpty() && !cmd.startsWith("Error")) {
-                            // Cache the working combination
-                            cachedApiVersion = apiVersion;
-                            cachedModel = model;
-                            return cmd.replace("```", "").replace("```bash", "").replace("```sh", "").trim();
-                        }
-                    }
-                }
+    // ``` fences, with the language tag when one sits on the fence line
+    private static final Pattern FENCE = Pattern.compile("```(?:[\\w+-]*[ \\t]*\\r?\\n)?");
+
+    // Strips the markdown models wrap around a command: fences and `inline code` quotes
+    private static String cleanCommand(String text) {
+        String cmd = FENCE.matcher(text).replaceAll("").trim();
+        while (cmd.length() >= 2 && cmd.startsWith("`") && cmd.endsWith("`")) {
+            cmd = cmd.substring(1, cmd.length() - 1).trim();
+        }
+        return cmd;
+    }
 
-            } catch (Exception e) {
-                lastError = e.getMessage();
-                if (cachedApiVersion == null) {
-                    continue; // Try next combination
-                } else {
-                    System.out.println("⚠️ Error: " + e.getMessage());
-                    return null;
+    private static String fetchCommand(String userInput) {
+        LlmBackend client = backend();
+
+        if (streaming) {
+            AtomicBoolean started = new AtomicBoolean(false);
+            LlmBackend.StreamResult result = client.stream(userInput, token -> {
+                if (started.compareAndSet(false, true)) {
+                    System.out.println("\n🔧 Suggested Command:");
                 }
+                System.out.print(token.replace("`", ""));
+                System.out.flush();
+            });
+            if (result != null) {
+                System.out.println("\n⏱️ First token " + result.firstTokenMillis() + " ms · total " + result.totalMillis() + " ms");
+                commandShown.set(true);
+                return cleanCommand(result.text());
+            }
+            if (started.get()) {
+                System.out.println("\n⚠️ Stream interrupted, retrying without streaming...");
             }
         }
 
+        String cmd = client.generate(userInput);
+        if (cmd != null) {
+            return cleanCommand(cmd);
+        }
+
         // Show the last error to help debug
-        if (lastError != null) {
-            System.out.println("❌ All models failed. Last error: " + lastError);
-            // Try to list available models to help debug
-            if (cachedApiVersion == null) {
-                System.out.println("\n🔍 Attempting to list available models...");
-                listAvailableModels();
-            }
+        if (client.lastError() != null) {
+            System.out.println("❌ All models failed. Last error: " + client.lastError());
+            client.listModels();
         } else {
             System.out.println("❌ All models failed. Please check your API key and model availability.");
         }
@@ -603,54 +874,249 @@ public class AI_CLI_Assistant {
     }
     
 
-    public static void main(String[] args) {
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newScheduledThreadPool(2, r -> {
+                Thread t = new Thread(r, "scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return scheduler;
+    }
 
-        if (API_KEY == null) {
-            System.out.println("❌ Missing GEMINI_API_KEY in .env");
+    /*
+     * Work the prompt does not need, started once it is on screen: the system
+     * sampler and the model backend, which opens its connection now so the first
+     * question skips the TLS and HTTP/2 handshakes. Whatever is still in flight when
+     * the user answers just finishes first; direct commands fall back to shell tools
+     * until the first sample exists.
+     */
+    private static void warmUpInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                ResourceMonitor.start();
+                SystemMetrics.start(scheduler());
+                LlmBackend llm;
+                synchronized (AI_CLI_Assistant.class) {
+                    // "exit" came first; a fake backend started now would outlive shutdown
+                    if (stopped) return;
+                    llm = backend();
+                }
+                llm.warmUp();
+            } catch (RuntimeException e) {
+                // The request that needs the backend reports the failure
+            }
+        }, "warm-up");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // METRICS=off stops recording; METRICS_FILE (with METRICS_FORMAT and
+    // METRICS_INTERVAL_SECONDS) rewrites a Prometheus or JSON dump on an interval
+    private static void startMetrics() {
+        Metrics.setEnabled(!dotenv.get("METRICS", "on").trim().equalsIgnoreCase("off"));
+        String file = dotenv.get("METRICS_FILE");
+        if (file == null || file.isBlank()) return;
+        Path target = Paths.get(file.trim().replaceFirst("^~", System.getProperty("user.home")));
+        try {
+            MetricsExporter.start(scheduler(), target, MetricsExporter.parseFormat(dotenv.get("METRICS_FORMAT"), target),
+                    Long.parseLong(dotenv.get("METRICS_INTERVAL_SECONDS", "15").trim()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("⚠️ Metrics export disabled: " + e.getMessage());
+        }
+    }
+
+    // --batch [file] [--concurrency N] [--allow prog,route-key,...]: JSON lines in input order, no prompts
+    private static int runBatch(String[] args) throws IOException {
+        String file = null;
+        int concurrency = 8;
+        String allow = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--allow" -> allow = args[++i];
+                default -> file = args[i];
+            }
+        }
+
+        // Results own stdout; banners and warnings from the rest of the app go to stderr
+        PrintStream results = System.out;
+        System.setOut(System.err);
+        SystemMetrics.start(scheduler());
+        startMetrics();
+
+        BatchRunner runner = new BatchRunner(backend(), backendKind(), ROUTER, AI_CLI_Assistant::runDirect,
+                AI_CLI_Assistant::cleanCommand, AI_CLI_Assistant::isDangerousCommand,
+                concurrency, BatchRunner.parseAllowlist(allow));
+        try (BufferedReader in = file == null || file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            return runner.run(in, results);
+        } finally {
+            shutdown();
+        }
+    }
+
+    // Everything a prompt line can do; in supplies answers to follow-up questions
+    private static void handleInput(String input, BufferedReader in) throws IOException {
+        if (input.equalsIgnoreCase("help")) {
+            showHelp();
             return;
         }
 
-        System.out.println("🤖 AI CLI Assistant (Java HTTP Version)");
+        if (input.equalsIgnoreCase("stats")) {
+            CommandCache.printStats();
+            Metrics.printStats();
+            return;
+        }
 
-        Scanner sc = new Scanner(System.in);
+        if (input.equalsIgnoreCase("stats json") || input.equalsIgnoreCase("stats prometheus")) {
+            System.out.println(MetricsExporter.render(input.toLowerCase().endsWith("json")
+                    ? MetricsExporter.Format.JSON : MetricsExporter.Format.PROMETHEUS));
+            return;
+        }
 
-        while (true) {
-            System.out.print("\n🧠 Ask something (or type 'exit' or 'help'): ");
-            String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("metrics on") || input.equalsIgnoreCase("metrics off")) {
+            Metrics.setEnabled(input.equalsIgnoreCase("metrics on"));
+            System.out.println("📈 Metrics " + (Metrics.enabled() ? "enabled" : "disabled"));
+            return;
+        }
 
-            if (input.equalsIgnoreCase("exit")) {
-                System.out.println("👋 Bye my friend!");
-                scheduler.shutdown();
-                break;
-            }
-            
-            if (input.equalsIgnoreCase("help")) {
-                showHelp();
-                continue;
-            }
-            
-            // Try direct command handling first
-            if (handleDirectCommand(input)) {
-                continue;
-            }
+        if (input.equalsIgnoreCase("backend")) {
+            System.out.println("🔌 Backend: " + backend().name());
+            return;
+        }
 
-            // Otherwise, use AI to generate command
-            String cmd = getCommand(input);
+        if (input.equalsIgnoreCase("clear cache")) {
+            CommandCache.clear();
+            System.out.println("🗃️ Command cache cleared.");
+            return;
+        }
 
-            if (cmd == null || cmd.isEmpty()) {
-                System.out.println("⚠️ Invalid command generated.");
-                continue;
-            }
+        // Try direct command handling first
+        if (handleDirectCommand(input)) {
+            return;
+        }
 
+        if (input.equalsIgnoreCase("stream on") || input.equalsIgnoreCase("stream off")) {
+            streaming = input.equalsIgnoreCase("stream on");
+            System.out.println("📡 Streaming " + (streaming ? "enabled" : "disabled"));
+            return;
+        }
+
+        // Otherwise, use AI to generate command
+        commandShown.set(false);
+        String cmd = getCommand(input);
+
+        if (cmd == null || cmd.isEmpty()) {
+            System.out.println("⚠️ Invalid command generated.");
+            return;
+        }
+
+        if (!commandShown.get()) {
             System.out.println("\n🔧 Suggested Command:");
             System.out.println(cmd);
+        } else {
+            // The streamed text was only a preview; this is exactly what "yes" runs
+            System.out.println("🔧 Command to run: " + cmd);
+        }
+
+        System.out.print("Run this command? (yes/no): ");
+        System.out.flush();
+        String answer = in.readLine();
+        if (answer != null && answer.trim().equalsIgnoreCase("yes")) {
+            runCommand(cmd);
+        }
+    }
+
+    // Runs once, from "exit", the end of the daemon or the JVM shutdown hook (Ctrl-C, SIGTERM)
+    private static void shutdown() {
+        synchronized (AI_CLI_Assistant.class) {
+            if (stopped) return;
+            stopped = true;
+        }
+        MetricsExporter.dump();
+        synchronized (AI_CLI_Assistant.class) {
+            if (scheduler != null) scheduler.shutdown();
+            if (fakeServer != null) fakeServer.stop();
+        }
+        FileIndexWatcher.shutdown();
+        FileNameIndexWatcher.shutdown();
+        JobScheduler.shutdown();
+    }
+
+    // --daemon [socket]: serve requests from DaemonClient (or nc -U) until one sends :stop
+    private static void runDaemon(String[] args) throws IOException {
+        Path socket = args.length > 1 ? Paths.get(args[1])
+                : Paths.get(dotenv.get("AI_DAEMON_SOCKET", Daemon.DEFAULT_SOCKET.toString()).trim()
+                        .replaceFirst("^~", System.getProperty("user.home")));
+        ResourceMonitor.start();
+        SystemMetrics.start(scheduler());
+        startMetrics();
+        JobScheduler.start();
+        backend().warmUp();
+        try {
+            Daemon.serve(socket, (request, in) -> handleInput(request, in));
+        } finally {
+            shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
 
-            System.out.print("Run this command? (yes/no): ");
-            if (sc.nextLine().trim().equalsIgnoreCase("yes")) {
-                runCommand(cmd);
+        if (API_KEY == null && needsApiKey()) {
+            System.out.println("❌ Missing GEMINI_API_KEY in .env");
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            try {
+                System.exit(runBatch(args) == 0 ? 0 : 1);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("❌ Batch failed: " + e.getMessage());
+                System.exit(2);
             }
         }
 
-        sc.close();
+        Runtime.getRuntime().addShutdownHook(new Thread(AI_CLI_Assistant::shutdown, "shutdown"));
+
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            try {
+                runDaemon(args);
+                System.exit(0);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("❌ Daemon failed: " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        System.out.println("🤖 AI CLI Assistant (Java HTTP Version)");
+        startMetrics();
+        JobScheduler.start();
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        boolean first = true;
+        while (true) {
+            System.out.print("\n🧠 Ask something (or type 'exit' or 'help'): ");
+            if (first) {
+                first = false;
+                warmUpInBackground();
+            }
+            String input;
+            try {
+                input = in.readLine();
+                if (input != null && !input.trim().equalsIgnoreCase("exit")) {
+                    handleInput(input.trim(), in);
+                    continue;
+                }
+            } catch (IOException e) {
+                System.out.println("❌ Could not read input: " + e.getMessage());
+            }
+            System.out.println("👋 Bye my friend!");
+            shutdown();
+            break;
+        }
     }
 }
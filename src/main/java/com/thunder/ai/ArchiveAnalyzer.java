@@ -0,0 +1,76 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Cold, compressible files: not modified or read since the cutoff, big enough to be
+ * worth it and not already in a compressed format. The report deflates a few
+ * samples of the largest candidates and extrapolates what archiving would save.
+ */
+public class ArchiveAnalyzer implements FileAnalyzer {
+
+    private static final long MIN_BYTES = 4 * 1024;
+    private static final int SAMPLED = 20;
+
+    private final long cutoffMillis;
+    private final int limit;
+    private final TopK<Path> largest = new TopK<>(SAMPLED);
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public ArchiveAnalyzer(long cutoffMillis) {
+        this(cutoffMillis, 10);
+    }
+
+    public ArchiveAnalyzer(long cutoffMillis, int limit) {
+        this.cutoffMillis = cutoffMillis;
+        this.limit = Math.min(limit, SAMPLED);
+    }
+
+    @Override
+    public void onFile(Path file, BasicFileAttributes attrs) {
+        long lastUsed = Math.max(attrs.lastModifiedTime().toMillis(), attrs.lastAccessTime().toMillis());
+        if (lastUsed < cutoffMillis && attrs.size() >= MIN_BYTES && !Archiver.isCompressed(file)) {
+            matches.increment();
+            bytes.add(attrs.size());
+            largest.offer(attrs.size(), file);
+        }
+    }
+
+    @Override
+    public void report() {
+        if (matches.sum() == 0) {
+            System.out.println("📦 Archive candidates: None");
+            return;
+        }
+
+        List<TopK.Entry<Path>> sampled = largest.sortedDescending();
+        long sampledBytes = 0;
+        long sampledSaving = 0;
+        System.out.println("📦 Archive candidates: " + matches.sum() + " files (" + (bytes.sum() / 1024 / 1024) + " MB)");
+        for (int i = 0; i < sampled.size(); i++) {
+            TopK.Entry<Path> e = sampled.get(i);
+            double ratio;
+            try {
+                ratio = Archiver.sampleRatio(e.item(), e.key());
+            } catch (IOException ex) {
+                continue;
+            }
+            sampledBytes += e.key();
+            sampledSaving += (long) (e.key() * (1 - ratio));
+            if (i < limit) {
+                System.out.printf("  - %s (%d MB, ~%.0f%% of size when zipped)%n", e.item(), e.key() / 1024 / 1024, ratio * 100);
+            }
+        }
+        if (sampledBytes == 0) return;
+
+        // The rest are assumed to compress like the sampled ones, weighted by size
+        long estimate = (long) (sampledSaving * ((double) bytes.sum() / sampledBytes));
+        System.out.println("💡 Compressing them would save about " + (estimate / 1024 / 1024) + " MB (sampled "
+                + sampled.size() + " largest); try: compress " + sampled.get(0).item());
+    }
+}
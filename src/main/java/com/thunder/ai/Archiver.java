@@ -0,0 +1,684 @@
+package com.thunder.ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * In-JVM zip and gzip writer with pigz-style parallel compression. Input is read
+ * in 128 KB blocks; each block is deflated on its own worker, primed with the last
+ * 32 KB of the block before it as a dictionary so the ratio stays close to a
+ * single-threaded deflate, and ends on a sync flush so the blocks concatenate into
+ * one valid deflate stream. Blocks are written strictly in order by the calling
+ * thread, with at most a fixed window of them in flight, so memory stays bounded
+ * whatever the size of the input. Files in formats that are already compressed are
+ * stored as they are.
+ *
+ * Zip output is standard (Zip64 when an entry, the archive or the entry count
+ * needs it): local headers are patched in place once an entry's CRC and sizes are
+ * known, so no data descriptors are needed.
+ */
+public class Archiver {
+
+    public enum Format { ZIP, GZIP }
+
+    public record Result(Path output, long files, long directories, long bytesIn, long bytesOut,
+                         List<FileOperations.Failure> failures, long elapsedNanos) {
+
+        // Compressed size as a fraction of the input
+        public double ratio() {
+            return bytesIn == 0 ? 1 : (double) bytesOut / bytesIn;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytesIn / 1024.0 / 1024.0 * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+
+    private static final int BLOCK = 128 * 1024;
+    private static final int DICTIONARY = 32 * 1024;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Blocks read ahead of the writer; bounds memory to about WINDOW * 2 * BLOCK
+    private static final int WINDOW = THREADS * 4;
+    private static final long PROGRESS_MILLIS = 1000;
+    private static final int SAMPLE = 64 * 1024;
+    // Entries from here on get Zip64 sizes up front; the gap to 4 GB covers deflate overhead
+    private static final long ZIP64_THRESHOLD = 0xF0000000L;
+
+    // Extensions whose content is already compressed; deflating them again only burns CPU
+    private static final Set<String> COMPRESSED = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar", "war", "apk", "dmg", "iso",
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+            "mp3", "m4a", "aac", "ogg", "flac", "mp4", "m4v", "mov", "mkv", "avi", "webm",
+            "pdf", "docx", "xlsx", "pptx", "odt", "epub", "woff", "woff2");
+
+    private static final ThreadLocal<Deflater> DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private static final Metrics.Timer[] TIMERS = {
+            Metrics.timer("archive_seconds", "Wall time of one archive", "format", "zip"),
+            Metrics.timer("archive_seconds", "Wall time of one archive", "format", "gzip")};
+    private static final Metrics.Counter BYTES_IN = Metrics.counter("archive_bytes_in_total", "Bytes read into archives");
+    private static final Metrics.Counter BYTES_OUT = Metrics.counter("archive_bytes_out_total", "Bytes written to archives");
+
+    public static boolean isCompressed(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && COMPRESSED.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // Archives a file or a whole folder into a zip; entries are named relative to source's parent
+    public static Result zip(Path source, Path output, FileOperations.ProgressListener listener) throws IOException {
+        Path partial = output.resolveSibling(output.getFileName() + ".partial");
+        Path base = source.toAbsolutePath().normalize().getParent();
+        Path skipOutput = output.toAbsolutePath().normalize();
+        Path skipPartial = partial.toAbsolutePath().normalize();
+
+        try (Pipeline pipeline = new Pipeline(new ZipSink(FileChannel.open(partial,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), listener)) {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    pipeline.addDirectory(dir, entryName(base, dir) + "/", attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path absolute = file.toAbsolutePath().normalize();
+                    // compress . puts the archive inside the tree being archived
+                    if (absolute.equals(skipOutput) || absolute.equals(skipPartial)) return FileVisitResult.CONTINUE;
+                    pipeline.addFile(file, entryName(base, file), attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    pipeline.fail(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            pipeline.finish();
+            Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return pipeline.result(output, Format.ZIP);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    // Compresses one regular file into a gzip stream
+    public static Result gzip(Path source, Path output, FileOperations.ProgressListener listener) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        if (!attrs.isRegularFile()) throw new IOException("Not a regular file: " + source);
+        Path partial = output.resolveSibling(output.getFileName() + ".partial");
+        try (Pipeline pipeline = new Pipeline(new GzipSink(FileChannel.open(partial,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), listener)) {
+            pipeline.addFile(source, source.getFileName().toString(), attrs);
+            pipeline.finish();
+            if (!pipeline.failures.isEmpty()) throw new IOException(pipeline.failures.get(0).message());
+            Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return pipeline.result(output, Format.GZIP);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /*
+     * Deflated size over original size for up to three samples of the file (start,
+     * middle, end), as an estimate of what compressing all of it would achieve.
+     */
+    public static double sampleRatio(Path file, long size) throws IOException {
+        if (isCompressed(file) || size == 0) return 1;
+        long[] offsets = size <= 3L * SAMPLE ? new long[] {0} : new long[] {0, size / 2 - SAMPLE / 2, size - SAMPLE};
+        byte[] buffer = new byte[(int) Math.min(size, 3L * SAMPLE)];
+        byte[] out = new byte[buffer.length + 64];
+        long in = 0;
+        long compressed = 0;
+        Deflater deflater = DEFLATERS.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long offset : offsets) {
+                int want = offsets.length == 1 ? buffer.length : SAMPLE;
+                int n = readFully(channel, ByteBuffer.wrap(buffer, 0, want), offset);
+                if (n <= 0) continue;
+                deflater.reset();
+                deflater.setInput(buffer, 0, n);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed += deflater.deflate(out);
+                }
+                in += n;
+            }
+        }
+        return in == 0 ? 1 : Math.min(1, (double) compressed / in);
+    }
+
+    private static String entryName(Path base, Path path) {
+        Path relative = base == null ? path.toAbsolutePath().normalize() : base.relativize(path.toAbsolutePath().normalize());
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    // One archive member as the sink sees it; sizes and CRC are filled in as it streams
+    private static final class Entry {
+        final String name;
+        final int mode;
+        final long mtime;
+        final boolean stored;
+        final boolean zip64;
+        long crc;
+        long size;
+        long compressed;
+        long headerOffset;
+
+        Entry(String name, int mode, long mtime, boolean stored, boolean zip64) {
+            this.name = name;
+            this.mode = mode;
+            this.mtime = mtime;
+            this.stored = stored;
+            this.zip64 = zip64;
+        }
+    }
+
+    private interface Sink extends Closeable {
+        void begin(Entry entry) throws IOException;
+
+        void write(Entry entry, byte[] data, int length) throws IOException;
+
+        void end(Entry entry) throws IOException;
+
+        // Called once after the last entry
+        void finish() throws IOException;
+
+        // Whether raw blocks can be written for already-compressed files; a gzip member is always deflate data
+        default boolean canStore() {
+            return true;
+        }
+    }
+
+    private record Chunk(byte[] data, int length) {}
+
+    // Writer-side work in archive order: headers, compressed blocks, trailers
+    private interface Step {
+        void run() throws IOException, InterruptedException, ExecutionException;
+    }
+
+    // block is set for steps that hold a block buffer, which is what the window counts
+    private record Pending(Step step, boolean block) {}
+
+    /*
+     * Reads on the calling thread, deflates on the pool and writes on the calling
+     * thread again, in order. Every block read adds a step; once WINDOW blocks are
+     * queued the oldest steps are written out before reading on.
+     */
+    private static final class Pipeline implements Closeable {
+        private final Sink sink;
+        private final FileOperations.ProgressListener listener;
+        private final ExecutorService pool;
+        private final Deque<Pending> steps = new ArrayDeque<>();
+        private final List<FileOperations.Failure> failures = new ArrayList<>();
+        private final long start = System.nanoTime();
+        private long lastProgress = start;
+        private int blocksQueued = 0;
+        private long files = 0;
+        private long directories = 0;
+        private long bytesIn = 0;
+
+        Pipeline(Sink sink, FileOperations.ProgressListener listener) {
+            this.sink = sink;
+            this.listener = listener;
+            this.pool = Executors.newFixedThreadPool(THREADS, r -> {
+                Thread t = new Thread(r, "archiver");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void fail(Path path, IOException e) {
+            failures.add(new FileOperations.Failure(path, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        }
+
+        void addDirectory(Path dir, String name, BasicFileAttributes attrs) throws IOException {
+            Entry entry = new Entry(name, 040000 | permissions(dir, 0755), attrs.lastModifiedTime().toMillis(), true, false);
+            enqueue(() -> {
+                sink.begin(entry);
+                sink.end(entry);
+            });
+            directories++;
+            drain(WINDOW);
+        }
+
+        void addFile(Path file, String name, BasicFileAttributes attrs) throws IOException {
+            if (attrs.isSymbolicLink()) {
+                addSymlink(file, name, attrs);
+                return;
+            }
+            if (!attrs.isRegularFile()) return;
+
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException e) {
+                // Skipped before anything of it is written, so the archive stays consistent
+                fail(file, e);
+                return;
+            }
+
+            boolean zip64 = attrs.size() >= ZIP64_THRESHOLD;
+            Entry entry = new Entry(name, 0100000 | permissions(file, 0644), attrs.lastModifiedTime().toMillis(),
+                    isCompressed(file) && sink.canStore(), zip64);
+            enqueue(() -> sink.begin(entry));
+
+            CRC32 crc = new CRC32();
+            long size = 0;
+            byte[] previous = null;
+            int previousLength = 0;
+            try (channel) {
+                byte[] block = new byte[BLOCK];
+                int n = readFully(channel, ByteBuffer.wrap(block), 0);
+                while (true) {
+                    // Read one block ahead, so the last block is known when it is submitted
+                    byte[] next = null;
+                    int nextLength = -1;
+                    if (n == BLOCK) {
+                        next = new byte[BLOCK];
+                        nextLength = readFully(channel, ByteBuffer.wrap(next), size + n);
+                    }
+                    boolean last = nextLength <= 0;
+                    int length = Math.max(n, 0);
+                    crc.update(block, 0, length);
+                    size += length;
+                    submit(entry, block, length, previous, previousLength, last);
+                    if (last) break;
+                    previous = block;
+                    previousLength = length;
+                    block = next;
+                    n = nextLength;
+                }
+            }
+            bytesIn += size;
+            if (!zip64 && size >= ZIP64_THRESHOLD) throw new IOException(file + " grew past 4 GB while being archived");
+
+            long finalCrc = crc.getValue();
+            long finalSize = size;
+            enqueue(() -> {
+                entry.crc = finalCrc;
+                entry.size = finalSize;
+                sink.end(entry);
+            });
+            files++;
+            drain(WINDOW);
+        }
+
+        // Stored the way Info-ZIP does: link target as the content, S_IFLNK in the mode
+        private void addSymlink(Path link, String name, BasicFileAttributes attrs) {
+            byte[] target;
+            try {
+                target = Files.readSymbolicLink(link).toString().getBytes(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                fail(link, e);
+                return;
+            }
+            Entry entry = new Entry(name, 0120777, attrs.lastModifiedTime().toMillis(), true, false);
+            CRC32 crc = new CRC32();
+            crc.update(target);
+            enqueue(() -> {
+                sink.begin(entry);
+                sink.write(entry, target, target.length);
+                entry.crc = crc.getValue();
+                entry.size = target.length;
+                sink.end(entry);
+            });
+            files++;
+        }
+
+        private void submit(Entry entry, byte[] block, int length, byte[] dictionary, int dictionaryLength, boolean last)
+                throws IOException {
+            if (entry.stored) {
+                steps.add(new Pending(() -> sink.write(entry, block, length), true));
+            } else {
+                Future<Chunk> chunk = pool.submit(() -> deflate(block, length, dictionary, dictionaryLength, last));
+                steps.add(new Pending(() -> {
+                    Chunk c = chunk.get();
+                    sink.write(entry, c.data(), c.length());
+                }, true));
+            }
+            blocksQueued++;
+            drain(WINDOW);
+        }
+
+        private void enqueue(Step step) {
+            steps.add(new Pending(step, false));
+        }
+
+        // Writes queued steps until no more than `keep` blocks are waiting; keep 0 empties the queue
+        private void drain(int keep) throws IOException {
+            while (blocksQueued > keep || (keep == 0 && !steps.isEmpty())) {
+                Pending pending = steps.poll();
+                try {
+                    pending.step().run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while archiving");
+                } catch (ExecutionException e) {
+                    throw new IOException("Compression failed", e.getCause());
+                }
+                if (pending.block()) blocksQueued--;
+            }
+            long now = System.nanoTime();
+            if (listener != null && now - lastProgress >= PROGRESS_MILLIS * 1_000_000) {
+                lastProgress = now;
+                listener.onProgress(new FileOperations.Progress(files, directories, bytesIn, now - start));
+            }
+        }
+
+        void finish() throws IOException {
+            drain(0);
+            sink.finish();
+        }
+
+        Result result(Path output, Format format) throws IOException {
+            long elapsed = System.nanoTime() - start;
+            long bytesOut = Files.size(output);
+            TIMERS[format.ordinal()].recordNanos(elapsed);
+            BYTES_IN.add(bytesIn);
+            BYTES_OUT.add(bytesOut);
+            return new Result(output, files, directories, bytesIn, bytesOut, List.copyOf(failures), elapsed);
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            sink.close();
+        }
+    }
+
+    // Raw deflate of one block; every block but the last ends on a byte boundary via SYNC_FLUSH
+    private static Chunk deflate(byte[] data, int length, byte[] dictionary, int dictionaryLength, boolean last) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        if (dictionary != null) {
+            int dictLength = Math.min(DICTIONARY, dictionaryLength);
+            deflater.setDictionary(dictionary, dictionaryLength - dictLength, dictLength);
+        }
+        deflater.setInput(data, 0, length);
+        byte[] out = new byte[length + (length >>> 7) + 64];
+        int written = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (written == out.length) out = Arrays.copyOf(out, out.length * 2);
+                written += deflater.deflate(out, written, out.length - written);
+            }
+        } else {
+            while (true) {
+                int n = deflater.deflate(out, written, out.length - written, Deflater.SYNC_FLUSH);
+                written += n;
+                // A full buffer means the flush may not be complete yet
+                if (written < out.length) break;
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+        }
+        return new Chunk(out, written);
+    }
+
+    private static int permissions(Path path, int fallback) {
+        try {
+            int mode = 0;
+            for (PosixFilePermission p : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS)) {
+                mode |= 0400 >> p.ordinal();
+            }
+            return mode;
+        } catch (UnsupportedOperationException | IOException e) {
+            return fallback;
+        }
+    }
+
+    // MS-DOS time and date as stored in zip headers, in local time
+    private static int dosDateTime(long millis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (t.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (t.getYear() - 1980) << 25 | t.getMonthValue() << 21 | t.getDayOfMonth() << 16
+                | t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() >> 1;
+    }
+
+    private static final class ZipSink implements Sink {
+        private static final long MAX32 = 0xFFFFFFFFL;
+
+        private final FileChannel channel;
+        private final List<Entry> written = new ArrayList<>();
+
+        ZipSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void begin(Entry entry) throws IOException {
+            entry.headerOffset = channel.position();
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer b = buffer(30 + name.length + (entry.zip64 ? 20 : 0));
+            b.putInt(0x04034b50);
+            b.putShort((short) (entry.zip64 ? 45 : 20));
+            b.putShort((short) 0x0800); // names are UTF-8
+            b.putShort((short) (entry.stored ? 0 : 8));
+            b.putInt(dosDateTime(entry.mtime));
+            b.putInt(0); // CRC and sizes are patched in end()
+            b.putInt(entry.zip64 ? (int) MAX32 : 0);
+            b.putInt(entry.zip64 ? (int) MAX32 : 0);
+            b.putShort((short) name.length);
+            b.putShort((short) (entry.zip64 ? 20 : 0));
+            b.put(name);
+            if (entry.zip64) {
+                b.putShort((short) 0x0001);
+                b.putShort((short) 16);
+                b.putLong(0);
+                b.putLong(0);
+            }
+            writeAll(b.flip());
+        }
+
+        @Override
+        public void write(Entry entry, byte[] data, int length) throws IOException {
+            writeAll(ByteBuffer.wrap(data, 0, length));
+            entry.compressed += length;
+        }
+
+        @Override
+        public void end(Entry entry) throws IOException {
+            if (!entry.zip64 && entry.compressed >= MAX32) throw new IOException(entry.name + " needs Zip64 sizes");
+            ByteBuffer b = buffer(12);
+            b.putInt((int) entry.crc);
+            b.putInt(entry.zip64 ? (int) MAX32 : (int) entry.compressed);
+            b.putInt(entry.zip64 ? (int) MAX32 : (int) entry.size);
+            writeAt(b.flip(), entry.headerOffset + 14);
+            if (entry.zip64) {
+                ByteBuffer sizes = buffer(16);
+                sizes.putLong(entry.size);
+                sizes.putLong(entry.compressed);
+                int nameLength = entry.name.getBytes(StandardCharsets.UTF_8).length;
+                writeAt(sizes.flip(), entry.headerOffset + 30 + nameLength + 4);
+            }
+            written.add(entry);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            long cdStart = channel.position();
+            for (Entry e : written) {
+                byte[] name = e.name.getBytes(StandardCharsets.UTF_8);
+                boolean bigSizes = e.zip64 || e.compressed >= MAX32 || e.size >= MAX32;
+                boolean bigOffset = e.headerOffset >= MAX32;
+                int extra = (bigSizes ? 16 : 0) + (bigOffset ? 8 : 0);
+                ByteBuffer b = buffer(46 + name.length + (extra > 0 ? 4 + extra : 0));
+                b.putInt(0x02014b50);
+                b.putShort((short) (3 << 8 | 45)); // made by Unix, spec 4.5
+                b.putShort((short) (bigSizes || bigOffset ? 45 : 20));
+                b.putShort((short) 0x0800);
+                b.putShort((short) (e.stored ? 0 : 8));
+                b.putInt(dosDateTime(e.mtime));
+                b.putInt((int) e.crc);
+                b.putInt(bigSizes ? (int) MAX32 : (int) e.compressed);
+                b.putInt(bigSizes ? (int) MAX32 : (int) e.size);
+                b.putShort((short) name.length);
+                b.putShort((short) (extra > 0 ? 4 + extra : 0));
+                b.putShort((short) 0); // comment
+                b.putShort((short) 0); // disk
+                b.putShort((short) 0); // internal attributes
+                b.putInt(e.mode << 16 | ((e.mode & 040000) != 0 ? 0x10 : 0));
+                b.putInt(bigOffset ? (int) MAX32 : (int) e.headerOffset);
+                b.put(name);
+                if (extra > 0) {
+                    b.putShort((short) 0x0001);
+                    b.putShort((short) extra);
+                    if (bigSizes) {
+                        b.putLong(e.size);
+                        b.putLong(e.compressed);
+                    }
+                    if (bigOffset) b.putLong(e.headerOffset);
+                }
+                writeAll(b.flip());
+            }
+            long cdEnd = channel.position();
+            long cdSize = cdEnd - cdStart;
+            int count = written.size();
+
+            if (count >= 0xFFFF || cdStart >= MAX32 || cdSize >= MAX32) {
+                ByteBuffer z = buffer(56 + 20);
+                z.putInt(0x06064b50);
+                z.putLong(44);
+                z.putShort((short) (3 << 8 | 45));
+                z.putShort((short) 45);
+                z.putInt(0);
+                z.putInt(0);
+                z.putLong(count);
+                z.putLong(count);
+                z.putLong(cdSize);
+                z.putLong(cdStart);
+                // Locator pointing back at the record above
+                z.putInt(0x07064b50);
+                z.putInt(0);
+                z.putLong(cdEnd);
+                z.putInt(1);
+                writeAll(z.flip());
+            }
+
+            ByteBuffer end = buffer(22);
+            end.putInt(0x06054b50);
+            end.putShort((short) 0);
+            end.putShort((short) 0);
+            end.putShort((short) Math.min(count, 0xFFFF));
+            end.putShort((short) Math.min(count, 0xFFFF));
+            end.putInt((int) Math.min(cdSize, MAX32));
+            end.putInt((int) Math.min(cdStart, MAX32));
+            end.putShort((short) 0);
+            writeAll(end.flip());
+        }
+
+        private void writeAll(ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) channel.write(b);
+        }
+
+        private void writeAt(ByteBuffer b, long position) throws IOException {
+            while (b.hasRemaining()) position += channel.write(b, position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class GzipSink implements Sink {
+        private final FileChannel channel;
+
+        GzipSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void begin(Entry entry) throws IOException {
+            byte[] name = entry.name.getBytes(StandardCharsets.ISO_8859_1);
+            ByteBuffer b = buffer(10 + name.length + 1);
+            b.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) 0x08); // deflate, FNAME
+            b.putInt((int) (entry.mtime / 1000));
+            b.put((byte) 0).put((byte) 3); // no extra flags, Unix
+            b.put(name).put((byte) 0);
+            write(b.flip());
+        }
+
+        @Override
+        public void write(Entry entry, byte[] data, int length) throws IOException {
+            write(ByteBuffer.wrap(data, 0, length));
+            entry.compressed += length;
+        }
+
+        @Override
+        public void end(Entry entry) throws IOException {
+            ByteBuffer b = buffer(8);
+            b.putInt((int) entry.crc);
+            b.putInt((int) entry.size); // ISIZE is the size modulo 2^32
+            write(b.flip());
+        }
+
+        @Override
+        public void finish() {}
+
+        @Override
+        public boolean canStore() {
+            return false;
+        }
+
+        private void write(ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) channel.write(b);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,257 @@
+package com.thunder.ai;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/*
+ * Non-interactive mode: one instruction per input line, one JSON object per output
+ * line, in input order. Direct commands are answered locally on a single lane
+ * (they print, so their output is captured); everything else goes to the cache and
+ * then the model, with up to `concurrency` requests in flight. With an allowlist,
+ * commands whose every program is on the list are also executed.
+ *
+ * Nothing that changes the system runs unless the allowlist says so: of the direct
+ * routes only readOnly() ones run unattended. A route that changes something runs
+ * only when the list names the route itself by its key ("delete-folder"), and a
+ * route that runs a shell command from the input only when every program in that
+ * command is on the list. Anything else is reported as skipped.
+ */
+public class BatchRunner {
+
+    private static final Duration EXEC_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_OUTPUT_CHARS = 64 * 1024;
+    // Splits a command line into the programs it would start
+    private static final Pattern SEGMENT_SPLIT = Pattern.compile("\\|\\||&&|[|;&\\n]");
+    // Anything that could hide another program or write files is never executed
+    private static final Pattern UNSAFE_SYNTAX = Pattern.compile("[`<>]|\\$\\(");
+
+    private final LlmBackend backend;
+    private final String backendKind;
+    private final CommandRouter router;
+    private final Consumer<CommandRouter.Match> direct;
+    private final UnaryOperator<String> clean;
+    private final Predicate<String> dangerous;
+    private final int concurrency;
+    private final Set<String> allowlist;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // backendKind scopes the command cache, as in the REPL
+    public BatchRunner(LlmBackend backend, String backendKind, CommandRouter router, Consumer<CommandRouter.Match> direct,
+                       UnaryOperator<String> clean, Predicate<String> dangerous, int concurrency, Set<String> allowlist) {
+        this.backend = backend;
+        this.backendKind = backendKind;
+        this.router = router;
+        this.direct = direct;
+        this.clean = clean;
+        this.dangerous = dangerous;
+        this.concurrency = Math.max(1, concurrency);
+        this.allowlist = allowlist;
+    }
+
+    // Returns the number of lines that failed
+    public int run(BufferedReader in, PrintStream out) throws IOException {
+        // Java 17 has no virtual threads; the pool is sized to the in-flight window instead
+        ExecutorService models = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "batch-model");
+            t.setDaemon(true);
+            return t;
+        });
+        ExecutorService directLane = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "batch-direct");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Semaphore window = new Semaphore(concurrency);
+        BlockingQueue<CompletableFuture<ObjectNode>> pending = new LinkedBlockingQueue<>();
+        int[] failures = {0};
+
+        // Writes results strictly in input order, freeing a window slot per line written
+        Thread writer = new Thread(() -> {
+            try {
+                while (true) {
+                    CompletableFuture<ObjectNode> next = pending.take();
+                    if (next == END) break;
+                    ObjectNode result = next.get();
+                    if (result.has("error")) failures[0]++;
+                    out.println(mapper.writeValueAsString(result));
+                    out.flush();
+                    window.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "batch-writer");
+        writer.start();
+
+        String line;
+        int lineNo = 0;
+        try {
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String input = line.trim();
+                if (input.isEmpty() || input.startsWith("#")) continue;
+
+                window.acquire();
+                int n = lineNo;
+                // Routing runs on the direct lane; only lines it does not handle move on to the model pool
+                pending.add(CompletableFuture.supplyAsync(() -> tryDirect(n, input), directLane)
+                        .thenApplyAsync(result -> result != null ? result : viaModel(n, input), models)
+                        .exceptionally(e -> error(n, input, e)));
+            }
+            pending.add(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            models.shutdownNow();
+            directLane.shutdownNow();
+        }
+        return failures[0];
+    }
+
+    private static final CompletableFuture<ObjectNode> END = new CompletableFuture<>();
+
+    // Null when no direct route matches, so the line goes to the model
+    private ObjectNode tryDirect(int lineNo, String input) {
+        long start = System.nanoTime();
+        CommandRouter.Match match = router.match(input);
+        if (match == null) return null;
+        ObjectNode result = newResult(lineNo, input);
+        result.put("source", "direct");
+        String refusal = switch (match.effect()) {
+            case READS -> null;
+            case CHANGES -> changeRefusal(match);
+            case SHELL -> {
+                String command = router.shellCommand(match);
+                // schedule list / cancel run nothing themselves, so they count as changes
+                if (command.isEmpty()) yield changeRefusal(match);
+                yield allowlist.isEmpty() ? "runs shell commands; needs --allow" : refusal(command);
+            }
+        };
+        if (refusal != null) {
+            result.put("executed", false);
+            result.put("skipped", refusal);
+        } else {
+            result.put("output", capture(() -> direct.accept(match)));
+        }
+        result.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private ObjectNode viaModel(int lineNo, String input) {
+        long start = System.nanoTime();
+        ObjectNode result = newResult(lineNo, input);
+
+        String cmd = CommandCache.get(backendKind, input);
+        result.put("source", cmd != null ? "cache" : "model");
+        if (cmd == null) {
+            String text = backend.generate(input);
+            if (text == null) {
+                result.put("error", backend.lastError() != null ? backend.lastError() : "no answer");
+                result.put("millis", (System.nanoTime() - start) / 1_000_000);
+                return result;
+            }
+            cmd = clean.apply(text);
+            if (!cmd.isEmpty()) CommandCache.put(backendKind, input, cmd);
+        }
+        result.put("command", cmd);
+
+        String refusal = allowlist.isEmpty() ? null : refusal(cmd);
+        if (allowlist.isEmpty()) {
+            result.put("executed", false);
+        } else if (refusal != null) {
+            result.put("executed", false);
+            result.put("skipped", refusal);
+        } else {
+            StringBuilder output = new StringBuilder();
+            ProcessRunner.Result run = ProcessRunner.run(cmd, EXEC_TIMEOUT, (text, stderr) -> {
+                synchronized (output) {
+                    if (output.length() < MAX_OUTPUT_CHARS) output.append(text).append('\n');
+                }
+            });
+            result.put("executed", true);
+            result.put("exitCode", run.exitCode());
+            result.put("timedOut", run.timedOut());
+            synchronized (output) {
+                result.put("output", output.toString());
+            }
+            if (!run.succeeded()) result.put("error", run.summary());
+        }
+        result.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    // Routes that change the system are opted into one by one; a list of programs unlocks none of them
+    private String changeRefusal(CommandRouter.Match match) {
+        return allowlist.contains(match.key()) ? null : "changes the system; needs --allow " + match.key();
+    }
+
+    // Why a command may not run unattended, or null if every program in it is allowed
+    private String refusal(String cmd) {
+        if (dangerous.test(cmd)) return "dangerous";
+        if (UNSAFE_SYNTAX.matcher(cmd).find()) return "redirection or substitution";
+        for (String segment : SEGMENT_SPLIT.split(cmd)) {
+            String[] words = segment.trim().split("\\s+");
+            if (words.length == 0 || words[0].isEmpty()) continue;
+            if (!allowlist.contains(words[0])) return "not allowlisted: " + words[0];
+        }
+        return null;
+    }
+
+    // Only the calling thread's prints are captured; model lanes and the writer are not affected
+    private static String capture(Runnable action) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        Daemon.printingTo(out, action);
+        out.flush();
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        return text.length() > MAX_OUTPUT_CHARS ? text.substring(0, MAX_OUTPUT_CHARS) : text;
+    }
+
+    private ObjectNode newResult(int lineNo, String input) {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("line", lineNo);
+        result.put("input", input);
+        return result;
+    }
+
+    private ObjectNode error(int lineNo, String input, Throwable e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        ObjectNode result = newResult(lineNo, input);
+        result.put("error", cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+        return result;
+    }
+
+    public static Set<String> parseAllowlist(String csv) {
+        if (csv == null || csv.isBlank()) return Set.of();
+        List<String> programs = new ArrayList<>();
+        for (String p : csv.split(",")) {
+            if (!p.isBlank()) programs.add(p.trim());
+        }
+        return Set.copyOf(programs);
+    }
+}
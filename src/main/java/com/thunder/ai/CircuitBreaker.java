@@ -0,0 +1,64 @@
+package com.thunder.ai;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-dependency circuit breaker. After `threshold` failures in a row the circuit
+// opens and calls are refused for the cool-down; then one probe is let through
+// (half-open). A good probe closes it, a bad one reopens it for twice as long, up
+// to `maxOpenMillis`. A probe that never reports back (cancelled by a faster
+// answer) frees the slot for another after one cool-down.
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int threshold;
+    private final long openNanos;
+    private final long maxOpenNanos;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long cooldown;
+    private long retryAt = 0;
+
+    public CircuitBreaker(int threshold, long openMillis, long maxOpenMillis) {
+        this.threshold = threshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(maxOpenMillis);
+        this.cooldown = openNanos;
+    }
+
+    // Whether a call may go ahead; when half-open only the probe gets a yes
+    public synchronized boolean allow() {
+        if (state == State.CLOSED) return true;
+        long now = System.nanoTime();
+        if (now - retryAt < 0) return false;
+        state = State.HALF_OPEN;
+        retryAt = now + cooldown;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        cooldown = openNanos;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            cooldown = Math.min(maxOpenNanos, cooldown * 2);
+            open();
+        } else if (state == State.CLOSED && ++failures >= threshold) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        failures = 0;
+        retryAt = System.nanoTime() + cooldown;
+    }
+}
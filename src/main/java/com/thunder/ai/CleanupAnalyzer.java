@@ -0,0 +1,159 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Reclaimable space by CleanupRules group and by directory. A file counts when a
+ * directory rule claims one of its folders below the scan root (node_modules/,
+ * .cache/, ...) or, failing that, a file rule matches its name. Each folder's
+ * directory-rule verdict is worked out once and cached under the Path instance
+ * ScanEngine passes for the folder, so files cost a name lookup plus an identity
+ * map probe; totals go into LongAdders so workers never contend on a lock.
+ */
+public class CleanupAnalyzer implements FileAnalyzer {
+
+    // Enclosing folder claimed by a directory rule; rule is -1 when there is none
+    private record Claim(int rule, Path dir) {}
+
+    private static final Claim NONE = new Claim(-1, null);
+
+    // rule is the one that claimed the folder's files, or -1 once files of several groups landed there
+    private static final class Totals {
+        final LongAdder count = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        volatile int rule;
+
+        Totals(int rule) {
+            this.rule = rule;
+        }
+    }
+
+    private final Path root;
+    private final CleanupRules rules;
+    private final int limit;
+    private final long now = System.currentTimeMillis();
+    private final LongAdder[] groupCounts;
+    private final LongAdder[] groupBytes;
+    private final Map<Path, Claim> claims = new ConcurrentHashMap<>();
+    private final Map<Path, Totals> byDirectory = new ConcurrentHashMap<>();
+
+    public CleanupAnalyzer(Path root) {
+        this(root, CleanupRules.load(), 10);
+    }
+
+    public CleanupAnalyzer(Path root, CleanupRules rules, int limit) {
+        this.root = root;
+        this.rules = rules;
+        this.limit = limit;
+        this.groupCounts = new LongAdder[rules.groups().size()];
+        this.groupBytes = new LongAdder[rules.groups().size()];
+        for (int i = 0; i < groupCounts.length; i++) {
+            groupCounts[i] = new LongAdder();
+            groupBytes[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onFile(Path file, BasicFileAttributes attrs) {
+        onFile(file.getParent(), file, attrs);
+    }
+
+    @Override
+    public void onFile(Path parent, Path file, BasicFileAttributes attrs) {
+        long age = now - attrs.lastModifiedTime().toMillis();
+        Claim claim = rules.hasDirectoryRules() && parent != null ? claim(parent) : NONE;
+
+        int rule;
+        Path dir;
+        if (claim.rule() >= 0 && rules.oldEnough(claim.rule(), age)) {
+            rule = claim.rule();
+            dir = claim.dir();
+        } else {
+            Path name = file.getFileName();
+            rule = name == null ? -1 : rules.matchFile(name.toString(), age);
+            if (rule < 0) return;
+            dir = parent != null ? parent : file;
+        }
+
+        int group = rules.groupOf(rule);
+        groupCounts[group].increment();
+        groupBytes[group].add(attrs.size());
+        Totals totals = byDirectory.computeIfAbsent(dir, d -> new Totals(rule));
+        totals.count.increment();
+        totals.bytes.add(attrs.size());
+        int seen = totals.rule;
+        if (seen >= 0 && seen != rule && rules.groupOf(seen) != group) totals.rule = -1;
+    }
+
+    // Walks up to the scan root at most once per folder; later files hit the cache
+    private Claim claim(Path dir) {
+        Claim cached = claims.get(dir);
+        if (cached != null) return cached;
+
+        Claim claim = NONE;
+        if (dir.startsWith(root)) {
+            Claim above = dir.equals(root) || dir.getParent() == null ? NONE : claim(dir.getParent());
+            if (above.rule() >= 0) {
+                claim = above;
+            } else if (!dir.equals(root) && dir.getFileName() != null) {
+                int rule = rules.matchDirectory(dir.getFileName().toString());
+                if (rule >= 0) claim = new Claim(rule, dir);
+            }
+        }
+        Claim raced = claims.putIfAbsent(dir, claim);
+        return raced != null ? raced : claim;
+    }
+
+    @Override
+    public void report() {
+        long totalCount = 0;
+        long totalBytes = 0;
+        List<Integer> order = new ArrayList<>();
+        for (int g = 0; g < groupCounts.length; g++) {
+            if (groupCounts[g].sum() == 0) continue;
+            totalCount += groupCounts[g].sum();
+            totalBytes += groupBytes[g].sum();
+            order.add(g);
+        }
+        if (totalCount == 0) {
+            System.out.println("🧹 Cleanup suggestions: Looks clean");
+            return;
+        }
+
+        order.sort((a, b) -> Long.compare(groupBytes[b].sum(), groupBytes[a].sum()));
+        System.out.println("🧹 Cleanup suggestions: " + totalCount + " files, " + formatMegabytes(totalBytes) + " reclaimable");
+        for (int g : order) {
+            System.out.printf("  %-14s %8d files  %s%n", rules.groups().get(g), groupCounts[g].sum(),
+                    formatMegabytes(groupBytes[g].sum()));
+        }
+
+        TopK<Map.Entry<Path, Totals>> largest = new TopK<>(limit);
+        for (Map.Entry<Path, Totals> e : byDirectory.entrySet()) {
+            largest.offer(e.getValue().bytes.sum(), e);
+        }
+        System.out.println("  Largest reclaimable folders:");
+        Path firstClaimed = null;
+        for (TopK.Entry<Map.Entry<Path, Totals>> e : largest.sortedDescending()) {
+            Path dir = e.item().getKey();
+            Totals t = e.item().getValue();
+            int ruleIndex = t.rule;
+            CleanupRules.Rule rule = ruleIndex >= 0 ? rules.rules().get(ruleIndex) : null;
+            String what = rule == null ? "mixed" : rule.directory() ? rule.group() + ", whole folder" : rule.group();
+            System.out.println("  - " + dir + " (" + formatMegabytes(e.key()) + ", " + t.count.sum() + " files, " + what + ")");
+            if (firstClaimed == null && rule != null && rule.directory()) firstClaimed = dir;
+        }
+        if (firstClaimed != null) {
+            System.out.println("💡 Preview removing the largest: delete folder " + firstClaimed + " --dry-run");
+        }
+    }
+
+    private static String formatMegabytes(long bytes) {
+        return bytes >= 10L * 1024 * 1024 ? (bytes / 1024 / 1024) + " MB" : String.format("%.1f MB", bytes / 1024.0 / 1024);
+    }
+}
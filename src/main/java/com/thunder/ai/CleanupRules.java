@@ -0,0 +1,275 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * What counts as reclaimable for "suggest cleanup". Each line of the rule file is
+ *
+ *     <group>  <pattern>  [min age in days]
+ *
+ * where the pattern is a glob over the file name ("*.log", "core.*"), "re:" and a
+ * regex over the file name, or either of those ending in "/" to claim everything
+ * under a directory with that name. Several lines may share a group; the first
+ * matching line wins. ~/.ai_cli_assistant/cleanup-rules.txt replaces the defaults.
+ *
+ * Rules are compiled once: exact names and "*.ext" globs become hash lookups, so a
+ * typical file name costs one or two map probes. Other globs check their literal
+ * parts with startsWith/endsWith/contains before running their regex, so names that
+ * cannot match never reach the regex engine.
+ */
+public final class CleanupRules {
+
+    public static final Path FILE = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "cleanup-rules.txt");
+
+    static final String DEFAULTS = String.join("\n",
+            "# group         pattern              min age (days)",
+            "logs            *.log                7",
+            "logs            *.log.[0-9]*",
+            "temp            *.tmp",
+            "temp            *.temp",
+            "temp            tmp/                 1",
+            "temp            temp/                1",
+            "editor-swap     *.swp                1",
+            "editor-swap     *~                   1",
+            "backups         *.bak                30",
+            "backups         *.old                30",
+            "crash-dumps     core.[0-9]*",
+            "crash-dumps     *.dmp",
+            "crash-dumps     hs_err_pid*.log",
+            "os-metadata     .DS_Store",
+            "os-metadata     Thumbs.db",
+            "caches          *.cache",
+            "caches          .cache/              30",
+            "caches          __pycache__/",
+            "caches          .pytest_cache/",
+            "dependencies    node_modules/        30",
+            "");
+
+    // minAgeMillis is 0 when the rule has no age limit
+    public record Rule(String group, String pattern, boolean directory, long minAgeMillis) {}
+
+    private final List<Rule> rules;
+    private final List<String> groups;
+    private final int[] groupOf;
+
+    private final Map<String, Integer> exactFiles = new HashMap<>();
+    private final Map<String, Integer> extensions = new HashMap<>();
+    private final List<Matcher> otherFiles = new ArrayList<>();
+    private final Map<String, Integer> exactDirectories = new HashMap<>();
+    private final List<Matcher> otherDirectories = new ArrayList<>();
+
+    private record Matcher(int rule, Predicate<String> test) {}
+
+    private CleanupRules(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        Map<String, Integer> groupIndex = new LinkedHashMap<>();
+        this.groupOf = new int[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            Rule r = rules.get(i);
+            groupOf[i] = groupIndex.computeIfAbsent(r.group(), g -> groupIndex.size());
+            compile(i, r);
+        }
+        this.groups = List.copyOf(groupIndex.keySet());
+    }
+
+    // The rule file when there is one, the built-in set otherwise
+    public static CleanupRules load() {
+        if (Files.exists(FILE)) {
+            try {
+                return parse(Files.readAllLines(FILE, StandardCharsets.UTF_8), FILE.getFileName().toString());
+            } catch (IOException e) {
+                System.out.println("⚠️ Could not read " + FILE + ": " + e.getMessage() + " (using defaults)");
+            }
+        }
+        return defaults();
+    }
+
+    public static CleanupRules defaults() {
+        return parse(Arrays.asList(DEFAULTS.split("\n")), "defaults");
+    }
+
+    static CleanupRules parse(List<String> lines, String source) {
+        List<Rule> rules = new ArrayList<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = line.split("\\s+");
+            try {
+                if (f.length < 2 || f.length > 3) throw new IllegalArgumentException("expected <group> <pattern> [days]");
+                boolean directory = f[1].endsWith("/");
+                String pattern = directory ? f[1].substring(0, f[1].length() - 1) : f[1];
+                if (pattern.isEmpty() || pattern.equals("re:")) throw new IllegalArgumentException("empty pattern");
+                if (pattern.startsWith("re:")) Pattern.compile(pattern.substring(3));
+                long days = f.length == 3 ? Long.parseLong(f[2]) : 0;
+                if (days < 0) throw new IllegalArgumentException("negative age");
+                rules.add(new Rule(f[0], pattern, directory, days * 24 * 60 * 60 * 1000));
+            } catch (PatternSyntaxException e) {
+                System.out.println("⚠️ " + source + " line " + (n + 1) + ": bad regex " + e.getDescription());
+            } catch (IllegalArgumentException e) {
+                System.out.println("⚠️ " + source + " line " + (n + 1) + ": " + e.getMessage());
+            }
+        }
+        return new CleanupRules(rules);
+    }
+
+    private void compile(int index, Rule rule) {
+        String p = rule.pattern();
+        Map<String, Integer> exact = rule.directory() ? exactDirectories : exactFiles;
+        List<Matcher> others = rule.directory() ? otherDirectories : otherFiles;
+
+        if (p.startsWith("re:")) {
+            Pattern regex = Pattern.compile(p.substring(3));
+            others.add(new Matcher(index, name -> regex.matcher(name).matches()));
+            return;
+        }
+
+        int star = p.indexOf('*');
+        boolean wildcard = p.indexOf('?') >= 0 || p.indexOf('[') >= 0;
+        if (star < 0 && !wildcard) {
+            exact.putIfAbsent(p, index);
+        } else if (star == 0 && !wildcard && p.indexOf('*', 1) < 0) {
+            String suffix = p.substring(1);
+            if (!rule.directory() && suffix.lastIndexOf('.') == 0 && suffix.length() > 1) {
+                extensions.putIfAbsent(suffix.substring(1), index);
+            } else {
+                others.add(new Matcher(index, name -> name.length() > suffix.length() && name.endsWith(suffix)));
+            }
+        } else if (star == p.length() - 1 && !wildcard) {
+            String prefix = p.substring(0, star);
+            others.add(new Matcher(index, name -> name.startsWith(prefix)));
+        } else {
+            Pattern regex = Pattern.compile(globToRegex(p));
+            String[] literals = literals(p);
+            String prefix = literals[0];
+            String suffix = literals[literals.length - 1];
+            String longest = Arrays.stream(literals).max((a, b) -> a.length() - b.length()).orElse("");
+            others.add(new Matcher(index, name -> name.startsWith(prefix) && name.endsWith(suffix)
+                    && name.contains(longest) && regex.matcher(name).matches()));
+        }
+    }
+
+    // Runs of plain characters between wildcards: "core.[0-9]*" -> ["core.", ""]
+    private static String[] literals(String glob) {
+        List<String> runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            int close = c == '[' ? glob.indexOf(']', i + 1) : -1;
+            if (c == '*' || c == '?' || close > 0) {
+                runs.add(run.toString());
+                run.setLength(0);
+                if (close > 0) i = close;
+            } else {
+                run.append(c);
+            }
+        }
+        runs.add(run.toString());
+        return runs.toArray(new String[0]);
+    }
+
+    // * and ? never cross a '/', [...] passes through as a character class
+    private static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> sb.append("[^/]*");
+                case '?' -> sb.append("[^/]");
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        sb.append("\\[");
+                    } else {
+                        sb.append('[').append(glob, i + 1, close).append(']');
+                        i = close;
+                    }
+                }
+                default -> sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * First file rule (in file order) matching the name whose age limit the file
+     * passes, or -1. ageMillis is how long ago the file was last modified.
+     */
+    public int matchFile(String name, long ageMillis) {
+        int best = Integer.MAX_VALUE;
+        Integer exact = exactFiles.get(name);
+        if (exact != null && oldEnough(exact, ageMillis)) best = exact;
+
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && dot < name.length() - 1) {
+            Integer ext = extensions.get(name.substring(dot + 1));
+            if (ext != null && ext < best && oldEnough(ext, ageMillis)) best = ext;
+        }
+
+        for (Matcher m : otherFiles) {
+            // otherFiles is in rule order, so nothing after a better match can win
+            if (m.rule() >= best) break;
+            if (oldEnough(m.rule(), ageMillis) && m.test().test(name)) {
+                best = m.rule();
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    // First directory rule matching the name, or -1; age is checked per file with oldEnough
+    public int matchDirectory(String name) {
+        Integer exact = exactDirectories.get(name);
+        int best = exact != null ? exact : Integer.MAX_VALUE;
+        for (Matcher m : otherDirectories) {
+            if (m.rule() >= best) break;
+            if (m.test().test(name)) {
+                best = m.rule();
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    public boolean oldEnough(int rule, long ageMillis) {
+        return ageMillis >= rules.get(rule).minAgeMillis();
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    public boolean hasDirectoryRules() {
+        return !exactDirectories.isEmpty() || !otherDirectories.isEmpty();
+    }
+
+    // Report groups, in the order they first appear
+    public List<String> groups() {
+        return groups;
+    }
+
+    public int groupOf(int rule) {
+        return groupOf[rule];
+    }
+
+    public void print() {
+        System.out.println("🧹 Cleanup rules (" + (Files.exists(FILE) ? FILE : "built-in; put your own in " + FILE) + "):");
+        for (Rule r : rules) {
+            long days = r.minAgeMillis() / (24L * 60 * 60 * 1000);
+            String pattern = String.format("%-14s %s", r.group(), r.pattern() + (r.directory() ? "/" : ""));
+            System.out.println("  " + (days > 0 ? String.format("%-39s older than %d days", pattern, days) : pattern));
+        }
+    }
+}
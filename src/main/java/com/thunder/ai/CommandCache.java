@@ -0,0 +1,255 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Two-tier cache for natural-language -> shell command translations. Tier 1 is an
+// in-memory LRU with a short TTL; tier 2 is a file under ~/.ai_cli_assistant that
+// survives restarts. Keys are normalized (case, whitespace) and path-like tokens
+// are abstracted, so "compress a.txt" and "compress b.txt" share one entry. Every
+// key starts with the backend kind (gemini, local or fake), so answers from the
+// offline rules or the load-test stand-in are never served to the real model's users.
+public class CommandCache {
+
+    private static final Path FILE = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "command-cache.tsv");
+    private static final int MEMORY_CAPACITY = 512;
+    private static final long MEMORY_TTL_MILLIS = 60L * 60 * 1000;            // 1 hour
+    private static final long DISK_TTL_MILLIS = 7L * 24 * 60 * 60 * 1000;     // 7 days
+    private static final int COMPACT_AFTER_APPENDS = 1000;
+
+    private record Entry(String command, long createdMillis) {}
+
+    private record Key(String text, List<String> paths) {}
+
+    private static final LongAdder memoryHits = new LongAdder();
+    private static final LongAdder diskHits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder expirations = new LongAdder();
+
+    static {
+        Metrics.counterOf("command_cache_hits_total", "Translations answered from the cache", memoryHits::sum, "tier", "memory");
+        Metrics.counterOf("command_cache_hits_total", "Translations answered from the cache", diskHits::sum, "tier", "disk");
+        Metrics.counterOf("command_cache_misses_total", "Translations the cache could not answer", misses::sum);
+        Metrics.counterOf("command_cache_evictions_total", "Entries pushed out of the memory tier", evictions::sum);
+    }
+
+    private static final Map<String, Entry> memory = new LinkedHashMap<>(MEMORY_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > MEMORY_CAPACITY) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private static Map<String, Entry> disk = null;
+    private static int appendsSinceCompact = 0;
+
+    public static synchronized String get(String backend, String input) {
+        Key key = normalize(input);
+        String template = find(backend + "|" + key.text());
+        if (template != null) {
+            return expand(template, key.paths());
+        }
+        String exact = find(backend + "|" + exactKey(input));
+        if (exact != null) {
+            return exact;
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Memory first, then disk (promoting the entry back into memory)
+    private static String find(String key) {
+        long now = System.currentTimeMillis();
+
+        Entry e = memory.get(key);
+        if (e != null && now - e.createdMillis() > MEMORY_TTL_MILLIS) {
+            memory.remove(key);
+            expirations.increment();
+            e = null;
+        }
+        if (e != null) {
+            memoryHits.increment();
+            return e.command();
+        }
+
+        e = disk().get(key);
+        if (e != null && now - e.createdMillis() > DISK_TTL_MILLIS) {
+            disk.remove(key);
+            expirations.increment();
+            e = null;
+        }
+        if (e != null) {
+            diskHits.increment();
+            memory.put(key, new Entry(e.command(), now));
+            return e.command();
+        }
+        return null;
+    }
+
+    public static synchronized void put(String backend, String input, String command) {
+        Key key = normalize(input);
+        String template = abstractPaths(command, key.paths());
+        // If the model did not echo every path verbatim the template would be wrong for other paths
+        String storeKey = backend + "|" + (template == null ? exactKey(input) : key.text());
+        String stored = template == null ? command : template;
+
+        Entry e = new Entry(stored, System.currentTimeMillis());
+        memory.put(storeKey, e);
+        disk().put(storeKey, e);
+        append(storeKey, e);
+    }
+
+    public static synchronized void clear() {
+        memory.clear();
+        disk().clear();
+        try {
+            Files.deleteIfExists(FILE);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not delete command cache: " + e.getMessage());
+        }
+    }
+
+    public static void printStats() {
+        long hits = memoryHits.sum() + diskHits.sum();
+        long total = hits + misses.sum();
+        System.out.println("🗃️ Command cache:");
+        System.out.println("  hits " + hits + " (memory " + memoryHits.sum() + ", disk " + diskHits.sum() + ")"
+                + ", misses " + misses.sum() + (total > 0 ? ", hit rate " + (hits * 100 / total) + "%" : ""));
+        synchronized (CommandCache.class) {
+            System.out.println("  entries: memory " + memory.size() + "/" + MEMORY_CAPACITY + ", disk " + disk().size()
+                    + " · evictions " + evictions.sum() + " · expirations " + expirations.sum());
+        }
+    }
+
+    // "Compress  ./Notes.txt please" -> text "compress {{p0}} please", paths ["./Notes.txt"]
+    static Key normalize(String input) {
+        List<String> paths = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (String token : input.trim().split("\\s+")) {
+            String t = token.replaceAll("[?!,]+$", "");
+            if (t.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            if (isPathToken(t)) {
+                sb.append("{{p").append(paths.size()).append("}}");
+                paths.add(t);
+            } else {
+                sb.append(t.toLowerCase(Locale.ROOT));
+            }
+        }
+        return new Key(sb.toString(), paths);
+    }
+
+    private static boolean isPathToken(String t) {
+        return t.length() > 1 && (t.contains("/") || t.contains(".") || t.startsWith("~"));
+    }
+
+    private static String exactKey(String input) {
+        return "=" + input.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String abstractPaths(String command, List<String> paths) {
+        String template = command;
+        for (int i = 0; i < paths.size(); i++) {
+            if (!template.contains(paths.get(i))) return null;
+            template = template.replace(paths.get(i), "{{p" + i + "}}");
+        }
+        return template;
+    }
+
+    private static String expand(String template, List<String> paths) {
+        String command = template;
+        for (int i = 0; i < paths.size(); i++) {
+            command = command.replace("{{p" + i + "}}", paths.get(i));
+        }
+        return command;
+    }
+
+    private static Map<String, Entry> disk() {
+        if (disk == null) {
+            disk = load();
+        }
+        return disk;
+    }
+
+    private static Map<String, Entry> load() {
+        Map<String, Entry> loaded = new HashMap<>();
+        if (!Files.exists(FILE)) return loaded;
+        try {
+            for (String line : Files.readAllLines(FILE, StandardCharsets.UTF_8)) {
+                String[] f = line.split("\t", 3);
+                if (f.length != 3) continue;
+                try {
+                    // Later lines win, so re-asked questions keep their newest answer
+                    loaded.put(unescape(f[0]), new Entry(unescape(f[2]), Long.parseLong(f[1])));
+                } catch (NumberFormatException e) {
+                    // Skip corrupt line
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read command cache: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    private static void append(String key, Entry e) {
+        try {
+            Files.createDirectories(FILE.getParent());
+            Files.writeString(FILE, escape(key) + "\t" + e.createdMillis() + "\t" + escape(e.command()) + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (++appendsSinceCompact >= COMPACT_AFTER_APPENDS) {
+                compact();
+            }
+        } catch (IOException ex) {
+            System.out.println("⚠️ Could not write command cache: " + ex.getMessage());
+        }
+    }
+
+    // Rewrites the file with one line per live entry
+    private static void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        disk.forEach((k, e) -> {
+            if (now - e.createdMillis() <= DISK_TTL_MILLIS) {
+                lines.add(escape(k) + "\t" + e.createdMillis() + "\t" + escape(e.command()));
+            }
+        });
+        Path tmp = FILE.resolveSibling("command-cache.tsv.tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appendsSinceCompact = 0;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,267 @@
+package com.thunder.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/*
+ * Registry of direct commands. Phrases are compiled into two PhraseMatchers: an
+ * anchored trie for exact and prefix routes, walked only as far as the start of
+ * the input matches something, and an Aho-Corasick automaton for allOf keywords,
+ * run once over the input no matter how many routes exist. Routes are then
+ * checked against the hits in registration order, which keeps the "first rule
+ * wins" behaviour of the old if-chain.
+ *
+ *   exact   - the whole input equals one of the phrases
+ *   prefix  - the input starts with one of the phrases; the rest is the argument
+ *   allOf   - every group occurs somewhere; a group may list alternatives as "a|b"
+ *
+ * Each route also declares its Effect, so input from an unattended source can be
+ * matched first and only run when it is allowed to: readOnly() and runsShell()
+ * mark the route registered just before them; every other route is CHANGES.
+ * A SHELL route also says where its command is in the input, so that command
+ * can be vetted on its own rather than the route's whole argument.
+ * when() gives that route a guard as well: input the phrases match but the guard
+ * refuses is not a direct command at all, and goes to the model.
+ */
+public class CommandRouter {
+
+    /*
+     * What a route does besides printing. READS only looks (it may build in-memory
+     * or cached indexes), CHANGES creates, moves, deletes or signals something, and
+     * SHELL runs a command taken from the input itself.
+     */
+    public enum Effect { READS, CHANGES, SHELL }
+
+    public record Match(int route, String name, Effect effect, String input, String lower, String argument) {
+
+        // How an allowlist names the route: its first phrase with dashes, e.g. "delete-folder"
+        public String key() {
+            return name.replace(' ', '-');
+        }
+    }
+
+    public interface Handler {
+        void handle(Match match);
+    }
+
+    private enum Kind { EXACT, PREFIX, ALL_OF }
+
+    // accepts is null for routes without a guard, command for routes that run no shell command
+    private record Route(String name, Kind kind, int[][] groups, Handler handler, Effect effect,
+                         Predicate<Match> accepts, Function<Match, String> command) {}
+
+    // Built on first use; per anchored phrase, the first exact / prefix route using it.
+    // `hits` is per-thread scratch for the keyword pass, so routing allocates nothing
+    private record Compiled(PhraseMatcher anchored, PhraseMatcher floating,
+                            int[] exactRoute, int[] prefixRoute, int[] floatingRoutes, Route[] table,
+                            ThreadLocal<long[]> hits) {}
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, Integer> anchoredIds = new LinkedHashMap<>();
+    private final Map<String, Integer> floatingIds = new LinkedHashMap<>();
+    private volatile Compiled compiled;
+
+    public CommandRouter exact(Handler handler, String... phrases) {
+        return add(Kind.EXACT, handler, new String[][] {phrases});
+    }
+
+    public CommandRouter prefix(Handler handler, String... phrases) {
+        return add(Kind.PREFIX, handler, new String[][] {phrases});
+    }
+
+    public CommandRouter allOf(Handler handler, String... groups) {
+        String[][] alternatives = new String[groups.length][];
+        for (int i = 0; i < groups.length; i++) {
+            alternatives[i] = groups[i].split("\\|");
+        }
+        return add(Kind.ALL_OF, handler, alternatives);
+    }
+
+    private synchronized CommandRouter add(Kind kind, Handler handler, String[][] groups) {
+        if (compiled != null) throw new IllegalStateException("Router already compiled");
+        Map<String, Integer> phraseIds = kind == Kind.ALL_OF ? floatingIds : anchoredIds;
+        int[][] ids = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++) {
+            ids[g] = new int[groups[g].length];
+            for (int i = 0; i < groups[g].length; i++) {
+                String phrase = groups[g][i].toLowerCase(Locale.ROOT);
+                ids[g][i] = phraseIds.computeIfAbsent(phrase, p -> phraseIds.size());
+            }
+        }
+        routes.add(new Route(String.join(" + ", firstOfEach(groups)).trim(), kind, ids, handler, Effect.CHANGES, null, null));
+        return this;
+    }
+
+    public CommandRouter readOnly() {
+        return mark(Effect.READS);
+    }
+
+    // command picks the shell command out of a match; "" when this input runs none
+    public synchronized CommandRouter runsShell(Function<Match, String> command) {
+        Route last = last();
+        routes.set(routes.size() - 1, new Route(last.name(), last.kind(), last.groups(), last.handler(), Effect.SHELL,
+                last.accepts(), command));
+        return this;
+    }
+
+    public synchronized CommandRouter when(Predicate<Match> accepts) {
+        Route last = last();
+        routes.set(routes.size() - 1, new Route(last.name(), last.kind(), last.groups(), last.handler(), last.effect(),
+                accepts, last.command()));
+        return this;
+    }
+
+    private synchronized CommandRouter mark(Effect effect) {
+        Route last = last();
+        routes.set(routes.size() - 1, new Route(last.name(), last.kind(), last.groups(), last.handler(), effect,
+                last.accepts(), last.command()));
+        return this;
+    }
+
+    private synchronized Route last() {
+        if (compiled != null) throw new IllegalStateException("Router already compiled");
+        if (routes.isEmpty()) throw new IllegalStateException("No route to mark");
+        return routes.get(routes.size() - 1);
+    }
+
+    private static List<String> firstOfEach(String[][] groups) {
+        List<String> names = new ArrayList<>();
+        for (String[] g : groups) names.add(g[0]);
+        return names;
+    }
+
+    private synchronized Compiled compile() {
+        if (compiled == null) {
+            int[] exactRoute = new int[anchoredIds.size()];
+            int[] prefixRoute = new int[anchoredIds.size()];
+            Arrays.fill(exactRoute, Integer.MAX_VALUE);
+            Arrays.fill(prefixRoute, Integer.MAX_VALUE);
+            List<Integer> floatingRoutes = new ArrayList<>();
+            for (int r = 0; r < routes.size(); r++) {
+                Route route = routes.get(r);
+                if (route.kind() == Kind.ALL_OF) {
+                    floatingRoutes.add(r);
+                    continue;
+                }
+                int[] first = route.kind() == Kind.EXACT ? exactRoute : prefixRoute;
+                for (int id : route.groups()[0]) {
+                    first[id] = Math.min(first[id], r);
+                }
+            }
+            compiled = new Compiled(
+                    new PhraseMatcher(new ArrayList<>(anchoredIds.keySet()), true),
+                    new PhraseMatcher(new ArrayList<>(floatingIds.keySet()), true),
+                    exactRoute, prefixRoute,
+                    floatingRoutes.stream().mapToInt(Integer::intValue).toArray(),
+                    routes.toArray(new Route[0]),
+                    ThreadLocal.withInitial(() -> new long[(floatingIds.size() + 63) >>> 6]));
+        }
+        return compiled;
+    }
+
+    public int routeCount() {
+        return routes.size();
+    }
+
+    // Finds the first route the input satisfies, or null, also when that route's guard refuses it; nothing is run
+    public Match match(String input) {
+        int r = route(input);
+        if (r < 0) return null;
+        String trimmed = input.trim();
+        String lower = trimmed.toLowerCase(Locale.ROOT);
+        Route route = routes.get(r);
+        String argument = switch (route.kind()) {
+            case EXACT -> "";
+            case PREFIX -> trimmed.substring(longestPrefix(route, lower)).trim();
+            case ALL_OF -> trimmed;
+        };
+        Match match = new Match(r, route.name(), route.effect(), trimmed, lower, argument);
+        return route.accepts() == null || route.accepts().test(match) ? match : null;
+    }
+
+    /*
+     * Index of the first route the input satisfies, or -1. This is the hot path:
+     * a short anchored walk, then one keyword pass over the trimmed input only if
+     * a keyword route could still win. Case is folded inside the automata, and
+     * nothing is allocated. Guards are left to match(), which has the argument.
+     */
+    public int route(String input) {
+        Compiled c = compiled != null ? compiled : compile();
+        // Same bounds as String.trim, without copying
+        int from = 0;
+        int to = input.length();
+        while (from < to && input.charAt(from) <= ' ') from++;
+        while (to > from && input.charAt(to - 1) <= ' ') to--;
+
+        int best = c.anchored().bestPrefix(input, from, to, c.prefixRoute(), c.exactRoute());
+
+        // Keywords only matter if they could beat the anchored route already found
+        int[] floatingRoutes = c.floatingRoutes();
+        if (floatingRoutes.length > 0 && floatingRoutes[0] < best) {
+            long[] anywhere = c.hits().get();
+            Arrays.fill(anywhere, 0L);
+            if (c.floating().mark(input, from, to, anywhere, null)) {
+                for (int r : floatingRoutes) {
+                    if (r >= best) break;
+                    if (allGroupsHit(c.table()[r].groups(), anywhere)) {
+                        best = r;
+                        break;
+                    }
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    // Longest phrase wins, so "compress file x" beats "compress x"
+    private int longestPrefix(Route route, String lower) {
+        int best = 0;
+        for (int id : route.groups()[0]) {
+            String phrase = compiled.anchored().phrase(id);
+            if (lower.startsWith(phrase)) best = Math.max(best, phrase.length());
+        }
+        return best;
+    }
+
+    // Runs the matching route's handler; false means no route applies
+    public boolean dispatch(String input) {
+        Match match = match(input);
+        if (match == null) return false;
+        run(match);
+        return true;
+    }
+
+    // The shell command a SHELL match would run, or "" for any other match
+    public String shellCommand(Match match) {
+        Function<Match, String> command = routes.get(match.route()).command();
+        return command == null ? "" : command.apply(match);
+    }
+
+    public void run(Match match) {
+        routes.get(match.route()).handler().handle(match);
+    }
+
+    private static boolean allGroupsHit(int[][] groups, long[] hits) {
+        for (int[] group : groups) {
+            boolean any = false;
+            for (int id : group) {
+                if (isSet(hits, id)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSet(long[] bits, int id) {
+        return (bits[id >>> 6] & (1L << id)) != 0;
+    }
+}
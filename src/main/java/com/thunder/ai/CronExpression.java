@@ -0,0 +1,146 @@
+package com.thunder.ai;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Standard 5-field cron expression (minute hour day-of-month month day-of-week)
+// with *, lists, ranges and steps. Also translates a few plain-English forms such
+// as "every day at 02:00" into cron.
+public class CronExpression {
+
+    private static final Pattern EVERY_N = Pattern.compile("every (\\d+) (minute|hour)s?");
+    private static final Pattern DAILY = Pattern.compile("(?:every day|daily) at (\\d{1,2}):(\\d{2})");
+    private static final Pattern WEEKLY = Pattern.compile("every (\\w+) at (\\d{1,2}):(\\d{2})");
+    private static final Map<String, String> DAYS = Map.of(
+            "sunday", "0", "monday", "1", "tuesday", "2", "wednesday", "3",
+            "thursday", "4", "friday", "5", "saturday", "6", "weekday", "1-5");
+
+    private final String expression;
+    private final long minutes;  // bit per allowed value
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean domRestricted;
+    private final boolean dowRestricted;
+
+    private CronExpression(String expression) {
+        String[] f = expression.trim().split("\\s+");
+        if (f.length != 5) {
+            throw new IllegalArgumentException("cron needs 5 fields: minute hour day month weekday");
+        }
+        this.expression = String.join(" ", f);
+        minutes = parseField(f[0], 0, 59);
+        hours = parseField(f[1], 0, 23);
+        daysOfMonth = parseField(f[2], 1, 31);
+        months = parseField(f[3], 1, 12);
+        long dow = parseField(f[4], 0, 7);
+        if ((dow & (1L << 7)) != 0) dow |= 1; // 7 is also Sunday
+        daysOfWeek = dow;
+        domRestricted = !f[2].equals("*");
+        dowRestricted = !f[4].equals("*");
+    }
+
+    public static CronExpression parse(String expression) {
+        return new CronExpression(expression);
+    }
+
+    // Accepts "cron <fields>" or one of the supported English phrases; null if neither
+    public static CronExpression fromText(String text) {
+        String t = text.toLowerCase(Locale.ROOT).trim();
+        if (t.startsWith("cron ")) return parse(t.substring(5));
+        if (t.equals("every minute")) return parse("* * * * *");
+        if (t.equals("every hour") || t.equals("hourly")) return parse("0 * * * *");
+
+        Matcher m = EVERY_N.matcher(t);
+        if (m.matches()) {
+            return m.group(2).equals("minute") ? parse("*/" + m.group(1) + " * * * *") : parse("0 */" + m.group(1) + " * * *");
+        }
+        m = DAILY.matcher(t);
+        if (m.matches()) {
+            return parse(Integer.parseInt(m.group(2)) + " " + Integer.parseInt(m.group(1)) + " * * *");
+        }
+        m = WEEKLY.matcher(t);
+        if (m.matches() && DAYS.containsKey(m.group(1))) {
+            return parse(Integer.parseInt(m.group(3)) + " " + Integer.parseInt(m.group(2)) + " * * " + DAYS.get(m.group(1)));
+        }
+        return null;
+    }
+
+    // First matching minute strictly after the given time
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime t = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = t.plusYears(5);
+        while (t.isBefore(limit)) {
+            if (!has(months, t.getMonthValue())) {
+                t = t.withDayOfMonth(1).withHour(0).withMinute(0).plusMonths(1);
+            } else if (!dayMatches(t)) {
+                t = t.withHour(0).withMinute(0).plusDays(1);
+            } else if (!has(hours, t.getHour())) {
+                t = t.withMinute(0).plusHours(1);
+            } else if (!has(minutes, t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t;
+            }
+        }
+        throw new IllegalStateException("cron expression never fires: " + expression);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // Classic cron rule: if both day fields are restricted, either may match
+    private boolean dayMatches(ZonedDateTime t) {
+        boolean dom = has(daysOfMonth, t.getDayOfMonth());
+        boolean dow = has(daysOfWeek, t.getDayOfWeek() == DayOfWeek.SUNDAY ? 0 : t.getDayOfWeek().getValue());
+        if (domRestricted && dowRestricted) return dom || dow;
+        return dom && dow;
+    }
+
+    private static boolean has(long mask, int value) {
+        return (mask & (1L << value)) != 0;
+    }
+
+    private static long parseField(String field, int min, int max) {
+        long mask = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = Integer.parseInt(part.substring(slash + 1));
+                range = part.substring(0, slash);
+            }
+
+            int from;
+            int to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else if (range.contains("-")) {
+                String[] bounds = range.split("-");
+                from = Integer.parseInt(bounds[0]);
+                to = Integer.parseInt(bounds[1]);
+            } else {
+                from = Integer.parseInt(range);
+                to = slash >= 0 ? max : from;
+            }
+
+            if (from < min || to > max || from > to || step <= 0) {
+                throw new IllegalArgumentException("value out of range in '" + field + "'");
+            }
+            for (int v = from; v <= to; v += step) {
+                mask |= 1L << v;
+            }
+        }
+        return mask;
+    }
+}
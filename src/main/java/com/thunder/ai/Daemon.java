@@ -0,0 +1,271 @@
+package com.thunder.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/*
+ * Keeps one warm JVM (HTTP connection pool, caches, scan indexes, JIT-compiled
+ * code) behind a Unix domain socket, so scripts pay a socket round trip instead of
+ * a JVM start per request. Every connection is one session on its own thread.
+ *
+ * The protocol is plain lines, so `nc -U` works as a client. A session opens with
+ * optional header lines, then carries one request (or, after ":repl", many):
+ *
+ *     :cwd /home/me/project     resolve relative paths and run commands here
+ *     :repl                     keep reading requests until "exit" or EOF
+ *     :stop                     shut the daemon down
+ *     show disk usage
+ *
+ * Everything the session prints comes back on the socket, and any further lines
+ * the client sends answer prompts such as "Run this command?". System.out and
+ * System.err are replaced by streams that write to the current session's socket,
+ * so existing handlers need no changes; threads outside a session (schedulers,
+ * monitors) still write to the daemon's own console.
+ */
+public final class Daemon {
+
+    public static final Path DEFAULT_SOCKET = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "daemon.sock");
+
+    public interface Handler {
+        // Serves one request, reading prompt answers from in; repl sessions call it once per line
+        void handle(String request, BufferedReader in) throws IOException;
+    }
+
+    private static final ThreadLocal<PrintStream> sessionOut = new ThreadLocal<>();
+    private static final ThreadLocal<Path> sessionDirectory = new ThreadLocal<>();
+
+    private static final Metrics.Counter SESSIONS = Metrics.counter("daemon_sessions_total", "Client sessions served by the daemon");
+    private static final Metrics.Timer REQUESTS = Metrics.timer("daemon_request_seconds", "Time to serve one daemon request");
+
+    private static volatile ServerSocketChannel server = null;
+
+    private Daemon() {}
+
+    // The client's working directory while serving a session, null otherwise
+    public static Path workingDirectory() {
+        return sessionDirectory.get();
+    }
+
+    // Runs task with the given session directory, for session work handed to another thread
+    static <T> T inDirectory(Path dir, Supplier<T> task) {
+        Path previous = sessionDirectory.get();
+        sessionDirectory.set(dir);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) sessionDirectory.remove(); else sessionDirectory.set(previous);
+        }
+    }
+
+    // The stream a print on this thread really reaches; for handing to threads outside the session
+    public static PrintStream resolve(PrintStream stream) {
+        return stream instanceof Routed routed ? routed.target() : stream;
+    }
+
+    // Runs task with this thread's System.out and System.err going to out, as in a
+    // session; other threads keep printing where they did. Used by batch mode
+    static void printingTo(PrintStream out, Runnable task) {
+        routeOutput();
+        PrintStream previous = sessionOut.get();
+        sessionOut.set(out);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) sessionOut.remove(); else sessionOut.set(previous);
+        }
+    }
+
+    private static synchronized void routeOutput() {
+        if (!(System.out instanceof Routed)) System.setOut(new Routed(System.out));
+        if (!(System.err instanceof Routed)) System.setErr(new Routed(System.err));
+    }
+
+    /*
+     * Binds the socket and serves sessions until a client sends ":stop". Fails if
+     * another daemon already answers on the socket; a stale socket file is replaced.
+     */
+    public static void serve(Path socket, Handler handler) throws IOException {
+        Files.createDirectories(socket.toAbsolutePath().getParent());
+        if (Files.exists(socket)) {
+            if (isRunning(socket)) throw new IOException("A daemon is already listening on " + socket);
+            Files.delete(socket);
+        }
+
+        routeOutput();
+
+        // Java 17 has no virtual threads; sessions mostly block on the socket, so cached daemon threads it is
+        ExecutorService sessions = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "daemon-session");
+            t.setDaemon(true);
+            return t;
+        });
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            server = channel;
+            System.out.println("🛰️ Daemon listening on " + socket);
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (ClosedChannelException e) {
+                    break; // stop() closed it
+                }
+                sessions.submit(() -> session(client, handler));
+            }
+        } finally {
+            server = null;
+            sessions.shutdown();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    public static boolean isRunning(Path socket) {
+        try {
+            // Only whether something accepts the connection matters
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void stop() {
+        ServerSocketChannel channel = server;
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing is all we wanted
+        }
+    }
+
+    private static void session(SocketChannel client, Handler handler) {
+        SESSIONS.increment();
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(input(client), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(new BufferedOutputStream(output(client)), true, StandardCharsets.UTF_8)) {
+            sessionOut.set(out);
+            boolean repl = false;
+            String line;
+            while ((line = in.readLine()) != null && line.startsWith(":")) {
+                if (line.startsWith(":cwd ")) {
+                    sessionDirectory.set(Paths.get(line.substring(5).trim()));
+                } else if (line.equals(":repl")) {
+                    repl = true;
+                } else if (line.equals(":stop")) {
+                    out.println("🛑 Daemon stopping");
+                    stop();
+                    return;
+                } else {
+                    out.println("❌ Unknown header " + line);
+                    return;
+                }
+            }
+
+            while (line != null) {
+                String request = line.trim();
+                if (repl && request.equalsIgnoreCase("exit")) break;
+                if (!request.isEmpty()) {
+                    long start = REQUESTS.start();
+                    handler.handle(request, in);
+                    REQUESTS.stop(start);
+                }
+                if (!repl) break;
+                out.print("\n🧠 Ask something (or type 'exit' or 'help'): ");
+                out.flush();
+                line = in.readLine();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The client went away or the request failed; either way this session is over
+            sessionOut.remove();
+            System.err.println("⚠️ Session ended: " + e.getMessage());
+        } finally {
+            sessionOut.remove();
+            sessionDirectory.remove();
+        }
+    }
+
+    // Plain channel reads and writes. The Channels adapters take the channel's blocking
+    // lock for both, so a session waiting for an answer would stall output from pump threads
+    private static InputStream input(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    private static OutputStream output(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+        };
+    }
+
+    // Writes to the current thread's session when it has one, to the original stream otherwise
+    private static final class Routed extends PrintStream {
+        private final PrintStream fallback;
+
+        Routed(PrintStream fallback) {
+            // PrintStream funnels all text through write(byte[], int, int), so overriding the
+            // raw writes is enough; UTF-8 so emoji survive the trip to the client
+            super(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+            this.fallback = fallback;
+        }
+
+        PrintStream target() {
+            PrintStream out = sessionOut.get();
+            return out != null ? out : fallback;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            target().write(buf, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+}
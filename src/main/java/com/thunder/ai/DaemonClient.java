@@ -0,0 +1,78 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Thin client for the daemon: loads nothing but this class, sends the request with
+ * the current directory, then relays the daemon's output to stdout and stdin to the
+ * daemon (for "Run this command?" answers) until the daemon closes the session.
+ *
+ *     java -cp target/classes com.thunder.ai.DaemonClient show disk usage
+ *     java -cp target/classes com.thunder.ai.DaemonClient            # interactive
+ *     java -cp target/classes com.thunder.ai.DaemonClient --stop
+ *
+ * The socket defaults to ~/.ai_cli_assistant/daemon.sock; AI_DAEMON_SOCKET overrides it.
+ * Exits 3 when no daemon is listening.
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {}
+
+    public static void main(String[] args) throws IOException {
+        String override = System.getenv("AI_DAEMON_SOCKET");
+        Path socket = override != null && !override.isBlank() ? Paths.get(override)
+                : Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "daemon.sock");
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            System.err.println("❌ No daemon on " + socket + " (start one with AI_CLI_Assistant --daemon)");
+            System.exit(3);
+            return;
+        }
+
+        StringBuilder header = new StringBuilder(":cwd ").append(Paths.get("").toAbsolutePath()).append('\n');
+        if (args.length == 1 && args[0].equals("--stop")) {
+            header.append(":stop\n");
+        } else if (args.length == 0) {
+            header.append(":repl\n");
+        } else {
+            header.append(String.join(" ", args)).append('\n');
+        }
+        ByteBuffer request = ByteBuffer.wrap(header.toString().getBytes(StandardCharsets.UTF_8));
+        while (request.hasRemaining()) channel.write(request);
+
+        // Answers to prompts; a daemon thread, so a blocked stdin read never holds the exit.
+        // Straight channel reads and writes: the Channels stream adapters share one lock
+        Thread input = new Thread(() -> {
+            try {
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = System.in.read(buffer)) > 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) channel.write(chunk);
+                }
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                // Session closed by the daemon
+            }
+        }, "daemon-client-input");
+        input.setDaemon(true);
+        input.start();
+
+        ByteBuffer output = ByteBuffer.allocate(8192);
+        while (channel.read(output) > 0) {
+            System.out.write(output.array(), 0, output.position());
+            System.out.flush();
+            output.clear();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Groups files by size during the walk, then confirms real duplicates by content hash
+public class DuplicateFilesAnalyzer implements FileAnalyzer {
+
+    private static final int MAX_SETS = 10;
+    private static final int MAX_FILES_PER_SET = 5;
+
+    private final Map<Long, Queue<Path>> sizeMap = new ConcurrentHashMap<>();
+    private final DuplicateFinder.HashCache hashCache;
+
+    public DuplicateFilesAnalyzer() {
+        this(DuplicateFinder.HashCache.NONE);
+    }
+
+    public DuplicateFilesAnalyzer(DuplicateFinder.HashCache hashCache) {
+        this.hashCache = hashCache;
+    }
+
+    @Override
+    public void onFile(Path file, BasicFileAttributes attrs) {
+        sizeMap.computeIfAbsent(attrs.size(), k -> new ConcurrentLinkedQueue<>()).add(file);
+    }
+
+    @Override
+    public void report() {
+        DuplicateFinder.Result result = DuplicateFinder.find(sizeMap, hashCache);
+
+        if (result.sets().isEmpty()) {
+            System.out.println("🔄 Duplicate files: None");
+        } else {
+            System.out.println("🔄 Duplicate files: " + result.sets().size() + " sets, "
+                    + (result.reclaimableBytes() / 1024 / 1024) + " MB reclaimable");
+            for (DuplicateFinder.DuplicateSet set : result.sets().stream().limit(MAX_SETS).toList()) {
+                System.out.println("  • " + set.files().size() + " copies of " + set.size() + " bytes ("
+                        + (set.reclaimableBytes() / 1024) + " KB reclaimable)");
+                set.files().stream().limit(MAX_FILES_PER_SET).forEach(f -> System.out.println("    - " + f));
+                if (set.files().size() > MAX_FILES_PER_SET) {
+                    System.out.println("    ... and " + (set.files().size() - MAX_FILES_PER_SET) + " more");
+                }
+            }
+            if (result.sets().size() > MAX_SETS) {
+                System.out.println("  ... and " + (result.sets().size() - MAX_SETS) + " more sets");
+            }
+        }
+
+        System.out.println("⚡ Hashed " + result.filesHashed() + " files (" + (result.bytesHashed() / 1024 / 1024) + " MB) at "
+                + (long) result.filesPerSecond() + " files/s, " + String.format("%.1f", result.megabytesPerSecond()) + " MB/s");
+    }
+}
@@ -0,0 +1,184 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+// Staged duplicate detection: same size -> same first/last 4 KB -> same full hash.
+// Each stage only hashes the survivors of the previous one.
+public class DuplicateFinder {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Cap on files being read at once so spinning disks don't thrash
+    private static final int IO_CONCURRENCY = Math.min(THREADS, 8);
+
+    public record DuplicateSet(long size, String hash, List<Path> files) {
+
+        public long reclaimableBytes() {
+            return size * (files.size() - 1);
+        }
+    }
+
+    public record Result(List<DuplicateSet> sets, long filesHashed, long bytesHashed, long elapsedNanos) {
+
+        public long reclaimableBytes() {
+            return sets.stream().mapToLong(DuplicateSet::reclaimableBytes).sum();
+        }
+
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : filesHashed * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytesHashed / 1024.0 / 1024.0 * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    private static final Metrics.Counter FILES_HASHED = Metrics.counter("hash_files_total", "Files hashed for duplicate detection");
+    private static final Metrics.Counter BYTES_HASHED = Metrics.counter("hash_bytes_total", "Bytes read for duplicate detection");
+    private static final Metrics.Timer DURATION = Metrics.timer("duplicate_search_seconds", "Wall time of one duplicate search");
+
+    private record Candidate(Path path, long size) {}
+
+    private record Group(String hash, List<Candidate> members) {}
+
+    private interface HashFunction {
+        String hash(Path file, long size) throws IOException;
+    }
+
+    // Lets a persistent index supply hashes it already knows and remember new ones
+    public interface HashCache {
+        HashCache NONE = new HashCache() {
+            public String get(Path file, boolean full) {
+                return null;
+            }
+
+            public void put(Path file, boolean full, String hash) {}
+        };
+
+        String get(Path file, boolean full);
+
+        void put(Path file, boolean full, String hash);
+    }
+
+    public static Result find(Map<Long, ? extends Collection<Path>> sizeGroups) {
+        return find(sizeGroups, HashCache.NONE);
+    }
+
+    public static Result find(Map<Long, ? extends Collection<Path>> sizeGroups, HashCache cache) {
+        long start = System.nanoTime();
+        LongAdder files = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Semaphore io = new Semaphore(IO_CONCURRENCY);
+
+        try {
+            // Stage 1: size collisions (empty files are never interesting)
+            List<Group> groups = new ArrayList<>();
+            sizeGroups.forEach((size, paths) -> {
+                if (size > 0 && paths.size() > 1) {
+                    groups.add(new Group(null, paths.stream().map(p -> new Candidate(p, size)).toList()));
+                }
+            });
+
+            // Stage 2: first/last 4 KB
+            List<Group> partialMatches = regroup(groups, pool, io, files, bytes, cache, false,
+                    FileHasher::partialHash, FileHasher::partialBytes);
+
+            // Stage 3: full content, skipped for files the partial hash already covered
+            List<Group> needFull = new ArrayList<>();
+            List<DuplicateSet> sets = new ArrayList<>();
+            for (Group group : partialMatches) {
+                if (FileHasher.partialIsComplete(group.members().get(0).size())) {
+                    sets.add(toSet(group));
+                } else {
+                    needFull.add(group);
+                }
+            }
+            for (Group group : regroup(needFull, pool, io, files, bytes, cache, true, FileHasher::fullHash, size -> size)) {
+                sets.add(toSet(group));
+            }
+
+            sets.sort(Comparator.comparingLong(DuplicateSet::reclaimableBytes).reversed());
+            Result result = new Result(sets, files.sum(), bytes.sum(), System.nanoTime() - start);
+            FILES_HASHED.add(result.filesHashed());
+            BYTES_HASHED.add(result.bytesHashed());
+            DURATION.recordNanos(result.elapsedNanos());
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Hashes every candidate in parallel and splits each group by hash, keeping groups of 2+
+    private static List<Group> regroup(List<Group> groups, ExecutorService pool, Semaphore io,
+            LongAdder files, LongAdder bytes, HashCache cache, boolean full, HashFunction function,
+            LongUnaryOperator bytesRead) {
+        Map<String, List<Candidate>> byHash = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (Group group : groups) {
+            for (Candidate c : group.members()) {
+                tasks.add(() -> {
+                    String hash = cache.get(c.path(), full);
+                    if (hash == null) {
+                        io.acquireUninterruptibly();
+                        try {
+                            hash = function.hash(c.path(), c.size());
+                            files.increment();
+                            bytes.add(bytesRead.applyAsLong(c.size()));
+                            cache.put(c.path(), full, hash);
+                        } catch (IOException e) {
+                            // Unreadable or vanished file, drop it from the pipeline
+                            return null;
+                        } finally {
+                            io.release();
+                        }
+                    }
+                    byHash.compute(c.size() + ":" + hash, (k, list) -> {
+                        List<Candidate> members = list == null ? new ArrayList<>() : list;
+                        members.add(c);
+                        return members;
+                    });
+                    return null;
+                });
+            }
+        }
+
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        List<Group> result = new ArrayList<>();
+        byHash.forEach((key, members) -> {
+            if (members.size() > 1) {
+                result.add(new Group(key.substring(key.indexOf(':') + 1), members));
+            }
+        });
+        return result;
+    }
+
+    private static DuplicateSet toSet(Group group) {
+        List<Path> paths = group.members().stream().map(Candidate::path).sorted().toList();
+        return new DuplicateSet(group.members().get(0).size(), group.hash(), paths);
+    }
+}
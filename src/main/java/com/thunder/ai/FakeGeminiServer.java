@@ -0,0 +1,177 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Embedded stand-in for the Gemini REST API, answering from LocalBackend's rules.
+// Speaks generateContent, streamGenerateContent (SSE) and the model list, with
+// a configurable delay and error rate, so GeminiClient and everything above it
+// can be exercised and load-tested without network access.
+public class FakeGeminiServer {
+
+    private static final String USER_MARKER = "User:";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private FakeGeminiServer(int port, long latencyMillis, double errorRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-gemini");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    // Port 0 picks a free port; see baseUrl()
+    public static FakeGeminiServer start(int port, long latencyMillis, double errorRate) throws IOException {
+        FakeGeminiServer fake = new FakeGeminiServer(port, latencyMillis, errorRate);
+        fake.server.start();
+        return fake;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                // GeminiClient.warmUp opening the connection; a HEAD answer has no body
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod()) && path.endsWith("/models")) {
+                send(exchange, 200, "application/json", modelList());
+                return;
+            }
+
+            boolean streaming = path.endsWith(":streamGenerateContent");
+            if (!"POST".equals(exchange.getRequestMethod()) || !(streaming || path.endsWith(":generateContent"))) {
+                send(exchange, 404, "application/json", error(404, "NOT_FOUND", "Unknown method " + path));
+                return;
+            }
+
+            boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            String instruction = instruction(gzip ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody());
+            sleep(latencyMillis);
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                // Mix the two failures GeminiClient has to survive in production
+                boolean quota = ThreadLocalRandom.current().nextBoolean();
+                if (quota) exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, quota ? 429 : 500, "application/json", quota
+                        ? error(429, "RESOURCE_EXHAUSTED", "Resource has been exhausted (fake)")
+                        : error(500, "INTERNAL", "Internal error encountered (fake)"));
+                return;
+            }
+
+            String command = instruction == null ? null : LocalBackend.translate(instruction);
+            String answer = command != null ? command : "echo \"no local rule for: " + String.valueOf(instruction).replace("\"", "'") + "\"";
+            if (streaming) {
+                sendStream(exchange, answer);
+            } else {
+                send(exchange, 200, "application/json", candidate(answer));
+            }
+        }
+    }
+
+    // The user's words: the whole user turn when the prompt came as systemInstruction,
+    // else whatever follows the last "User:" of the older inline prompt
+    private String instruction(InputStream body) throws IOException {
+        JsonNode root = mapper.readTree(body);
+        String prompt = root.path("contents").path(0).path("parts").path(0).path("text").asText(null);
+        if (prompt == null) return null;
+        if (root.has("systemInstruction")) return prompt.trim();
+        int at = prompt.lastIndexOf(USER_MARKER);
+        return at < 0 ? prompt.trim() : prompt.substring(at + USER_MARKER.length()).trim();
+    }
+
+    // Splits the answer into word-sized chunks, one SSE event each, like the real API
+    private void sendStream(HttpExchange exchange, String answer) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int start = 0;
+        while (start < answer.length()) {
+            int end = answer.indexOf(' ', start + 1);
+            end = end < 0 ? answer.length() : end;
+            String event = "data: " + candidate(answer.substring(start, end)) + "\r\n\r\n";
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            start = end;
+        }
+    }
+
+    private String candidate(String text) throws IOException {
+        return mapper.writeValueAsString(Map.of("candidates", List.of(Map.of(
+                "content", Map.of("role", "model", "parts", List.of(Map.of("text", text)))))));
+    }
+
+    private String error(int code, String status, String message) throws IOException {
+        return mapper.writeValueAsString(Map.of("error", Map.of("code", code, "status", status, "message", message)));
+    }
+
+    private String modelList() throws IOException {
+        return mapper.writeValueAsString(Map.of("models", List.of(
+                Map.of("name", "models/gemini-2.5-flash"),
+                Map.of("name", "models/gemini-2.0-flash"))));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Receives every regular file found by ScanEngine. onFile is called concurrently
+// from the scan workers, so implementations must be thread-safe.
+public interface FileAnalyzer {
+
+    void onFile(Path file, BasicFileAttributes attrs);
+
+    // ScanEngine calls this one, with the same dir instance for every file in a folder,
+    // so analyzers that group by folder can skip file.getParent()
+    default void onFile(Path dir, Path file, BasicFileAttributes attrs) {
+        onFile(file, attrs);
+    }
+
+    // Called once after the walk has finished
+    void report();
+}
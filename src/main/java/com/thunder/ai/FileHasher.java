@@ -0,0 +1,84 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Content hashing used for duplicate detection. Partial hashes cover the first
+// and last 4 KB; full hashes stream the whole file, memory-mapping large ones.
+public class FileHasher {
+
+    public static final int PARTIAL_BLOCK = 4 * 1024;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER));
+
+    // True when the partial hash already covers every byte of the file
+    public static boolean partialIsComplete(long size) {
+        return size <= 2L * PARTIAL_BLOCK;
+    }
+
+    public static String partialHash(Path file, long size) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (partialIsComplete(size)) {
+                readRange(channel, digest, 0, size);
+            } else {
+                readRange(channel, digest, 0, PARTIAL_BLOCK);
+                readRange(channel, digest, size - PARTIAL_BLOCK, PARTIAL_BLOCK);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String fullHash(Path file, long size) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (size >= MAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos));
+                    digest.update(mapped);
+                }
+            } else {
+                readRange(channel, digest, 0, size);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Number of bytes partialHash reads for a file of this size
+    public static long partialBytes(long size) {
+        return partialIsComplete(size) ? size : 2L * PARTIAL_BLOCK;
+    }
+
+    private static void readRange(FileChannel channel, MessageDigest digest, long position, long length) throws IOException {
+        ByteBuffer buffer = buffers.get();
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int n = channel.read(buffer, position);
+            if (n < 0) break; // file shrank while scanning
+            position += n;
+            buffer.flip();
+            digest.update(buffer);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.thunder.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Persistent metadata index for one scan root: size, mtime, atime and content
+// hashes per file, grouped by directory. A refresh only re-lists directories
+// whose mtime changed (or that the watcher marked dirty). In the others each
+// file is stat'ed again, since editing a file in place leaves its directory's
+// mtime alone, and only files whose size and mtime still match keep their
+// hashes. The same stat refreshes the access time, so rare-file reports see
+// files read since they were indexed. Stored as a compact binary file that is
+// memory-mapped on load.
+public class FileIndex implements DuplicateFinder.HashCache {
+
+    private static final int MAGIC = 0x41494958; // "AIIX"
+    private static final int VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    private static final Path INDEX_DIR = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "index");
+
+    private static final Map<Path, FileIndex> open = new ConcurrentHashMap<>();
+
+    private static final Metrics.Timer REFRESH = Metrics.timer("index_refresh_seconds", "Wall time of one index refresh");
+    private static final Metrics.Counter RELISTED = Metrics.counter("index_relisted_directories_total",
+            "Directories listed again because they changed since the last refresh");
+
+    private final Path root;
+    private final Path file;
+    private volatile Map<String, DirEntry> dirs = new ConcurrentHashMap<>();
+    private volatile boolean modified = false;
+
+    public record RefreshResult(long files, long directories, long relisted, long elapsedNanos) {
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+
+    static final class DirEntry {
+        final long mtime;
+        final List<String> subdirs;
+        final Map<String, FileRecord> files;
+        volatile boolean dirty = false;
+
+        DirEntry(long mtime, List<String> subdirs, Map<String, FileRecord> files) {
+            this.mtime = mtime;
+            this.subdirs = subdirs;
+            this.files = files;
+        }
+    }
+
+    static final class FileRecord implements BasicFileAttributes {
+        final long size;
+        final long mtime;
+        final long atime;
+        volatile String partialHash;
+        volatile String fullHash;
+
+        FileRecord(long size, long mtime, long atime, String partialHash, String fullHash) {
+            this.size = size;
+            this.mtime = mtime;
+            this.atime = atime;
+            this.partialHash = partialHash;
+            this.fullHash = fullHash;
+        }
+
+        public FileTime lastModifiedTime() { return FileTime.fromMillis(mtime); }
+        public FileTime lastAccessTime() { return FileTime.fromMillis(atime); }
+        public FileTime creationTime() { return FileTime.fromMillis(mtime); }
+        public boolean isRegularFile() { return true; }
+        public boolean isDirectory() { return false; }
+        public boolean isSymbolicLink() { return false; }
+        public boolean isOther() { return false; }
+        public long size() { return size; }
+        public Object fileKey() { return null; }
+    }
+
+    private FileIndex(Path root) {
+        this.root = root;
+        this.file = INDEX_DIR.resolve(keyFor(root) + ".idx");
+    }
+
+    // One shared instance per root, loaded from disk on first use
+    public static FileIndex forRoot(Path path) {
+        Path root = path.toAbsolutePath().normalize();
+        return open.computeIfAbsent(root, r -> {
+            FileIndex index = new FileIndex(r);
+            index.load();
+            return index;
+        });
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public synchronized RefreshResult refresh() {
+        long start = System.nanoTime();
+        Map<String, DirEntry> next = new ConcurrentHashMap<>();
+        LongAdder relisted = new LongAdder();
+        LongAdder changed = new LongAdder();
+        ScanEngine.pool().invoke(new RefreshTask(root, "", dirs, next, relisted, changed));
+        if (relisted.sum() > 0 || changed.sum() > 0 || next.size() != dirs.size()) {
+            modified = true;
+        }
+        dirs = next;
+
+        long files = 0;
+        for (DirEntry d : next.values()) {
+            files += d.files.size();
+        }
+        RefreshResult result = new RefreshResult(files, next.size(), relisted.sum(), System.nanoTime() - start);
+        REFRESH.recordNanos(result.elapsedNanos());
+        RELISTED.add(result.relisted());
+        return result;
+    }
+
+    // Feeds every indexed file to the analyzers, same contract as ScanEngine
+    public synchronized void forEach(FileAnalyzer... analyzers) {
+        dirs.entrySet().parallelStream().forEach(e -> {
+            Path dir = e.getKey().isEmpty() ? root : root.resolve(e.getKey());
+            e.getValue().files.forEach((name, record) -> {
+                Path p = dir.resolve(name);
+                for (FileAnalyzer analyzer : analyzers) {
+                    analyzer.onFile(p, record);
+                }
+            });
+        });
+    }
+
+    // Forces the directory to be re-listed on the next refresh
+    public void invalidate(Path dir) {
+        DirEntry entry = dirs.get(relative(dir));
+        if (entry != null) {
+            entry.dirty = true;
+        }
+    }
+
+    public void invalidateAll() {
+        dirs.values().forEach(d -> d.dirty = true);
+    }
+
+    public Collection<Path> directories() {
+        List<Path> result = new ArrayList<>();
+        for (String rel : dirs.keySet()) {
+            result.add(rel.isEmpty() ? root : root.resolve(rel));
+        }
+        return result;
+    }
+
+    @Override
+    public String get(Path file, boolean full) {
+        FileRecord record = lookup(file);
+        if (record == null) return null;
+        return full ? record.fullHash : record.partialHash;
+    }
+
+    @Override
+    public void put(Path file, boolean full, String hash) {
+        FileRecord record = lookup(file);
+        if (record == null) return;
+        if (full) {
+            record.fullHash = hash;
+        } else {
+            record.partialHash = hash;
+        }
+        modified = true;
+    }
+
+    private FileRecord lookup(Path file) {
+        Path parent = file.toAbsolutePath().normalize().getParent();
+        DirEntry entry = parent == null ? null : dirs.get(relative(parent));
+        return entry == null ? null : entry.files.get(file.getFileName().toString());
+    }
+
+    private String relative(Path dir) {
+        Path abs = dir.toAbsolutePath().normalize();
+        return abs.equals(root) ? "" : root.relativize(abs).toString();
+    }
+
+    private static final class RefreshTask extends RecursiveAction {
+        private final Path dir;
+        private final String rel;
+        private final Map<String, DirEntry> previous;
+        private final Map<String, DirEntry> next;
+        private final LongAdder relisted;
+        private final LongAdder changed;
+
+        RefreshTask(Path dir, String rel, Map<String, DirEntry> previous, Map<String, DirEntry> next,
+                LongAdder relisted, LongAdder changed) {
+            this.dir = dir;
+            this.rel = rel;
+            this.previous = previous;
+            this.next = next;
+            this.relisted = relisted;
+            this.changed = changed;
+        }
+
+        @Override
+        protected void compute() {
+            long mtime;
+            try {
+                mtime = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                        .lastModifiedTime().toMillis();
+            } catch (IOException e) {
+                return; // directory vanished
+            }
+
+            DirEntry old = previous.get(rel);
+            DirEntry entry = old;
+            if (old == null || old.dirty || old.mtime != mtime) {
+                entry = list(mtime, old);
+                relisted.increment();
+            } else {
+                entry = restat(old);
+            }
+            next.put(rel, entry);
+
+            List<RefreshTask> subtasks = new ArrayList<>();
+            for (String name : entry.subdirs) {
+                Path child = dir.resolve(name);
+                RefreshTask task = new RefreshTask(child, rel.isEmpty() ? name : Paths.get(rel, name).toString(),
+                        previous, next, relisted, changed);
+                task.fork();
+                subtasks.add(task);
+            }
+            for (RefreshTask task : subtasks) {
+                task.join();
+            }
+        }
+
+        // Same names as last time; picks up files edited in place, dropping their hashes,
+        // and files only read since, keeping them but with the new access time
+        private DirEntry restat(DirEntry old) {
+            Map<String, FileRecord> files = null;
+            for (Map.Entry<String, FileRecord> e : old.files.entrySet()) {
+                FileRecord prev = e.getValue();
+                FileRecord now;
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(dir.resolve(e.getKey()), BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    long size = attrs.size();
+                    long modified = attrs.lastModifiedTime().toMillis();
+                    long accessed = attrs.lastAccessTime().toMillis();
+                    if (size == prev.size && modified == prev.mtime) {
+                        if (accessed == prev.atime) continue;
+                        now = new FileRecord(size, modified, accessed, prev.partialHash, prev.fullHash);
+                    } else {
+                        now = new FileRecord(size, modified, accessed, null, null);
+                    }
+                } catch (IOException ex) {
+                    now = null; // gone
+                }
+                if (files == null) files = new HashMap<>(old.files);
+                if (now == null) {
+                    files.remove(e.getKey());
+                } else {
+                    files.put(e.getKey(), now);
+                }
+                changed.increment();
+            }
+            return files == null ? old : new DirEntry(old.mtime, old.subdirs, files);
+        }
+
+        private DirEntry list(long mtime, DirEntry old) {
+            List<String> subdirs = new ArrayList<>();
+            Map<String, FileRecord> files = new HashMap<>();
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        String name = file.getFileName().toString();
+                        if (attrs.isDirectory()) {
+                            subdirs.add(name);
+                        } else if (attrs.isRegularFile()) {
+                            long size = attrs.size();
+                            long modified = attrs.lastModifiedTime().toMillis();
+                            FileRecord prev = old == null ? null : old.files.get(name);
+                            // Only unchanged files keep their hashes
+                            boolean same = prev != null && prev.size == size && prev.mtime == modified;
+                            files.put(name, new FileRecord(size, modified, attrs.lastAccessTime().toMillis(),
+                                    same ? prev.partialHash : null, same ? prev.fullHash : null));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                // Keep whatever was listed
+            }
+            return new DirEntry(mtime, subdirs, files);
+        }
+    }
+
+    public synchronized void save() {
+        if (!modified) return;
+        try {
+            Files.createDirectories(INDEX_DIR);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, root.toString());
+                out.writeInt(dirs.size());
+                for (Map.Entry<String, DirEntry> e : dirs.entrySet()) {
+                    DirEntry d = e.getValue();
+                    writeString(out, e.getKey());
+                    // A dirty directory is stored with an impossible mtime so the next run re-lists it
+                    out.writeLong(d.dirty ? Long.MIN_VALUE : d.mtime);
+                    out.writeInt(d.subdirs.size());
+                    for (String s : d.subdirs) {
+                        writeString(out, s);
+                    }
+                    out.writeInt(d.files.size());
+                    for (Map.Entry<String, FileRecord> f : d.files.entrySet()) {
+                        FileRecord r = f.getValue();
+                        writeString(out, f.getKey());
+                        out.writeLong(r.size);
+                        out.writeLong(r.mtime);
+                        out.writeLong(r.atime);
+                        String partial = r.partialHash;
+                        String full = r.fullHash;
+                        out.writeByte((partial != null ? 1 : 0) | (full != null ? 2 : 0));
+                        if (partial != null) out.write(HexFormat.of().parseHex(partial));
+                        if (full != null) out.write(HexFormat.of().parseHex(full));
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not save file index: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION || !readString(buf).equals(root.toString())) {
+                return; // foreign or outdated format, rebuild from scratch
+            }
+            Map<String, DirEntry> loaded = new ConcurrentHashMap<>();
+            int dirCount = buf.getInt();
+            for (int i = 0; i < dirCount; i++) {
+                String rel = readString(buf);
+                long mtime = buf.getLong();
+                int subdirCount = buf.getInt();
+                List<String> subdirs = new ArrayList<>(subdirCount);
+                for (int j = 0; j < subdirCount; j++) {
+                    subdirs.add(readString(buf));
+                }
+                int fileCount = buf.getInt();
+                Map<String, FileRecord> files = new HashMap<>(fileCount * 2);
+                for (int j = 0; j < fileCount; j++) {
+                    String name = readString(buf);
+                    long size = buf.getLong();
+                    long modified = buf.getLong();
+                    long atime = buf.getLong();
+                    byte flags = buf.get();
+                    String partial = (flags & 1) != 0 ? readHash(buf) : null;
+                    String full = (flags & 2) != 0 ? readHash(buf) : null;
+                    files.put(name, new FileRecord(size, modified, atime, partial, full));
+                }
+                loaded.put(rel, new DirEntry(mtime, subdirs, files));
+            }
+            dirs = loaded;
+        } catch (IOException | RuntimeException e) {
+            // Corrupt index, start over
+            dirs = new ConcurrentHashMap<>();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readHash(MappedByteBuffer buf) {
+        byte[] bytes = new byte[HASH_BYTES];
+        buf.get(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static String keyFor(Path root) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (Exception e) {
+            return Integer.toHexString(root.hashCode());
+        }
+    }
+}
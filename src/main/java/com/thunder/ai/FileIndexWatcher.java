@@ -0,0 +1,120 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Keeps open FileIndex instances warm while the REPL runs. Change events mark the
+// affected directory dirty; once the tree has been quiet for a moment the index
+// is refreshed (re-listing only the dirty directories) and saved.
+public class FileIndexWatcher {
+
+    // Registering a watch per directory is not free, so very large trees fall back to mtime checks
+    private static final int MAX_WATCHED_DIRS = 10_000;
+    private static final long QUIET_PERIOD_SECONDS = 2;
+
+    private static WatchService watchService = null;
+    private static Thread thread = null;
+    private static final Map<WatchKey, Registration> keys = new ConcurrentHashMap<>();
+    private static final Set<FileIndex> dirtyIndexes = ConcurrentHashMap.newKeySet();
+
+    private record Registration(FileIndex index, Path dir) {}
+
+    public static synchronized void watch(FileIndex index) {
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                thread = new Thread(FileIndexWatcher::run, "index-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            register(index);
+        } catch (IOException e) {
+            System.out.println("⚠️ File watcher unavailable: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        watchService = null;
+        keys.clear();
+    }
+
+    private static void register(FileIndex index) {
+        Set<Path> watched = ConcurrentHashMap.newKeySet();
+        keys.forEach((key, reg) -> {
+            if (reg.index() == index) watched.add(reg.dir());
+        });
+
+        for (Path dir : index.directories()) {
+            if (keys.size() >= MAX_WATCHED_DIRS) break;
+            if (watched.contains(dir)) continue;
+            try {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, new Registration(index, dir));
+            } catch (IOException e) {
+                // Directory vanished or is not watchable
+            }
+        }
+    }
+
+    private static void run() {
+        while (true) {
+            WatchService ws = watchService;
+            if (ws == null) return;
+
+            try {
+                WatchKey key = ws.poll(QUIET_PERIOD_SECONDS, TimeUnit.SECONDS);
+                if (key == null) {
+                    refreshDirty();
+                    continue;
+                }
+
+                Registration reg = keys.get(key);
+                if (reg != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            reg.index().invalidateAll();
+                        } else {
+                            reg.index().invalidate(reg.dir());
+                        }
+                    }
+                    dirtyIndexes.add(reg.index());
+                }
+                if (!key.reset()) {
+                    keys.remove(key);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private static void refreshDirty() {
+        for (FileIndex index : dirtyIndexes) {
+            dirtyIndexes.remove(index);
+            index.refresh();
+            index.save();
+            synchronized (FileIndexWatcher.class) {
+                if (watchService != null) {
+                    register(index); // pick up newly created folders
+                }
+            }
+        }
+    }
+}
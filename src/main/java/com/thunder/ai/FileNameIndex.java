@@ -0,0 +1,856 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/*
+ * In-memory, locate-style index of the names under one root, behind "list all
+ * files", "search by file type", "find files named" and "count files in". Built
+ * by one parallel walk that reads nothing but directory entries, then kept
+ * current by FileNameIndexWatcher, which hands over each name that appears or
+ * disappears.
+ *
+ * Everything lives in growable int arrays, so a file costs little more than its
+ * name, and every name is stored once however many folders repeat it:
+ *
+ *   names      - each distinct file or folder name (path segment), interned
+ *   folders    - parent, name, direct file count, children and files as chains
+ *   files      - folder and name; files sharing a name are chained
+ *   trigrams   - lower-cased 3-char window -> the file names containing it
+ *   extensions - lower-cased extension -> the file names ending in it
+ *
+ * A substring or glob query verifies only the names listed under its rarest
+ * trigram, or for one or two letters the names under trigrams holding them.
+ * Deleted entries are tombstoned and squeezed out once they make up a quarter
+ * of the table. Queries share a read lock; updates take the write lock.
+ */
+public class FileNameIndex {
+
+    private static final double MAX_DEAD_SHARE = 0.25;
+    private static final int MIN_DEAD_TO_COMPACT = 4096;
+
+    private static final Map<Path, FileNameIndex> open = new ConcurrentHashMap<>();
+
+    private static final Metrics.Timer BUILD = Metrics.timer("name_index_build_seconds", "Wall time of the walk that builds a file name index");
+    private static final Metrics.Timer QUERY = Metrics.timer("name_index_query_seconds", "Time to answer one file name index query");
+    private static final Metrics.Counter UPDATES = Metrics.counter("name_index_updates_total",
+            "Files and folders added to or removed from a name index after it was built");
+
+    public record BuildResult(long files, long folders, long elapsedNanos) {
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+
+    // paths holds the first `limit` matches, total counts all of them
+    public record Hits(List<Path> paths, long total, long elapsedNanos) {
+
+        public double elapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+    }
+
+    // Files and folders anywhere below folder
+    public record FolderCount(Path folder, long files, long folders) {}
+
+    public record Counts(FolderCount folder, List<FolderCount> subfolders, long elapsedNanos) {
+
+        public double elapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+    }
+
+    // bytes is an estimate of the heap held by the index
+    public record Stats(long files, long folders, int names, int trigrams, int extensions, long bytes) {
+
+        public long bytesPerFile() {
+            return files == 0 ? 0 : bytes / files;
+        }
+    }
+
+    private final Path root;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Tables tables = new Tables();
+    private BuildResult built;
+
+    private FileNameIndex(Path root) {
+        this.root = root;
+    }
+
+    // The open index that covers folder, or null
+    public static FileNameIndex covering(Path folder) {
+        Path abs = folder.toAbsolutePath().normalize();
+        for (FileNameIndex index : open.values()) {
+            if (abs.startsWith(index.root) && index.hasFolder(abs)) return index;
+        }
+        return null;
+    }
+
+    private boolean hasFolder(Path folder) {
+        lock.readLock().lock();
+        try {
+            return folderId(folder) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The index rooted at folder, walking it now if it is not open yet
+    public static FileNameIndex open(Path folder) {
+        return open.computeIfAbsent(folder.toAbsolutePath().normalize(), r -> {
+            FileNameIndex index = new FileNameIndex(r);
+            index.build();
+            return index;
+        });
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public BuildResult lastBuild() {
+        return built;
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        long mtime;
+        try {
+            mtime = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            mtime = 0;
+        }
+        Node tree = ScanEngine.pool().invoke(new Walk(root, "", mtime));
+        lock.writeLock().lock();
+        try {
+            Tables t = new Tables();
+            fill(t, t.addDir(-1, "", mtime), tree, null, null);
+            tables = t;
+            built = new BuildResult(t.liveFiles, t.liveDirs, System.nanoTime() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        BUILD.recordNanos(built.elapsedNanos());
+    }
+
+    // Every file below folder, the first `limit` of them by folder
+    public Hits list(Path folder, int limit) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            int top = folderId(folder);
+            if (top < 0) return hits(List.of(), 0, start);
+            List<Path> paths = new ArrayList<>(Math.min(limit, 1024));
+            long[] total = {0};
+            t.subtree(top, d -> {
+                total[0] += t.dirFiles[d];
+                if (paths.size() >= limit || t.dirFiles[d] == 0) return;
+                Path dir = path(t, d);
+                for (int f = t.firstFileInDir[d]; f >= 0 && paths.size() < limit; f = t.nextInDir[f]) {
+                    if (t.live(f)) paths.add(dir.resolve(t.segments[t.fileName[f]]));
+                }
+            });
+            return hits(paths, total[0], start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Files with this extension ("pdf", ".pdf" or "*.pdf"), any case. Only the last
+    // one is indexed, so a double extension like "tar.gz" is answered as a glob
+    public Hits byExtension(String extension, Path folder, int limit) {
+        String key = extension.replaceFirst("^\\*?\\.", "").toLowerCase(Locale.ROOT);
+        if (key.indexOf('.') >= 0) return matching("*." + key, folder, limit);
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            Ints names = t.extensions.get(key);
+            return collect(t, names == null ? null : names.iterator(), null, folder, limit, start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Files whose name contains pattern (any case), or matches it when it holds * or ?
+    public Hits matching(String pattern, Path folder, int limit) {
+        boolean glob = pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+        if (glob && pattern.matches("\\*\\.[^*?.]+")) return byExtension(pattern, folder, limit);
+
+        long start = System.nanoTime();
+        // Every match contains each run between wildcards
+        String[] literals = glob ? pattern.split("[*?]") : new String[] {pattern};
+        Predicate<String> test = glob
+                ? Pattern.compile(globToRegex(pattern), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).asMatchPredicate()
+                : name -> containsIgnoreCase(name, pattern);
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            return collect(t, t.candidates(literals), test, folder, limit, start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Files and folders below folder, and the same for each subfolder, biggest first
+    public Counts counts(Path folder, int limit) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            int top = folderId(folder);
+            if (top < 0) return new Counts(new FolderCount(folder, 0, 0), List.of(), System.nanoTime() - start);
+            List<FolderCount> subfolders = new ArrayList<>();
+            long files = t.dirFiles[top];
+            long folders = 0;
+            for (int c = t.firstChild[top]; c >= 0; c = t.nextSibling[c]) {
+                long[] sum = {0, 0};
+                t.subtree(c, d -> {
+                    sum[0] += t.dirFiles[d];
+                    sum[1]++;
+                });
+                subfolders.add(new FolderCount(path(t, c), sum[0], sum[1] - 1));
+                files += sum[0];
+                folders += sum[1];
+            }
+            subfolders.sort(Comparator.comparingLong(FolderCount::files).reversed());
+            long elapsed = System.nanoTime() - start;
+            QUERY.recordNanos(elapsed);
+            return new Counts(new FolderCount(path(t, top), files, folders),
+                    subfolders.subList(0, Math.min(limit, subfolders.size())), elapsed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            return new Stats(t.liveFiles, t.liveDirs, t.segmentCount, t.trigrams.size(), t.extensions.size(), t.estimateBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every live folder, for the watcher to register
+    public List<Path> folders() {
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            List<Path> folders = new ArrayList<>((int) t.liveDirs);
+            t.subtree(0, d -> folders.add(path(t, d)));
+            return folders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * A name appeared in dir. A file is added; a folder is walked and added with
+     * everything below it, and returned with its subfolders so they can be
+     * watched too. Names already indexed, or gone again, are ignored.
+     */
+    public List<Path> created(Path dir, String name) {
+        Path path = dir.resolve(name);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return List.of();
+        }
+        // The walk runs before the lock is taken, so queries are not held up by it
+        Node subtree = attrs.isDirectory()
+                ? ScanEngine.pool().invoke(new Walk(path, name, attrs.lastModifiedTime().toMillis()))
+                : null;
+
+        lock.writeLock().lock();
+        try {
+            Tables t = tables;
+            int d = folderId(dir);
+            if (d < 0) return List.of();
+            if (subtree == null) {
+                if (t.child(d, name) >= 0 || t.fileIn(d, name) >= 0) return List.of();
+                t.addFile(d, name);
+                UPDATES.increment();
+                return List.of();
+            }
+            if (t.child(d, name) >= 0 || t.fileIn(d, name) >= 0) return List.of();
+            List<Path> added = new ArrayList<>();
+            added.add(path);
+            fill(t, t.addDir(d, name, subtree.mtime()), subtree, path, added);
+            UPDATES.increment();
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A name disappeared from dir; a folder takes everything below it along
+    public void deleted(Path dir, String name) {
+        lock.writeLock().lock();
+        try {
+            Tables t = tables;
+            int d = folderId(dir);
+            if (d < 0) return;
+            int child = t.child(d, name);
+            if (child >= 0) {
+                t.removeDir(child);
+            } else {
+                int f = t.fileIn(d, name);
+                if (f < 0) return;
+                t.removeFile(f);
+            }
+            UPDATES.increment();
+            if (t.deadSlots >= MIN_DEAD_TO_COMPACT && t.deadSlots > t.liveFiles * MAX_DEAD_SHARE) {
+                tables = t.compacted();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Brings one folder in line with the disk, for when events were lost (watch
+     * queue overflow) or the folder is not watched at all. Returns the folders
+     * that were added.
+     */
+    public List<Path> relist(Path dir) {
+        Map<String, Boolean> onDisk = new HashMap<>();
+        long mtime;
+        try {
+            mtime = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).lastModifiedTime().toMillis();
+            Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    onDisk.put(file.getFileName().toString(), attrs.isDirectory());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            return List.of(); // gone; its parent's events take it out
+        }
+
+        Map<String, Boolean> indexed = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Tables t = tables;
+            int d = folderId(dir);
+            if (d < 0) return List.of();
+            for (int c = t.firstChild[d]; c >= 0; c = t.nextSibling[c]) {
+                indexed.put(t.segments[t.dirName[c]], true);
+            }
+            for (int f = t.firstFileInDir[d]; f >= 0; f = t.nextInDir[f]) {
+                if (t.live(f)) indexed.put(t.segments[t.fileName[f]], false);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Path> added = new ArrayList<>();
+        indexed.forEach((name, isDir) -> {
+            if (!isDir.equals(onDisk.get(name))) deleted(dir, name);
+        });
+        onDisk.forEach((name, isDir) -> {
+            if (!isDir.equals(indexed.get(name))) added.addAll(created(dir, name));
+        });
+
+        lock.writeLock().lock();
+        try {
+            int d = folderId(dir);
+            if (d >= 0) tables.dirMtime[d] = mtime;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return added;
+    }
+
+    // Relists dir only if its modification time moved since it was last listed
+    public List<Path> relistIfChanged(Path dir) {
+        long mtime;
+        try {
+            mtime = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int d = folderId(dir);
+            if (d < 0 || tables.dirMtime[d] == mtime) return List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return relist(dir);
+    }
+
+    private Hits collect(Tables t, PrimitiveIterator.OfInt names, Predicate<String> test, Path folder, int limit, long start) {
+        List<Path> paths = new ArrayList<>(Math.min(limit, 1024));
+        long total = 0;
+        if (names != null) {
+            int top = folderId(folder);
+            if (top < 0) return hits(paths, 0, start);
+            BitSet scope = null;
+            if (top != 0) {
+                BitSet inside = new BitSet();
+                t.subtree(top, inside::set);
+                scope = inside;
+            }
+            while (names.hasNext()) {
+                int s = names.nextInt();
+                if (test != null && !test.test(t.segments[s])) continue;
+                for (int f = t.firstFile[s]; f >= 0; f = t.nextSameName[f]) {
+                    if (!t.live(f) || (scope != null && !scope.get(t.fileDir[f]))) continue;
+                    total++;
+                    if (paths.size() < limit) paths.add(path(t, t.fileDir[f]).resolve(t.segments[s]));
+                }
+            }
+        }
+        paths.sort(null);
+        return hits(paths, total, start);
+    }
+
+    private static Hits hits(List<Path> paths, long total, long start) {
+        long elapsed = System.nanoTime() - start;
+        QUERY.recordNanos(elapsed);
+        return new Hits(paths, total, elapsed);
+    }
+
+    // Adds the walked contents of a folder; `added` collects new folder paths when not null
+    private static void fill(Tables t, int dir, Node node, Path path, List<Path> added) {
+        for (String file : node.files()) {
+            t.addFile(dir, file);
+        }
+        for (Node sub : node.folders()) {
+            Path subPath = added == null ? null : path.resolve(sub.name());
+            if (added != null) added.add(subPath);
+            fill(t, t.addDir(dir, sub.name(), sub.mtime()), sub, subPath, added);
+        }
+    }
+
+    private int folderId(Path folder) {
+        Path abs = folder.toAbsolutePath().normalize();
+        if (!abs.startsWith(root)) return -1;
+        if (abs.equals(root)) return 0;
+        int d = 0;
+        for (Path part : root.relativize(abs)) {
+            d = tables.child(d, part.toString());
+            if (d < 0) return -1;
+        }
+        return d;
+    }
+
+    private Path path(Tables t, int dir) {
+        Deque<String> parts = new ArrayDeque<>();
+        for (int d = dir; d != 0; d = t.dirParent[d]) {
+            parts.push(t.segments[t.dirName[d]]);
+        }
+        Path p = root;
+        for (String part : parts) {
+            p = p.resolve(part);
+        }
+        return p;
+    }
+
+    static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && dot < name.length() - 1 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String lowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static long trigram(String s, int i) {
+        return (long) Character.toLowerCase(s.charAt(i)) << 32
+                | (long) Character.toLowerCase(s.charAt(i + 1)) << 16
+                | Character.toLowerCase(s.charAt(i + 2));
+    }
+
+    private static boolean containsIgnoreCase(String name, String part) {
+        for (int i = 0; i + part.length() <= name.length(); i++) {
+            if (name.regionMatches(true, i, part, 0, part.length())) return true;
+        }
+        return false;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) regex.append(Pattern.quote(literal.toString()));
+        return regex.toString();
+    }
+
+    // One folder of a walk: its file names and its walked subfolders
+    private record Node(String name, long mtime, List<String> files, List<Node> folders) {}
+
+    private static final class Walk extends RecursiveTask<Node> {
+        private final Path dir;
+        private final String name;
+        private final long mtime;
+
+        Walk(Path dir, String name, long mtime) {
+            this.dir = dir;
+            this.name = name;
+            this.mtime = mtime;
+        }
+
+        @Override
+        protected Node compute() {
+            List<String> files = new ArrayList<>();
+            List<Walk> subtasks = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        String entry = file.getFileName().toString();
+                        if (attrs.isDirectory()) {
+                            subtasks.add(new Walk(file, entry, attrs.lastModifiedTime().toMillis()));
+                        } else {
+                            files.add(entry);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                // Keep whatever was listed
+            }
+            for (Walk task : subtasks) {
+                task.fork();
+            }
+            List<Node> folders = new ArrayList<>(subtasks.size());
+            for (Walk task : subtasks) {
+                folders.add(task.join());
+            }
+            return new Node(name, mtime, files, folders);
+        }
+    }
+
+    // Growable int list
+    private static final class Ints {
+        int[] values = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        PrimitiveIterator.OfInt iterator() {
+            return Arrays.stream(values, 0, size).iterator();
+        }
+    }
+
+    // The index proper; ids are array slots, -1 ends a chain
+    private static final class Tables {
+        // Names
+        final Map<String, Integer> segmentIds = new HashMap<>();
+        String[] segments = new String[1024];
+        int[] firstFile = new int[1024];
+        final BitSet fileNames = new BitSet();
+        int segmentCount;
+        final Map<Long, Ints> trigrams = new HashMap<>();
+        final Map<String, Ints> extensions = new HashMap<>();
+        final Ints shortNames = new Ints();
+
+        // Folders; 0 is the root
+        int[] dirParent = new int[256];
+        int[] dirName = new int[256];
+        int[] dirFiles = new int[256];
+        int[] firstChild = new int[256];
+        int[] nextSibling = new int[256];
+        int[] firstFileInDir = new int[256];
+        long[] dirMtime = new long[256];
+        final Map<Long, Integer> childIds = new HashMap<>();
+        final BitSet deadDirs = new BitSet();
+        int dirCount;
+
+        // Files
+        int[] fileDir = new int[1024];
+        int[] fileName = new int[1024];
+        int[] nextSameName = new int[1024];
+        int[] nextInDir = new int[1024];
+        final BitSet deadFiles = new BitSet();
+        int fileCount;
+
+        long liveFiles;
+        long liveDirs;
+        long deadSlots;
+
+        int segment(String name) {
+            Integer id = segmentIds.get(name);
+            if (id != null) return id;
+            int s = segmentCount++;
+            if (s == segments.length) {
+                segments = Arrays.copyOf(segments, s * 2);
+                firstFile = Arrays.copyOf(firstFile, s * 2);
+            }
+            segments[s] = name;
+            firstFile[s] = -1;
+            segmentIds.put(name, s);
+            return s;
+        }
+
+        int addDir(int parent, String name, long mtime) {
+            int d = dirCount++;
+            if (d == dirParent.length) {
+                int n = d * 2;
+                dirParent = Arrays.copyOf(dirParent, n);
+                dirName = Arrays.copyOf(dirName, n);
+                dirFiles = Arrays.copyOf(dirFiles, n);
+                firstChild = Arrays.copyOf(firstChild, n);
+                nextSibling = Arrays.copyOf(nextSibling, n);
+                firstFileInDir = Arrays.copyOf(firstFileInDir, n);
+                dirMtime = Arrays.copyOf(dirMtime, n);
+            }
+            int s = segment(name);
+            dirParent[d] = parent;
+            dirName[d] = s;
+            dirFiles[d] = 0;
+            firstChild[d] = -1;
+            firstFileInDir[d] = -1;
+            dirMtime[d] = mtime;
+            nextSibling[d] = -1;
+            if (parent >= 0) {
+                nextSibling[d] = firstChild[parent];
+                firstChild[parent] = d;
+                childIds.put(key(parent, s), d);
+            }
+            liveDirs++;
+            return d;
+        }
+
+        int addFile(int dir, String name) {
+            int f = fileCount++;
+            if (f == fileDir.length) {
+                int n = f * 2;
+                fileDir = Arrays.copyOf(fileDir, n);
+                fileName = Arrays.copyOf(fileName, n);
+                nextSameName = Arrays.copyOf(nextSameName, n);
+                nextInDir = Arrays.copyOf(nextInDir, n);
+            }
+            int s = segment(name);
+            if (!fileNames.get(s)) {
+                fileNames.set(s);
+                indexName(s, name);
+            }
+            fileDir[f] = dir;
+            fileName[f] = s;
+            nextSameName[f] = firstFile[s];
+            firstFile[s] = f;
+            nextInDir[f] = firstFileInDir[dir];
+            firstFileInDir[dir] = f;
+            dirFiles[dir]++;
+            liveFiles++;
+            return f;
+        }
+
+        private void indexName(int s, String name) {
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                Ints postings = trigrams.computeIfAbsent(trigram(name, i), k -> new Ints());
+                // A trigram repeated within the name lists it once
+                if (postings.size == 0 || postings.last() != s) postings.add(s);
+            }
+            if (name.length() < 3) shortNames.add(s);
+            String ext = extension(name);
+            if (ext != null) extensions.computeIfAbsent(ext, k -> new Ints()).add(s);
+        }
+
+        /*
+         * File names that may contain every literal, for the caller to verify: the
+         * postings of the rarest trigram in any literal; failing that, the names with
+         * a trigram holding the longest one- or two-character literal; failing that,
+         * every name. Null when some trigram occurs nowhere, so nothing can match.
+         */
+        PrimitiveIterator.OfInt candidates(String[] literals) {
+            Ints rarest = null;
+            String longestShort = "";
+            for (String literal : literals) {
+                if (literal.length() < 3) {
+                    if (literal.length() > longestShort.length()) longestShort = literal;
+                    continue;
+                }
+                for (int i = 0; i + 3 <= literal.length(); i++) {
+                    Ints postings = trigrams.get(trigram(literal, i));
+                    if (postings == null) return null;
+                    if (rarest == null || postings.size < rarest.size) rarest = postings;
+                }
+            }
+            if (rarest != null) return rarest.iterator();
+            if (longestShort.isEmpty()) return fileNames.stream().iterator();
+
+            String part = lowerCase(longestShort);
+            BitSet names = new BitSet();
+            trigrams.forEach((key, postings) -> {
+                String window = new String(new char[] {(char) (key >>> 32), (char) (key >>> 16), (char) (long) key});
+                if (window.contains(part)) {
+                    for (int i = 0; i < postings.size; i++) {
+                        names.set(postings.values[i]);
+                    }
+                }
+            });
+            for (int i = 0; i < shortNames.size; i++) {
+                names.set(shortNames.values[i]);
+            }
+            return names.stream().iterator();
+        }
+
+        int child(int parent, String name) {
+            Integer s = segmentIds.get(name);
+            if (s == null) return -1;
+            Integer d = childIds.get(key(parent, s));
+            return d == null ? -1 : d;
+        }
+
+        int fileIn(int dir, String name) {
+            Integer s = segmentIds.get(name);
+            if (s == null) return -1;
+            for (int f = firstFile[s]; f >= 0; f = nextSameName[f]) {
+                if (fileDir[f] == dir && live(f)) return f;
+            }
+            return -1;
+        }
+
+        boolean live(int f) {
+            return !deadFiles.get(f) && !deadDirs.get(fileDir[f]);
+        }
+
+        void removeFile(int f) {
+            deadFiles.set(f);
+            dirFiles[fileDir[f]]--;
+            liveFiles--;
+            deadSlots++;
+        }
+
+        // Unlinks the folder and tombstones it with everything below
+        void removeDir(int d) {
+            int parent = dirParent[d];
+            childIds.remove(key(parent, dirName[d]));
+            if (firstChild[parent] == d) {
+                firstChild[parent] = nextSibling[d];
+            } else {
+                for (int c = firstChild[parent]; c >= 0; c = nextSibling[c]) {
+                    if (nextSibling[c] == d) {
+                        nextSibling[c] = nextSibling[d];
+                        break;
+                    }
+                }
+            }
+            subtree(d, x -> {
+                deadDirs.set(x);
+                liveDirs--;
+                liveFiles -= dirFiles[x];
+                deadSlots += dirFiles[x] + 1;
+            });
+        }
+
+        // Visits top and every live folder below it, depth first
+        void subtree(int top, IntConsumer visit) {
+            Ints stack = new Ints();
+            stack.add(top);
+            while (stack.size > 0) {
+                int d = stack.pop();
+                visit.accept(d);
+                for (int c = firstChild[d]; c >= 0; c = nextSibling[c]) {
+                    stack.add(c);
+                }
+            }
+        }
+
+        // The live entries re-added into fresh tables; a parent always has a lower id than its children
+        Tables compacted() {
+            Tables next = new Tables();
+            int[] ids = new int[dirCount];
+            for (int d = 0; d < dirCount; d++) {
+                if (deadDirs.get(d)) continue;
+                ids[d] = next.addDir(d == 0 ? -1 : ids[dirParent[d]], segments[dirName[d]], dirMtime[d]);
+            }
+            for (int f = 0; f < fileCount; f++) {
+                if (live(f)) next.addFile(ids[fileDir[f]], segments[fileName[f]]);
+            }
+            return next;
+        }
+
+        // Rough heap footprint: compact strings, HashMap nodes with boxed keys, and array capacity
+        long estimateBytes() {
+            long bytes = 0;
+            for (int s = 0; s < segmentCount; s++) {
+                bytes += 24 + align(16 + segments[s].length());
+            }
+            bytes += segmentIds.size() * 56L + segments.length * 8L + fileNames.size() / 8;
+            for (Ints postings : trigrams.values()) {
+                bytes += 88 + postings.values.length * 4L;
+            }
+            for (Ints postings : extensions.values()) {
+                bytes += 88 + postings.values.length * 4L;
+            }
+            bytes += dirParent.length * 32L + childIds.size() * 72L + deadDirs.size() / 8;
+            bytes += fileDir.length * 16L + deadFiles.size() / 8;
+            return bytes;
+        }
+
+        private static long align(int bytes) {
+            return (bytes + 7) & ~7L;
+        }
+
+        private static long key(int parent, int segment) {
+            return (long) parent << 32 | segment;
+        }
+    }
+}
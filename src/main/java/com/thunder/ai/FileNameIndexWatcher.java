@@ -0,0 +1,138 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Keeps open FileNameIndex instances current while the REPL runs. Unlike
+// FileIndexWatcher it applies every event as it comes: the created or deleted
+// name is added to or dropped from its folder, so an answer is never a full
+// refresh away. Folders are registered on the watcher thread, checked once after
+// registering for changes made since the walk, and past MAX_WATCHED_DIRS the rest
+// are swept by modification time every SWEEP_SECONDS instead.
+public class FileNameIndexWatcher {
+
+    private static final int MAX_WATCHED_DIRS = 50_000;
+    private static final long POLL_SECONDS = 1;
+    private static final long SWEEP_SECONDS = 30;
+
+    private static WatchService watchService = null;
+    private static Thread thread = null;
+    private static final Map<WatchKey, Registration> keys = new ConcurrentHashMap<>();
+    private static final Set<Path> watched = ConcurrentHashMap.newKeySet();
+    private static final Set<FileNameIndex> partlyWatched = ConcurrentHashMap.newKeySet();
+    private static final Queue<Registration> pending = new ConcurrentLinkedQueue<>();
+
+    private record Registration(FileNameIndex index, Path dir) {}
+
+    public static synchronized void watch(FileNameIndex index) {
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                thread = new Thread(FileNameIndexWatcher::run, "name-index-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            for (Path dir : index.folders()) {
+                pending.add(new Registration(index, dir));
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ File watcher unavailable: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        watchService = null;
+        keys.clear();
+        watched.clear();
+        pending.clear();
+    }
+
+    private static void run() {
+        long nextSweep = System.nanoTime() + TimeUnit.SECONDS.toNanos(SWEEP_SECONDS);
+        while (true) {
+            WatchService ws = watchService;
+            if (ws == null) return;
+
+            try {
+                registerPending(ws);
+                WatchKey key = ws.poll(POLL_SECONDS, TimeUnit.SECONDS);
+                if (key != null) {
+                    Registration reg = keys.get(key);
+                    if (reg != null) apply(reg, key.pollEvents());
+                    if (!key.reset()) {
+                        keys.remove(key);
+                        if (reg != null) watched.remove(reg.dir());
+                    }
+                }
+                if (System.nanoTime() - nextSweep > 0) {
+                    for (FileNameIndex index : partlyWatched) {
+                        for (Path dir : index.folders()) {
+                            if (!watched.contains(dir)) enqueue(index, index.relistIfChanged(dir));
+                        }
+                    }
+                    nextSweep = System.nanoTime() + TimeUnit.SECONDS.toNanos(SWEEP_SECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private static void apply(Registration reg, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                enqueue(reg.index(), reg.index().relist(reg.dir()));
+            } else if (event.context() instanceof Path name) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    enqueue(reg.index(), reg.index().created(reg.dir(), name.toString()));
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    reg.index().deleted(reg.dir(), name.toString());
+                }
+            }
+        }
+    }
+
+    private static void enqueue(FileNameIndex index, List<Path> folders) {
+        for (Path dir : folders) {
+            pending.add(new Registration(index, dir));
+        }
+    }
+
+    private static void registerPending(WatchService ws) {
+        for (Registration reg = pending.poll(); reg != null; reg = pending.poll()) {
+            if (watched.contains(reg.dir())) continue;
+            if (keys.size() >= MAX_WATCHED_DIRS) {
+                partlyWatched.add(reg.index());
+                continue;
+            }
+            try {
+                WatchKey key = reg.dir().register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(key, reg);
+                watched.add(reg.dir());
+            } catch (IOException e) {
+                continue; // vanished or not watchable
+            }
+            // Anything that changed between the walk and now would otherwise be missed
+            enqueue(reg.index(), reg.index().relistIfChanged(reg.dir()));
+        }
+    }
+}
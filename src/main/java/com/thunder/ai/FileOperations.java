@@ -0,0 +1,462 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Recursive delete, copy and move of whole trees on the ScanEngine pool: every
+ * subdirectory is its own fork, so wide trees keep all workers busy. Large files
+ * are copied with FileChannel.transferTo, which the kernel can serve without
+ * copying through the JVM. A failure on one entry is recorded and the rest of the
+ * tree carries on; nothing is dropped silently. A dry run walks the same tree
+ * and only counts what would be touched.
+ *
+ * Moves within one filesystem are a single rename; across filesystems they are a
+ * copy followed by a delete of the source, which only happens if the copy was clean.
+ */
+public class FileOperations {
+
+    public enum Kind { DELETE, COPY, MOVE }
+
+    public record Failure(Path path, String message) {}
+
+    public record Progress(long files, long directories, long bytes, long elapsedNanos) {
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / 1024.0 / 1024.0 * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    // failures holds at most MAX_RECORDED_FAILURES entries; failureCount is the real total
+    public record Result(Kind kind, boolean dryRun, boolean renamed, long files, long directories, long bytes,
+                         List<Failure> failures, long failureCount, long elapsedNanos) {
+
+        public boolean succeeded() {
+            return failureCount == 0;
+        }
+
+        // Entries created or removed (or that would be, for a dry run)
+        public long operations() {
+            return files + directories;
+        }
+
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / 1024.0 / 1024.0 * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+
+    private static final long PROGRESS_MILLIS = 1000;
+    private static final int MAX_RECORDED_FAILURES = 100;
+    // Below this Files.copy is just as fast and copies the attributes in the same call
+    private static final long TRANSFER_THRESHOLD = 1024 * 1024;
+    // transferTo is called in slices so progress moves during one huge file
+    private static final long TRANSFER_SLICE = 64L * 1024 * 1024;
+
+    private static final Metrics.Timer[] TIMERS = new Metrics.Timer[Kind.values().length];
+    private static final Metrics.Counter[] FILES = new Metrics.Counter[Kind.values().length];
+    private static final Metrics.Counter[] BYTES = new Metrics.Counter[Kind.values().length];
+
+    static {
+        for (Kind kind : Kind.values()) {
+            String op = kind.name().toLowerCase(Locale.ROOT);
+            TIMERS[kind.ordinal()] = Metrics.timer("fileops_seconds", "Wall time of one tree delete, copy or move", "op", op);
+            FILES[kind.ordinal()] = Metrics.counter("fileops_files_total", "Files deleted, copied or moved", "op", op);
+            BYTES[kind.ordinal()] = Metrics.counter("fileops_bytes_total", "Bytes deleted, copied or moved", "op", op);
+        }
+    }
+
+    public static Result delete(Path root, boolean dryRun, ProgressListener listener) {
+        BasicFileAttributes attrs = requireExisting(root);
+        if (isProtected(root)) throw new IllegalArgumentException("Refusing to delete " + root);
+        Job job = new Job(Kind.DELETE, dryRun);
+        if (!attrs.isDirectory()) {
+            job.deleteFile(root, attrs);
+            return job.result();
+        }
+        await(job, root, new DeleteTask(root, job), listener);
+        return job.result();
+    }
+
+    public static Result copy(Path source, Path target, boolean dryRun, ProgressListener listener) {
+        BasicFileAttributes attrs = requireExisting(source);
+        Path destination = destination(source, target);
+        if (Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IllegalArgumentException("Already exists: " + destination);
+        }
+        Job job = new Job(Kind.COPY, dryRun);
+        if (!attrs.isDirectory()) {
+            job.copyFile(source, destination, attrs);
+            return job.result();
+        }
+        await(job, source, new CopyTask(source, destination, attrs, job), listener);
+        return job.result();
+    }
+
+    public static Result move(Path source, Path target, boolean dryRun, ProgressListener listener) {
+        BasicFileAttributes attrs = requireExisting(source);
+        if (isProtected(source)) throw new IllegalArgumentException("Refusing to move " + source);
+        Path destination = destination(source, target);
+        if (Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IllegalArgumentException("Already exists: " + destination);
+        }
+
+        if (dryRun) {
+            Job plan = new Job(Kind.MOVE, true);
+            if (attrs.isDirectory()) {
+                await(plan, source, new CopyTask(source, destination, attrs, plan), listener);
+            } else {
+                plan.copyFile(source, destination, attrs);
+            }
+            return plan.result();
+        }
+
+        long start = System.nanoTime();
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+            Job job = new Job(Kind.MOVE, false);
+            return job.renamed(attrs.isDirectory() ? 0 : 1, attrs.isDirectory() ? 1 : 0, start);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different filesystem: fall through to copy + delete
+        } catch (IOException e) {
+            Job job = new Job(Kind.MOVE, false);
+            job.fail(source, e);
+            return job.result();
+        }
+
+        Job job = new Job(Kind.MOVE, false);
+        if (attrs.isDirectory()) {
+            await(job, source, new CopyTask(source, destination, attrs, job), listener);
+        } else {
+            job.copyFile(source, destination, attrs);
+        }
+        // The source only goes once every byte has a second home
+        if (job.failureCount.sum() == 0) {
+            Job cleanup = new Job(Kind.DELETE, false);
+            if (attrs.isDirectory()) {
+                await(cleanup, source, new DeleteTask(source, cleanup), null);
+            } else {
+                cleanup.deleteFile(source, attrs);
+            }
+            job.absorbFailures(cleanup);
+        }
+        return job.result();
+    }
+
+    // cp / mv semantics: into an existing directory, keeping the source's name
+    private static Path destination(Path source, Path target) {
+        Path destination = Files.isDirectory(target) ? target.resolve(source.getFileName()) : target;
+        Path from = source.toAbsolutePath().normalize();
+        Path to = destination.toAbsolutePath().normalize();
+        if (to.equals(from)) throw new IllegalArgumentException("Source and destination are the same: " + source);
+        if (to.startsWith(from)) throw new IllegalArgumentException("Cannot put " + source + " inside itself");
+        return destination;
+    }
+
+    private static BasicFileAttributes requireExisting(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not found: " + path);
+        }
+    }
+
+    // The filesystem root and the home directory are never removed wholesale
+    private static boolean isProtected(Path path) {
+        Path p = path.toAbsolutePath().normalize();
+        return p.getParent() == null || p.equals(Paths.get(System.getProperty("user.home")).toAbsolutePath().normalize());
+    }
+
+    // Runs the root task on the shared pool, reporting progress from the calling thread
+    private static void await(Job job, Path root, ForkJoinTask<?> task, ProgressListener listener) {
+        ScanEngine.pool().execute(task);
+        while (true) {
+            try {
+                task.get(PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                if (listener != null) listener.onProgress(job.progress());
+            } catch (InterruptedException e) {
+                // The tasks may still be running: count it as a failure so move() keeps its source
+                job.stopped = true;
+                job.fail(root, new InterruptedIOException("interrupted before the operation finished"));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                job.fail(root, e.getCause());
+                break;
+            }
+        }
+    }
+
+    // Counters and failures shared by every task of one operation
+    private static final class Job {
+        final Kind kind;
+        final boolean dryRun;
+        final long start = System.nanoTime();
+        final LongAdder files = new LongAdder();
+        final LongAdder directories = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder failureCount = new LongAdder();
+        final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+        // Set when the caller stopped waiting; tasks still queued then do nothing
+        volatile boolean stopped = false;
+
+        Job(Kind kind, boolean dryRun) {
+            this.kind = kind;
+            this.dryRun = dryRun;
+        }
+
+        void fail(Path path, Throwable e) {
+            failureCount.increment();
+            // Counting is exact; keeping every message for a tree of broken files is not worth the memory
+            if (failureCount.sum() <= MAX_RECORDED_FAILURES) {
+                failures.add(new Failure(path, describe(e)));
+            }
+        }
+
+        void absorbFailures(Job other) {
+            failures.addAll(other.failures);
+            failureCount.add(other.failureCount.sum());
+        }
+
+        void deleteFile(Path file, BasicFileAttributes attrs) {
+            try {
+                if (!dryRun) Files.delete(file);
+                files.increment();
+                bytes.add(attrs.size());
+            } catch (IOException e) {
+                fail(file, e);
+            }
+        }
+
+        void deleteDirectory(Path dir) {
+            try {
+                if (!dryRun) Files.delete(dir);
+                directories.increment();
+            } catch (IOException e) {
+                fail(dir, e);
+            }
+        }
+
+        void copyFile(Path file, Path target, BasicFileAttributes attrs) {
+            if (dryRun) {
+                files.increment();
+                bytes.add(attrs.size());
+                return;
+            }
+            try {
+                if (attrs.isSymbolicLink() || attrs.size() < TRANSFER_THRESHOLD) {
+                    Files.copy(file, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.COPY_ATTRIBUTES);
+                    bytes.add(attrs.size());
+                } else {
+                    transfer(file, target, attrs.size());
+                    Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+                    copyPermissions(file, target);
+                }
+                files.increment();
+            } catch (IOException e) {
+                fail(file, e);
+            }
+        }
+
+        // A file that shrinks or grows meanwhile is a failure, and the partial copy is removed
+        private void transfer(Path file, Path target, long size) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                // Opened outside the cleanup: if target already exists it is not ours to delete
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                try (out) {
+                    long position = 0;
+                    while (position < size) {
+                        long n = in.transferTo(position, Math.min(TRANSFER_SLICE, size - position), out);
+                        if (n <= 0) break; // file shrank while copying
+                        position += n;
+                        bytes.add(n);
+                    }
+                    if (position != size || in.size() != size) {
+                        throw new IOException("changed while copying: " + position + " of " + in.size() + " bytes copied");
+                    }
+                } catch (IOException e) {
+                    Files.deleteIfExists(target);
+                    throw e;
+                }
+            }
+        }
+
+        Progress progress() {
+            return new Progress(files.sum(), directories.sum(), bytes.sum(), System.nanoTime() - start);
+        }
+
+        Result renamed(long fileCount, long directoryCount, long since) {
+            long elapsed = System.nanoTime() - since;
+            TIMERS[kind.ordinal()].recordNanos(elapsed);
+            return new Result(kind, false, true, fileCount, directoryCount, 0, List.of(), 0, elapsed);
+        }
+
+        Result result() {
+            long elapsed = System.nanoTime() - start;
+            if (!dryRun) {
+                TIMERS[kind.ordinal()].recordNanos(elapsed);
+                FILES[kind.ordinal()].add(files.sum());
+                BYTES[kind.ordinal()].add(bytes.sum());
+            }
+            return new Result(kind, dryRun, false, files.sum(), directories.sum(), bytes.sum(),
+                    List.copyOf(failures), failureCount.sum(), elapsed);
+        }
+    }
+
+    private static void copyPermissions(Path file, Path target) {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(file));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Not a POSIX filesystem; the default permissions stay
+        }
+    }
+
+    private static String describe(Throwable e) {
+        String type = e.getClass().getSimpleName().replace("Exception", "");
+        return e.getMessage() == null ? type : type + ": " + e.getMessage();
+    }
+
+    // Lists one directory (depth 1, links not followed) and hands back files and subdirectories
+    private static void list(Path dir, Job job, EntryVisitor visitor) {
+        try {
+            Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (job.stopped) return FileVisitResult.TERMINATE;
+                    visitor.visit(file, attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    job.fail(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            job.fail(dir, e);
+        }
+    }
+
+    private interface EntryVisitor {
+        void visit(Path entry, BasicFileAttributes attrs);
+    }
+
+    // Children first, then the directory itself once it is empty
+    private static final class DeleteTask extends RecursiveAction {
+        private final Path dir;
+        private final Job job;
+
+        DeleteTask(Path dir, Job job) {
+            this.dir = dir;
+            this.job = job;
+        }
+
+        @Override
+        protected void compute() {
+            List<DeleteTask> subtasks = new ArrayList<>();
+            list(dir, job, (entry, attrs) -> {
+                if (attrs.isDirectory()) {
+                    DeleteTask task = new DeleteTask(entry, job);
+                    task.fork();
+                    subtasks.add(task);
+                } else {
+                    job.deleteFile(entry, attrs);
+                }
+            });
+            for (DeleteTask task : subtasks) {
+                task.join();
+            }
+            job.deleteDirectory(dir);
+        }
+    }
+
+    // Directory first, then its contents; its mtime is restored once they are in
+    private static final class CopyTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final BasicFileAttributes attrs;
+        private final Job job;
+
+        CopyTask(Path source, Path target, BasicFileAttributes attrs, Job job) {
+            this.source = source;
+            this.target = target;
+            this.attrs = attrs;
+            this.job = job;
+        }
+
+        @Override
+        protected void compute() {
+            if (!job.dryRun) {
+                try {
+                    Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+                } catch (IOException e) {
+                    // Nothing below can be copied without the directory
+                    job.fail(source, e);
+                    return;
+                }
+            }
+            job.directories.increment();
+
+            List<CopyTask> subtasks = new ArrayList<>();
+            list(source, job, (entry, entryAttrs) -> {
+                Path to = target.resolve(entry.getFileName().toString());
+                if (entryAttrs.isDirectory()) {
+                    CopyTask task = new CopyTask(entry, to, entryAttrs, job);
+                    task.fork();
+                    subtasks.add(task);
+                } else {
+                    job.copyFile(entry, to, entryAttrs);
+                }
+            });
+            for (CopyTask task : subtasks) {
+                task.join();
+            }
+
+            if (!job.dryRun) {
+                try {
+                    Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+                } catch (IOException e) {
+                    job.fail(target, e);
+                }
+            }
+        }
+    }
+}
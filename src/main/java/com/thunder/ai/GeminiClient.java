@@ -0,0 +1,837 @@
+package com.thunder.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.net.ssl.SSLContext;
+
+
+// Gemini generateContent client. On a cold start every {apiVersion, model} pair is
+// probed at once and the first valid answer wins. After that the ranked models
+// are used in order, with a hedged request to the next model if the current one
+// has not answered within its recent p95 latency. The ranking is persisted so
+// the next launch skips probing. Each model call is paced by a token bucket,
+// retried with backoff on transient errors, and skipped while its circuit is open.
+// Large request bodies are sent gzip-compressed.
+public class GeminiClient implements LlmBackend {
+
+    static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com/";
+    private static final Path RANKING_FILE = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant", "models.tsv");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final long MIN_HEDGE_MILLIS = 300;
+    private static final long DEFAULT_HEDGE_MILLIS = 1500;
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_SAMPLES_FOR_P95 = 5;
+    // Attempts per model call, the first included; 429, 5xx and I/O errors are retried
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_BASE_MILLIS = 250;
+    private static final long BACKOFF_MAX_MILLIS = 4000;
+    // A Retry-After longer than this is not waited out; the call fails over instead
+    private static final long MAX_RETRY_AFTER_MILLIS = 30_000;
+    private static final int BREAKER_THRESHOLD = 5;
+    private static final long BREAKER_OPEN_MILLIS = 30_000;
+    private static final long BREAKER_MAX_OPEN_MILLIS = 5 * 60_000;
+    // Bodies smaller than this go uncompressed; below a packet or two gzip only adds CPU
+    static final int GZIP_MIN_BYTES = 1024;
+
+    // Models that actually exist and support generateContent, in preference order
+    private static final List<Model> MODELS = List.of(
+            new Model("v1beta", "gemini-2.5-flash"),
+            new Model("v1beta", "gemini-2.0-flash-001"),
+            new Model("v1beta", "gemini-2.0-flash"),
+            new Model("v1beta", "gemini-flash-latest"),
+            new Model("v1beta", "gemini-pro-latest"),
+            new Model("v1beta", "gemini-2.5-pro"),
+            new Model("v1", "gemini-2.5-flash"),
+            new Model("v1", "gemini-2.0-flash-001"));
+
+    public record Model(String apiVersion, String name) {
+        @Override
+        public String toString() {
+            return apiVersion + "/" + name;
+        }
+    }
+
+    // Per-model series, registered the first time a model is called
+    private record ModelMetrics(Metrics.Timer latency, Metrics.Timer firstToken, Metrics.Counter errors,
+                                Metrics.Counter shortCircuits, Metrics.Gauge circuit) {
+
+        static ModelMetrics of(Model model) {
+            return modelMetrics.computeIfAbsent(model, m -> {
+                String[] labels = {"api_version", m.apiVersion(), "model", m.name()};
+                return new ModelMetrics(
+                        Metrics.timer("model_latency_seconds", "Time to a complete generateContent answer", labels),
+                        Metrics.timer("model_first_token_seconds", "Time to the first streamed fragment", labels),
+                        Metrics.counter("model_errors_total", "Failed model requests", labels),
+                        Metrics.counter("model_short_circuits_total", "Calls skipped because the model's circuit was open", labels),
+                        Metrics.gauge("model_circuit_state", "Circuit breaker state: 0 closed, 1 half-open, 2 open", labels));
+            });
+        }
+    }
+
+    // Thrown when the API answers with an error payload or an unusable reply. status is
+    // the HTTP status when there was one, retryAfterMillis the server's Retry-After or -1
+    static final class ModelException extends RuntimeException {
+        final int status;
+        final long retryAfterMillis;
+
+        ModelException(String message) {
+            this(message, 0, -1);
+        }
+
+        ModelException(String message, int status, long retryAfterMillis) {
+            super(message);
+            this.status = status;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+    }
+
+    // Response bodies are read as streams, which blocks, so never on the HttpClient's own threads
+    private static final ExecutorService PARSERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "gemini-parse");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Map<Model, ModelMetrics> modelMetrics = new ConcurrentHashMap<>();
+    private static final String RETRIES_HELP = "Extra model requests after a failure, a slow primary or a stale ranking";
+    private static final Metrics.Counter FAILOVERS = Metrics.counter("model_retries_total", RETRIES_HELP, "reason", "failover");
+    private static final Metrics.Counter HEDGES = Metrics.counter("model_retries_total", RETRIES_HELP, "reason", "hedge");
+    private static final Metrics.Counter REPROBES = Metrics.counter("model_retries_total", RETRIES_HELP, "reason", "reprobe");
+    private static final Metrics.Counter BACKOFFS = Metrics.counter("model_retries_total", RETRIES_HELP, "reason", "backoff");
+    private static final Metrics.Counter THROTTLED = Metrics.counter("model_throttled_total",
+            "Model requests held back by the client-side rate limit");
+    private static final Metrics.Timer THROTTLE_WAIT = Metrics.timer("model_throttle_wait_seconds",
+            "Time a throttled model request waited for a token");
+
+    private final String apiKey;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final TokenBucket limiter;
+    private final Map<Model, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<Model, MetricSeries> latencies = new HashMap<>();
+    private volatile List<Model> ranking;
+    private volatile String lastError = null;
+    // Cleared for good when the server turns down a compressed body
+    private volatile boolean gzipRequests = true;
+
+    public GeminiClient(String apiKey) {
+        this(apiKey, DEFAULT_BASE_URL);
+    }
+
+    public GeminiClient(String apiKey, String baseUrl) {
+        this(apiKey, baseUrl, TokenBucket.unlimited());
+    }
+
+    // limiter paces every request that counts against the quota: probes, failovers, hedges and retries
+    public GeminiClient(String apiKey, String baseUrl, TokenBucket limiter) {
+        this.apiKey = apiKey;
+        this.limiter = limiter;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        // HTTP/2 lets concurrent requests (races, hedges, batch mode) share one connection
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2);
+        SSLContext sslContext = SSLUtil.getSSLContext();
+        if (sslContext != null) {
+            clientBuilder.sslContext(sslContext);
+        }
+        this.httpClient = clientBuilder.build();
+        this.ranking = loadRanking();
+    }
+
+    @Override
+    public String name() {
+        return "gemini (" + baseUrl + ")";
+    }
+
+    @Override
+    public String lastError() {
+        return lastError;
+    }
+
+    public List<Model> ranking() {
+        return ranking;
+    }
+
+    // Sent as systemInstruction, byte for byte the same on every request, so the
+    // API's prefix cache can reuse it; the user turn carries only the instruction
+    static final String SYSTEM_INSTRUCTION = """
+            You are a macOS terminal assistant with access to 40+ commands.
+            Convert the user instruction into a SAFE shell command.
+            Only return the shell command, nothing else.
+            
+            Available capabilities:
+            - File operations: create, delete, rename, move, copy files/folders
+            - System info: CPU, RAM, disk usage, processes
+            - File search and listing
+            - Process management
+            """;
+
+    private static final GeminiCodec CODEC = new GeminiCodec(SYSTEM_INSTRUCTION);
+
+    // The older single-turn prompt with the instructions inline, kept for comparisons
+    static String buildPrompt(String input) {
+        return SYSTEM_INSTRUCTION + "\nUser: " + input;
+    }
+
+    // A request body, and its gzip form when it is big enough to be worth sending that way
+    record Payload(byte[] json, byte[] gzip) {
+
+        static Payload of(byte[] json) {
+            if (json.length < GZIP_MIN_BYTES) return new Payload(json, null);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(json);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // in memory, cannot happen
+            }
+            byte[] gzip = out.toByteArray();
+            return new Payload(json, gzip.length < json.length ? gzip : null);
+        }
+    }
+
+    /*
+     * Opens the pooled connection (TCP, TLS, HTTP/2 settings) with a request that
+     * carries no key and costs no quota, and runs the codec once so its classes are
+     * loaded and the first real question pays for neither.
+     */
+    @Override
+    public void warmUp() {
+        buildBody("warm up");
+        parse("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"true\"}]}}]}");
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl))
+                    .timeout(REQUEST_TIMEOUT)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // Offline or blocked; the first request will say so properly
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns the model's text answer, or null if every model failed
+    @Override
+    public String generate(String instruction) {
+        Payload body = Payload.of(buildBody(instruction));
+        List<Model> ranked = ranking;
+        String text;
+        if (ranked.isEmpty()) {
+            text = race(MODELS, MODELS.size(), 0, body);
+        } else {
+            text = race(ranked, 1, hedgeDelayMillis(ranked.get(0)), body);
+            if (text == null) {
+                // Every ranked model failed; forget the ranking and probe everything again
+                REPROBES.increment();
+                ranking = List.of();
+                text = race(MODELS, MODELS.size(), 0, body);
+            }
+        }
+        return text;
+    }
+
+    /*
+     * Streams the answer from the top-ranked model via streamGenerateContent (SSE),
+     * handing each text fragment to onToken as it arrives. Returns null when there
+     * is no known-good model yet or the stream fails, so callers can fall back to
+     * generate().
+     */
+    @Override
+    public StreamResult stream(String instruction, Consumer<String> onToken) {
+        List<Model> ranked = ranking;
+        if (ranked.isEmpty()) return null;
+        Model model = ranked.get(0);
+
+        String uri = baseUrl + model.apiVersion() + "/models/" + model.name() + ":streamGenerateContent?alt=sse&key=" + apiKey;
+        Payload body = Payload.of(buildBody(instruction));
+
+        ModelMetrics metrics = ModelMetrics.of(model);
+        CircuitBreaker breaker = breaker(model);
+        if (!breaker.allow()) {
+            metrics.shortCircuits().increment();
+            return null;
+        }
+        long start;
+        long[] firstToken = {-1};
+        StringBuilder text = new StringBuilder();
+        try {
+            awaitToken();
+            start = System.nanoTime();
+            boolean gzip = compress(body);
+            HttpResponse<Stream<String>> response = httpClient.send(request(uri, body, gzip), HttpResponse.BodyHandlers.ofLines());
+            if (gzip && response.statusCode() != 200) {
+                String error;
+                try (Stream<String> lines = response.body()) {
+                    error = lines.collect(Collectors.joining("\n"));
+                }
+                if (!rejectsGzip(response.statusCode(), error)) throw failure(response, error);
+                // The resend counts against the quota like any other request
+                awaitToken();
+                response = httpClient.send(request(uri, body, false), HttpResponse.BodyHandlers.ofLines());
+            }
+            try (Stream<String> lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    // Errors come back as a plain JSON document, not as events
+                    parse(lines.collect(Collectors.joining("\n")));
+                    throw new ModelException("HTTP " + response.statusCode());
+                }
+                Iterator<String> it = lines.iterator();
+                while (it.hasNext()) {
+                    String line = it.next();
+                    if (!line.startsWith("data:")) continue;
+                    parseChunk(line.substring(5).trim(), token -> {
+                        if (firstToken[0] < 0) firstToken[0] = System.nanoTime();
+                        text.append(token);
+                        onToken.accept(token);
+                    });
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.errors().increment();
+            breaker.onFailure();
+            metrics.circuit().set(breaker.state().ordinal());
+            lastError = model + ": " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        if (text.length() == 0) {
+            metrics.errors().increment();
+            breaker.onFailure();
+            metrics.circuit().set(breaker.state().ordinal());
+            lastError = model + ": empty answer";
+            return null;
+        }
+        breaker.onSuccess();
+        metrics.circuit().set(breaker.state().ordinal());
+        long end = System.nanoTime();
+        metrics.firstToken().recordNanos(firstToken[0] - start);
+        metrics.latency().recordNanos(end - start);
+        return new StreamResult(text.toString().trim(), (firstToken[0] - start) / 1_000_000, (end - start) / 1_000_000);
+    }
+
+    // Each SSE event is a complete generateContent response holding the next fragment
+    private void parseChunk(String json, Consumer<String> onToken) throws IOException {
+        GeminiCodec.Response chunk = GeminiCodec.read(json);
+        if (chunk.error() != null) {
+            throw new ModelException(chunk.error().message());
+        }
+        String text = chunk.text();
+        if (text != null) onToken.accept(text);
+    }
+
+    /*
+     * Starts `initial` requests at once, then launches the next model whenever one
+     * fails or the hedge delay passes without an answer. The first valid answer
+     * wins and the requests still in flight are cancelled. Models whose circuit is
+     * open are skipped. The caller waits here for the first request's rate-limit
+     * token, so a throttled batch queues before the race clock starts; later
+     * requests reserve their own and wait off-thread.
+     */
+    private String race(List<Model> models, int initial, long hedgeMillis, Payload body) {
+        try {
+            awaitToken();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        List<CompletableFuture<String>> inflight = new CopyOnWriteArrayList<>();
+        AtomicInteger next = new AtomicInteger(0);
+        AtomicInteger pending = new AtomicInteger(0);
+        AtomicInteger launched = new AtomicInteger(0);
+        Set<Model> failed = ConcurrentHashMap.newKeySet();
+        AtomicBoolean decided = new AtomicBoolean(false);
+
+        Runnable[] launch = new Runnable[1];
+        launch[0] = () -> {
+            Model model = null;
+            while (model == null) {
+                int i = next.getAndIncrement();
+                if (i >= models.size() || winner.isDone()) {
+                    // Nothing left to try; settle the race if nothing is in flight either
+                    if (pending.get() == 0 && decided.compareAndSet(false, true)) {
+                        if (launched.get() == 0) lastError = "every model's circuit is open";
+                        winner.complete(null);
+                    }
+                    return;
+                }
+                Model candidate = models.get(i);
+                if (breaker(candidate).allow()) {
+                    model = candidate;
+                } else {
+                    ModelMetrics.of(candidate).shortCircuits().increment();
+                }
+            }
+            Model chosen = model;
+            boolean primary = launched.getAndIncrement() == 0;
+            pending.incrementAndGet();
+            CompletableFuture<String> f = call(chosen, body, primary);
+            inflight.add(f);
+            if (winner.isDone()) f.cancel(true); // launched by a hedge as the race ended
+            f.whenComplete((text, error) -> {
+                pending.decrementAndGet();
+                if (decided.get() || winner.isDone()) return; // losers cancelled after the race was decided
+                if (error == null) {
+                    // Rank before completing so the caller already sees the new order
+                    if (decided.compareAndSet(false, true)) {
+                        promote(chosen, models, failed);
+                        winner.complete(text);
+                    }
+                    return;
+                }
+                Throwable cause = unwrap(error);
+                lastError = chosen + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+                failed.add(chosen);
+                if (next.get() < models.size()) FAILOVERS.increment();
+                launch[0].run(); // fail over right away, or settle the race
+            });
+            // Only the primary is hedged, so a slow call costs at most one extra request;
+            // never while throttled, when the hedge would only spend quota the queue needs
+            if (primary && hedgeMillis > 0 && models.size() > 1) {
+                CompletableFuture.delayedExecutor(hedgeMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                    if (!winner.isDone() && limiter.hasToken()) {
+                        HEDGES.increment();
+                        launch[0].run();
+                    }
+                });
+            }
+        };
+
+        for (int i = 0; i < initial; i++) {
+            launch[0].run();
+        }
+
+        try {
+            // Worst case every model runs back to back to its own timeout, each retried with backoff
+            return winner.get((REQUEST_TIMEOUT.toMillis() + BACKOFF_MAX_MILLIS) * MAX_ATTEMPTS * (models.size() + 1),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            lastError = e.getMessage();
+            return null;
+        } finally {
+            // Settles a timed-out or interrupted race too, so no hedge or failover starts after it
+            winner.cancel(true);
+            inflight.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private CircuitBreaker breaker(Model model) {
+        return breakers.computeIfAbsent(model, m -> new CircuitBreaker(BREAKER_THRESHOLD, BREAKER_OPEN_MILLIS, BREAKER_MAX_OPEN_MILLIS));
+    }
+
+    // Blocks for a rate-limit token, counting the wait when there was one
+    private void awaitToken() throws InterruptedException {
+        long waited = limiter.acquire();
+        if (waited > 0) {
+            THROTTLED.increment();
+            THROTTLE_WAIT.recordNanos(waited);
+        }
+    }
+
+    /*
+     * One model call: the request, and up to MAX_ATTEMPTS - 1 retries of 429s, 5xx
+     * and I/O errors after a jittered exponential backoff, or after the server's
+     * Retry-After when it sent one. The model's circuit breaker hears about the
+     * call once, after the last attempt, so a blip that a retry absorbs never
+     * counts against the model. Waits (for a token or a backoff) are
+     * scheduled, never slept, since this runs on HTTP client and parser threads.
+     * Cancelling the returned future cancels the request in flight.
+     */
+    private CompletableFuture<String> call(Model model, Payload body, boolean prepaid) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        result.whenComplete((text, error) -> {
+            CompletableFuture<String> f = current.get();
+            if (result.isCancelled() && f != null) f.cancel(true);
+        });
+        send(model, body, 1, prepaid ? 0 : reserveToken(), result, current);
+        return result;
+    }
+
+    private void send(Model model, Payload body, int attempt, long delayNanos,
+                      CompletableFuture<String> result, AtomicReference<CompletableFuture<String>> current) {
+        Runnable request = () -> {
+            if (result.isDone()) return; // cancelled while waiting
+            CompletableFuture<String> f = attempt(model, body);
+            current.set(f);
+            if (result.isCancelled()) f.cancel(true);
+            f.whenComplete((text, error) -> {
+                CircuitBreaker breaker = breaker(model);
+                if (error == null) {
+                    breaker.onSuccess();
+                    ModelMetrics.of(model).circuit().set(breaker.state().ordinal());
+                    result.complete(text);
+                    return;
+                }
+                if (result.isDone()) return; // cancelled: says nothing about the model
+                Throwable cause = unwrap(error);
+                ModelMetrics.of(model).errors().increment();
+
+                long backoff = attempt < MAX_ATTEMPTS ? backoffMillis(cause, attempt) : -1;
+                if (backoff >= 0) {
+                    BACKOFFS.increment();
+                    long wait = Math.max(TimeUnit.MILLISECONDS.toNanos(backoff), reserveToken());
+                    send(model, body, attempt + 1, wait, result, current);
+                } else {
+                    breaker.onFailure();
+                    ModelMetrics.of(model).circuit().set(breaker.state().ordinal());
+                    result.completeExceptionally(cause);
+                }
+            });
+        };
+        if (delayNanos > 0) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, PARSERS).execute(request);
+        } else {
+            request.run();
+        }
+    }
+
+    // Takes a rate-limit token without blocking; returns how long to wait before using it
+    private long reserveToken() {
+        long wait = limiter.reserve();
+        if (wait > 0) {
+            THROTTLED.increment();
+            THROTTLE_WAIT.recordNanos(wait);
+        }
+        return wait;
+    }
+
+    // Delay before retrying after this failure, or -1 when it is not worth retrying
+    static long backoffMillis(Throwable cause, int attempt) {
+        if (cause instanceof ModelException e) {
+            boolean transientStatus = e.status == 429 || e.status >= 500;
+            if (!transientStatus) return -1;
+            if (e.retryAfterMillis >= 0) {
+                return e.retryAfterMillis > MAX_RETRY_AFTER_MILLIS ? -1
+                        : e.retryAfterMillis + ThreadLocalRandom.current().nextLong(BACKOFF_BASE_MILLIS);
+            }
+        } else if (!(cause instanceof IOException)) {
+            return -1;
+        }
+        // Full jitter: anywhere up to base * 2^(attempt - 1), capped
+        long ceiling = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Retry-After is either delay-seconds or an HTTP date
+    static long retryAfterMillis(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) return -1;
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException bad) {
+                return -1;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /*
+     * A single HTTP request, without retries, other than once uncompressed if gzip
+     * was refused. Cancelling the returned future aborts the exchange, or closes
+     * the response body if one has arrived, which also wakes a parser blocked on it.
+     */
+    private CompletableFuture<String> attempt(Model model, Payload body) {
+        String uri = baseUrl + model.apiVersion() + "/models/" + model.name() + ":generateContent?key=" + apiKey;
+        boolean gzip = compress(body);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Exchange exchange = new Exchange(result);
+
+        long start = System.nanoTime();
+        // The body is parsed as it streams in, on our own threads since reading blocks
+        exchange.sending(httpClient.sendAsync(request(uri, body, gzip), HttpResponse.BodyHandlers.ofInputStream()))
+                .thenComposeAsync(response -> {
+                    if (!gzip || response.statusCode() == 200) return CompletableFuture.completedFuture(response);
+                    String error;
+                    try (InputStream in = exchange.reading(response.body())) {
+                        error = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                    } catch (IOException e) {
+                        throw new ModelException("unreadable response", response.statusCode(), retryAfterMillis(response));
+                    }
+                    if (!rejectsGzip(response.statusCode(), error)) throw failure(response, error);
+                    // The resend counts against the quota like any other request
+                    long wait = reserveToken();
+                    Executor after = wait > 0 ? CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, PARSERS) : PARSERS;
+                    return CompletableFuture.runAsync(() -> {}, after).thenCompose(ignored -> exchange.sending(
+                            httpClient.sendAsync(request(uri, body, false), HttpResponse.BodyHandlers.ofInputStream())));
+                }, PARSERS)
+                .thenApplyAsync(response -> {
+                    try (InputStream in = exchange.reading(response.body())) {
+                        GeminiCodec.Response parsed = GeminiCodec.read(in);
+                        if (response.statusCode() != 200) {
+                            String message = parsed.error() != null ? parsed.error().message() : "HTTP " + response.statusCode();
+                            throw new ModelException(message, response.statusCode(), retryAfterMillis(response));
+                        }
+                        String text = answer(parsed);
+                        long elapsed = System.nanoTime() - start;
+                        recordLatency(model, elapsed / 1_000_000);
+                        ModelMetrics.of(model).latency().recordNanos(elapsed);
+                        return text;
+                    } catch (IOException e) {
+                        throw new ModelException("unreadable response", response.statusCode(), retryAfterMillis(response));
+                    }
+                }, PARSERS)
+                .whenComplete((text, error) -> {
+                    if (error == null) {
+                        result.complete(text);
+                    } else {
+                        result.completeExceptionally(unwrap(error));
+                    }
+                });
+        return result;
+    }
+
+    // What cancelling an attempt has to stop: the request in flight and the body being read.
+    // Each is registered before the cancelled flag is checked, so one side always aborts it
+    private static final class Exchange {
+        private final CompletableFuture<String> owner;
+        private volatile CompletableFuture<?> sending;
+        private volatile InputStream body;
+
+        Exchange(CompletableFuture<String> owner) {
+            this.owner = owner;
+            owner.whenComplete((text, error) -> {
+                if (!owner.isCancelled()) return;
+                CompletableFuture<?> f = sending;
+                if (f != null) f.cancel(true);
+                closeQuietly(body);
+            });
+        }
+
+        <T> CompletableFuture<T> sending(CompletableFuture<T> f) {
+            sending = f;
+            if (owner.isCancelled()) f.cancel(true);
+            return f;
+        }
+
+        // A response that arrives after cancellation is closed at once, so reading it fails fast
+        InputStream reading(InputStream in) {
+            body = in;
+            if (owner.isCancelled()) closeQuietly(in);
+            return in;
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Discarding it anyway
+        }
+    }
+
+    private static HttpRequest request(String uri, Payload body, boolean gzip) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .timeout(REQUEST_TIMEOUT);
+        if (gzip) builder.header("Content-Encoding", "gzip");
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(gzip ? body.gzip() : body.json())).build();
+    }
+
+    private boolean compress(Payload body) {
+        return gzipRequests && body.gzip() != null;
+    }
+
+    // A 415, or a 400 whose error is about the body's encoding, means no gzip here;
+    // stop compressing so only this one request pays for the round trip. Any other
+    // 400 is the request's own fault and would fail the same way uncompressed
+    private boolean rejectsGzip(int status, String error) {
+        String lower = error.toLowerCase(Locale.ROOT);
+        boolean refused = status == 415
+                || status == 400 && (lower.contains("gzip") || lower.contains("content-encoding")
+                        || lower.contains("content encoding"));
+        if (refused) gzipRequests = false;
+        return refused;
+    }
+
+    // The error an unsuccessful response stands for, from its JSON error when it has one
+    private static ModelException failure(HttpResponse<?> response, String body) {
+        String message = "HTTP " + response.statusCode();
+        try {
+            GeminiCodec.Response parsed = GeminiCodec.read(body);
+            if (parsed.error() != null) message = parsed.error().message();
+        } catch (IOException e) {
+            // Not JSON, e.g. a front end's HTML page
+        }
+        return new ModelException(message, response.statusCode(), retryAfterMillis(response));
+    }
+
+    // The instruction as request JSON bytes, behind the system instruction
+    byte[] buildBody(String instruction) {
+        return CODEC.requestBody(instruction);
+    }
+
+    String parse(String body) {
+        try {
+            return answer(GeminiCodec.read(body));
+        } catch (IOException e) {
+            throw new ModelException("unreadable response");
+        }
+    }
+
+    static String answer(GeminiCodec.Response response) {
+        if (response.error() != null) {
+            throw new ModelException(response.error().message());
+        }
+        String text = response.text();
+        if (text != null) {
+            String cmd = text.trim();
+            if (!cmd.isEmpty() && !cmd.startsWith("Error")) {
+                return cmd;
+            }
+        }
+        throw new ModelException("empty answer");
+    }
+
+    private void recordLatency(Model model, long millis) {
+        MetricSeries series;
+        synchronized (latencies) {
+            series = latencies.computeIfAbsent(model, m -> new MetricSeries(LATENCY_SAMPLES));
+        }
+        series.add(millis);
+    }
+
+    // Hedge once the primary is slower than it usually is
+    private long hedgeDelayMillis(Model model) {
+        MetricSeries series;
+        synchronized (latencies) {
+            series = latencies.get(model);
+        }
+        if (series == null) return DEFAULT_HEDGE_MILLIS;
+        MetricSeries.Stats stats = series.window(LATENCY_SAMPLES);
+        if (stats.count() < MIN_SAMPLES_FOR_P95) return DEFAULT_HEDGE_MILLIS;
+        return Math.max(MIN_HEDGE_MILLIS, (long) stats.p95());
+    }
+
+    // Winner first, then the others by observed p95 (a stable sort), models that just failed last
+    private synchronized void promote(Model winner, List<Model> raced, Set<Model> failed) {
+        List<Model> others = new ArrayList<>();
+        List<Model> demoted = new ArrayList<>();
+        for (Model m : ranking.isEmpty() ? raced : ranking) {
+            if (m.equals(winner)) continue;
+            (failed.contains(m) ? demoted : others).add(m);
+        }
+        others.sort(Comparator.comparingDouble(this::p95OrMax));
+        List<Model> updated = new ArrayList<>();
+        updated.add(winner);
+        updated.addAll(others);
+        updated.addAll(demoted);
+        if (!updated.equals(ranking)) {
+            ranking = List.copyOf(updated);
+            saveRanking();
+        }
+    }
+
+    private double p95OrMax(Model model) {
+        MetricSeries series;
+        synchronized (latencies) {
+            series = latencies.get(model);
+        }
+        if (series == null) return Double.MAX_VALUE;
+        MetricSeries.Stats stats = series.window(LATENCY_SAMPLES);
+        return stats.count() < MIN_SAMPLES_FOR_P95 ? Double.MAX_VALUE : stats.p95();
+    }
+
+    private static List<Model> loadRanking() {
+        if (!Files.exists(RANKING_FILE)) return List.of();
+        Map<String, Model> known = new LinkedHashMap<>();
+        MODELS.forEach(m -> known.put(m.toString(), m));
+        List<Model> result = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(RANKING_FILE, StandardCharsets.UTF_8)) {
+                Model m = known.get(line.trim());
+                if (m != null && !result.contains(m)) result.add(m);
+            }
+        } catch (IOException e) {
+            return List.of();
+        }
+        return List.copyOf(result);
+    }
+
+    private void saveRanking() {
+        try {
+            Files.createDirectories(RANKING_FILE.getParent());
+            List<String> lines = ranking.stream().map(Model::toString).toList();
+            Files.write(RANKING_FILE, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Ranking is only an optimisation
+        }
+    }
+
+    // Helper method to list available models (for debugging)
+    @Override
+    public void listModels() {
+        System.out.println("\n🔍 Attempting to list available models...");
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "v1beta/models?key=" + apiKey))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            System.out.println("\n📋 Available Models:");
+            System.out.println(response.body());
+        } catch (Exception e) {
+            // Silently fail - this is just for debugging
+        }
+    }
+}
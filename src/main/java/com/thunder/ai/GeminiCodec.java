@@ -0,0 +1,206 @@
+package com.thunder.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/*
+ * Wire format of generateContent, without a tree model in either direction.
+ *
+ * Requests: the fixed prompt travels as systemInstruction and the user's words as
+ * the only user turn. Everything around the words never changes, so it is rendered
+ * once with JsonGenerator and split at a marker into head and tail bytes. A request
+ * is then head + the escaped instruction + tail in one exactly-sized array, and
+ * its leading bytes are identical on every call.
+ *
+ * Responses: a streaming JsonParser reads straight from the HTTP body into the
+ * records below, skipping every field they do not model (safety ratings, usage
+ * metadata, ...) without materialising it.
+ */
+final class GeminiCodec {
+
+    record Part(String text) {}
+
+    record Content(String role, List<Part> parts) {}
+
+    record Candidate(Content content, String finishReason) {}
+
+    record ApiError(int code, String status, String message) {}
+
+    record Response(List<Candidate> candidates, ApiError error) {
+
+        // candidates[0].content.parts[*].text, or null when there is none
+        String text() {
+            if (candidates.isEmpty() || candidates.get(0).content() == null) return null;
+            List<Part> parts = candidates.get(0).content().parts();
+            if (parts.size() == 1) return parts.get(0).text();
+            StringBuilder sb = new StringBuilder();
+            for (Part p : parts) {
+                if (p.text() != null) sb.append(p.text());
+            }
+            return sb.length() == 0 ? null : sb.toString();
+        }
+    }
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final String MARKER = "\u0001INSTRUCTION\u0001";
+
+    private final byte[] head;
+    private final byte[] tail;
+
+    // systemInstruction is the fixed prompt that goes with every instruction
+    GeminiCodec(String systemInstruction) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(systemInstruction.length() + 128);
+        try (JsonGenerator gen = FACTORY.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("systemInstruction");
+            gen.writeArrayFieldStart("parts");
+            gen.writeStartObject();
+            gen.writeStringField("text", systemInstruction);
+            gen.writeEndObject();
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeArrayFieldStart("contents");
+            gen.writeStartObject();
+            gen.writeStringField("role", "user");
+            gen.writeArrayFieldStart("parts");
+            gen.writeStartObject();
+            gen.writeStringField("text", MARKER);
+            gen.writeEndObject();
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String json = out.toString(StandardCharsets.UTF_8);
+        // The control characters come out escaped, which is what makes the marker unambiguous
+        String escapedMarker = new String(JsonStringEncoder.getInstance().quoteAsString(MARKER));
+        int at = json.indexOf(escapedMarker);
+        this.head = json.substring(0, at).getBytes(StandardCharsets.UTF_8);
+        this.tail = json.substring(at + escapedMarker.length()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    byte[] requestBody(String instruction) {
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(instruction);
+        byte[] body = new byte[head.length + escaped.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(escaped, 0, body, head.length, escaped.length);
+        System.arraycopy(tail, 0, body, head.length + escaped.length, tail.length);
+        return body;
+    }
+
+    static Response read(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return readResponse(p);
+        }
+    }
+
+    static Response read(byte[] json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return readResponse(p);
+        }
+    }
+
+    static Response read(String json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return readResponse(p);
+        }
+    }
+
+    private static Response readResponse(JsonParser p) throws IOException {
+        List<Candidate> candidates = List.of();
+        ApiError error = null;
+        if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("expected a JSON object");
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if ("candidates".equals(field) && value == JsonToken.START_ARRAY) {
+                candidates = new ArrayList<>(1);
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    candidates.add(readCandidate(p));
+                }
+            } else if ("error".equals(field) && value == JsonToken.START_OBJECT) {
+                error = readError(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Response(candidates, error);
+    }
+
+    private static Candidate readCandidate(JsonParser p) throws IOException {
+        Content content = null;
+        String finishReason = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if ("content".equals(field) && value == JsonToken.START_OBJECT) {
+                content = readContent(p);
+            } else if ("finishReason".equals(field)) {
+                finishReason = p.getValueAsString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Candidate(content, finishReason);
+    }
+
+    private static Content readContent(JsonParser p) throws IOException {
+        String role = null;
+        List<Part> parts = List.of();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if ("parts".equals(field) && value == JsonToken.START_ARRAY) {
+                parts = new ArrayList<>(1);
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    String text = null;
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String partField = p.getCurrentName();
+                        p.nextToken();
+                        if ("text".equals(partField)) {
+                            text = p.getValueAsString();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    parts.add(new Part(text));
+                }
+            } else if ("role".equals(field)) {
+                role = p.getValueAsString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Content(role, parts);
+    }
+
+    private static ApiError readError(JsonParser p) throws IOException {
+        int code = 0;
+        String status = null;
+        String message = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "code" -> code = p.getValueAsInt();
+                case "status" -> status = p.getValueAsString();
+                case "message" -> message = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        return new ApiError(code, status, message);
+    }
+}
@@ -0,0 +1,313 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs shell commands on cron or one-shot schedules. All pending runs sit in a
+// single DelayQueue drained by one dispatcher thread, so thousands of jobs cost
+// no extra threads; the commands themselves run on a small bounded pool through
+// ProcessRunner. Jobs are journaled to disk and reloaded on the next start.
+public class JobScheduler {
+
+    private static final Path HOME = Paths.get(System.getProperty("user.home"), ".ai_cli_assistant");
+    private static final Path JOURNAL = HOME.resolve("jobs.journal");
+    private static final Path HISTORY_LOG = HOME.resolve("job-history.log");
+
+    private static final int MAX_CONCURRENT_RUNS = 4;
+    private static final int MAX_QUEUED_RUNS = 100;
+    private static final int HISTORY_PER_JOB = 20;
+    private static final Duration RUN_TIMEOUT = Duration.ofHours(1);
+
+    private static final Pattern IN = Pattern.compile("in (\\d+) (second|minute|hour)s?");
+    private static final Pattern AT = Pattern.compile("at (\\d{1,2}):(\\d{2})");
+
+    public record Run(Instant scheduledFor, long startDelayMillis, long durationMillis, int exitCode, boolean timedOut) {}
+
+    public static final class Job {
+        final int id;
+        final String spec;      // "cron <expr>" or "once <epochMillis>", as journaled
+        final String command;
+        final CronExpression cron;
+        final Deque<Run> history = new ArrayDeque<>();
+        final AtomicBoolean running = new AtomicBoolean(false);
+        volatile Instant nextRun;
+        volatile boolean cancelled = false;
+
+        Job(int id, String spec, String command) {
+            this.id = id;
+            this.spec = spec;
+            this.command = command;
+            this.cron = spec.startsWith("cron ") ? CronExpression.parse(spec.substring(5)) : null;
+            this.nextRun = cron == null ? Instant.ofEpochMilli(Long.parseLong(spec.substring(5))) : null;
+        }
+
+        public int id() { return id; }
+        public String command() { return command; }
+        public Instant nextRun() { return nextRun; }
+
+        public String describe() {
+            return cron != null ? "cron " + cron : "once";
+        }
+
+        public synchronized List<Run> history() {
+            return new ArrayList<>(history);
+        }
+
+        synchronized void record(Run run) {
+            if (history.size() == HISTORY_PER_JOB) history.removeFirst();
+            history.addLast(run);
+        }
+    }
+
+    private record Due(Job job, Instant at) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), at));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return at.compareTo(((Due) other).at);
+        }
+    }
+
+    private static final DelayQueue<Due> queue = new DelayQueue<>();
+    private static final Map<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private static ThreadPoolExecutor runners = null;
+    private static Thread dispatcher = null;
+    private static int nextId = 1;
+
+    public static synchronized void start() {
+        if (dispatcher != null) return;
+        runners = new ThreadPoolExecutor(MAX_CONCURRENT_RUNS, MAX_CONCURRENT_RUNS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_RUNS), r -> {
+                    Thread t = new Thread(r, "job-runner");
+                    t.setDaemon(true);
+                    return t;
+                });
+        runners.allowCoreThreadTimeOut(true);
+
+        loadJournal();
+        for (Job job : List.copyOf(jobs.values())) {
+            try {
+                arm(job, Instant.now());
+            } catch (IllegalStateException e) {
+                cancel(job.id); // a cron that can never fire, saved before add() rejected those
+            }
+        }
+
+        dispatcher = new Thread(JobScheduler::dispatch, "job-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public static synchronized void shutdown() {
+        if (dispatcher == null) return;
+        dispatcher.interrupt();
+        runners.shutdown();
+        dispatcher = null;
+    }
+
+    // when: "every day at 02:00", "cron */5 * * * *", "in 10 minutes", "at 14:30", ...
+    public static synchronized Job add(String when, String command) {
+        Job job = new Job(nextId, toSpec(when), command);
+        try {
+            arm(job, Instant.now());
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException(e.getMessage()); // e.g. "cron 0 0 31 2 *"
+        }
+        nextId++;
+        jobs.put(job.id, job);
+        appendJournal("ADD\t" + job.id + "\t" + job.spec + "\t" + job.command);
+        return job;
+    }
+
+    public static synchronized boolean cancel(int id) {
+        Job job = jobs.remove(id);
+        if (job == null) return false;
+        job.cancelled = true;
+        appendJournal("DEL\t" + id);
+        return true;
+    }
+
+    public static Collection<Job> jobs() {
+        return jobs.values();
+    }
+
+    public static Job job(int id) {
+        return jobs.get(id);
+    }
+
+    private static String toSpec(String when) {
+        String w = when.toLowerCase().trim();
+        CronExpression cron = CronExpression.fromText(w);
+        if (cron != null) return "cron " + cron;
+
+        Matcher m = IN.matcher(w);
+        if (m.matches()) {
+            try {
+                long n = Long.parseLong(m.group(1));
+                Duration d = switch (m.group(2)) {
+                    case "second" -> Duration.ofSeconds(n);
+                    case "minute" -> Duration.ofMinutes(n);
+                    default -> Duration.ofHours(n);
+                };
+                return "once " + Instant.now().plus(d).toEpochMilli();
+            } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+                throw new IllegalArgumentException("'" + when + "' is too far in the future");
+            }
+        }
+
+        m = AT.matcher(w);
+        if (m.matches()) {
+            int hour = Integer.parseInt(m.group(1));
+            int minute = Integer.parseInt(m.group(2));
+            if (hour > 23 || minute > 59) throw new IllegalArgumentException("No such time of day: " + hour + ":" + m.group(2));
+            ZonedDateTime now = ZonedDateTime.now();
+            ZonedDateTime at = now.with(LocalTime.of(hour, minute));
+            if (!at.isAfter(now)) at = at.plusDays(1);
+            return "once " + at.toInstant().toEpochMilli();
+        }
+
+        throw new IllegalArgumentException("Unrecognised schedule '" + when + "'");
+    }
+
+    // Computes the job's next run after the given time and queues it
+    private static void arm(Job job, Instant after) {
+        if (job.cron != null) {
+            job.nextRun = job.cron.next(after.atZone(ZoneId.systemDefault())).toInstant();
+        }
+        queue.add(new Due(job, job.nextRun));
+    }
+
+    private static void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Due due;
+            try {
+                due = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Job job = due.job();
+            if (job.cancelled || !due.at().equals(job.nextRun)) continue; // stale entry
+
+            // Skip missed cron slots instead of replaying them back to back
+            if (job.cron != null) {
+                arm(job, Instant.now().isAfter(due.at()) ? Instant.now() : due.at());
+            }
+
+            if (!job.running.compareAndSet(false, true)) {
+                System.out.println("\n⏲️ Job " + job.id + " still running, skipped the " + due.at() + " run");
+                continue;
+            }
+            try {
+                runners.execute(() -> execute(job, due.at()));
+            } catch (RejectedExecutionException e) {
+                job.running.set(false);
+                job.record(new Run(due.at(), 0, 0, -1, false));
+                System.out.println("\n⏲️ Job " + job.id + " skipped: too many runs queued");
+            }
+        }
+    }
+
+    private static void execute(Job job, Instant scheduledFor) {
+        try {
+            long delay = Duration.between(scheduledFor, Instant.now()).toMillis();
+            System.out.println("\n⏲️ Running job " + job.id + ": " + job.command);
+            ProcessRunner.Result result = ProcessRunner.run(job.command, RUN_TIMEOUT, ProcessRunner.printer("job " + job.id));
+            Run run = new Run(scheduledFor, delay, result.wallNanos() / 1_000_000, result.exitCode(), result.timedOut());
+            job.record(run);
+            appendHistory(job, run);
+            System.out.println("⏲️ Job " + job.id + " finished: " + result.summary());
+        } finally {
+            job.running.set(false);
+            if (job.cron == null) {
+                cancel(job.id); // one-shot jobs are done after their single run
+            }
+        }
+    }
+
+    private static void loadJournal() {
+        if (!Files.exists(JOURNAL)) return;
+        try {
+            for (String line : Files.readAllLines(JOURNAL, StandardCharsets.UTF_8)) {
+                String[] f = line.split("\t", 4);
+                try {
+                    if (f[0].equals("ADD") && f.length == 4) {
+                        int id = Integer.parseInt(f[1]);
+                        jobs.put(id, new Job(id, f[2], f[3]));
+                        nextId = Math.max(nextId, id + 1);
+                    } else if (f[0].equals("DEL") && f.length >= 2) {
+                        jobs.remove(Integer.parseInt(f[1]));
+                    }
+                } catch (RuntimeException e) {
+                    // Skip malformed or outdated entries
+                }
+            }
+            // One-shot jobs whose time passed while we were not running are dropped
+            jobs.values().removeIf(j -> j.cron == null && j.nextRun.isBefore(Instant.now()));
+            compactJournal();
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read job journal: " + e.getMessage());
+        }
+    }
+
+    // Rewrites the journal with just the live jobs
+    private static void compactJournal() throws IOException {
+        Files.createDirectories(HOME);
+        Path tmp = JOURNAL.resolveSibling("jobs.journal.tmp");
+        List<String> lines = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            lines.add("ADD\t" + job.id + "\t" + job.spec + "\t" + job.command);
+        }
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, JOURNAL, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static synchronized void appendJournal(String line) {
+        appendLine(JOURNAL, line);
+    }
+
+    private static synchronized void appendHistory(Job job, Run run) {
+        appendLine(HISTORY_LOG, Instant.now() + "\t" + job.id + "\t" + run.startDelayMillis() + "\t"
+                + run.durationMillis() + "\t" + run.exitCode() + (run.timedOut() ? "\ttimeout" : ""));
+    }
+
+    private static void appendLine(Path file, String line) {
+        try {
+            Files.createDirectories(HOME);
+            Files.writeString(file, line + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not write " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
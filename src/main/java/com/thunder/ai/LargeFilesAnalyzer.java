@@ -0,0 +1,42 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.LongAdder;
+
+// Files above a size threshold, reported largest first
+public class LargeFilesAnalyzer implements FileAnalyzer {
+
+    private final long minBytes;
+    private final TopK<Path> largest;
+    private final LongAdder matches = new LongAdder();
+
+    public LargeFilesAnalyzer(long minBytes) {
+        this(minBytes, 10);
+    }
+
+    public LargeFilesAnalyzer(long minBytes, int limit) {
+        this.minBytes = minBytes;
+        this.largest = new TopK<>(limit);
+    }
+
+    @Override
+    public void onFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.size() > minBytes) {
+            matches.increment();
+            largest.offer(attrs.size(), file);
+        }
+    }
+
+    @Override
+    public void report() {
+        if (matches.sum() == 0) {
+            System.out.println("📌 Large unused files: None");
+        } else {
+            System.out.println("📌 Large unused files (" + matches.sum() + " over " + (minBytes / 1024 / 1024) + " MB):");
+            for (TopK.Entry<Path> e : largest.sortedDescending()) {
+                System.out.println("  - " + e.item() + " (" + (e.key() / 1024 / 1024) + " MB)");
+            }
+        }
+    }
+}
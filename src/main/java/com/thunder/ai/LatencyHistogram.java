@@ -0,0 +1,95 @@
+package com.thunder.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of microsecond values in the style of HdrHistogram: every
+// power of two is split into 32 linear sub-buckets, so any recorded value is
+// reported within ~3% whatever its magnitude. Recording is one index computation
+// and one atomic increment, with no lock and no allocation.
+public class LatencyHistogram {
+
+    public record Snapshot(long count, long sumMicros, long maxMicros, long p50, long p90, long p99) {
+
+        public double meanMicros() {
+            return count == 0 ? 0 : (double) sumMicros / count;
+        }
+    }
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // Values up to 2^40 us (about 12 days); anything larger lands in the last bucket
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long micros) {
+        long v = Math.max(0, micros);
+        counts.incrementAndGet(bucket(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    // Highest value equivalent to the bucket holding the given quantile (0..1)
+    public long quantile(double q) {
+        return quantiles(q)[0];
+    }
+
+    public Snapshot snapshot() {
+        long[] q = quantiles(0.5, 0.9, 0.99);
+        return new Snapshot(count.sum(), sum.sum(), max.get(), q[0], q[1], q[2]);
+    }
+
+    // One pass over the buckets for all quantiles, which must be ascending
+    private long[] quantiles(double... qs) {
+        long[] result = new long[qs.length];
+        long total = 0;
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        if (total == 0) return result;
+
+        long seen = 0;
+        int q = 0;
+        for (int i = 0; i < BUCKETS && q < qs.length; i++) {
+            seen += copy[i];
+            while (q < qs.length && seen >= Math.max(1, (long) Math.ceil(qs[q] * total))) {
+                // Never report more than was actually recorded
+                result[q++] = Math.min(upperBound(i), max.get());
+            }
+        }
+        return result;
+    }
+
+    static int bucket(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        int shift = exponent - SUB_BITS;
+        return ((SUB_COUNT + sub) << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,29 @@
+package com.thunder.ai;
+
+import java.util.function.Consumer;
+
+// Anything that can turn a plain-English instruction into a shell command.
+// Gemini is the default; LocalBackend answers from built-in rules for offline hosts.
+public interface LlmBackend {
+
+    record StreamResult(String text, long firstTokenMillis, long totalMillis) {}
+
+    String name();
+
+    // The model's answer for the user's instruction, or null if it failed (see lastError)
+    String generate(String instruction);
+
+    // Streams the answer to onToken as it is produced; null means "use generate instead"
+    default StreamResult stream(String instruction, Consumer<String> onToken) {
+        return null;
+    }
+
+    String lastError();
+
+    // Called off the main thread while the user is still typing, so the first real
+    // request finds connections open and classes loaded; failures are ignored
+    default void warmUp() {}
+
+    // Debugging aid printed after every model failed
+    default void listModels() {}
+}
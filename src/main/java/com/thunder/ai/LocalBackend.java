@@ -0,0 +1,85 @@
+package com.thunder.ai;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Offline stand-in for the model: a fixed list of phrase patterns with command
+// templates covering the commands in TESTING.md. Anything it does not recognise
+// fails like a model error would, so the rest of the app behaves the same.
+public class LocalBackend implements LlmBackend {
+
+    private record Rule(Pattern pattern, String template) {}
+
+    private static final boolean LINUX = ProcMetricsProvider.isSupported();
+
+    private static final List<Rule> RULES = List.of(
+            rule("(?:create|make) (?:a )?(?:new )?file (?:called |named )?(\\S+)", "touch $1"),
+            rule("(?:create|make) (?:a )?(?:new )?(?:directory|folder) (?:called |named )?(\\S+)", "mkdir -p $1"),
+            rule("(?:delete|remove) (?:the )?file (\\S+)", "rm $1"),
+            rule("copy (\\S+) to (\\S+)", "cp $1 $2"),
+            rule("(?:move|rename) (\\S+) to (\\S+)", "mv $1 $2"),
+            rule("(?:show |list )?(?:me )?files ending with (\\.\\w+)", "ls *$1"),
+            rule("list (?:all )?files.*", "ls -la"),
+            rule("find (?:all )?\\.?(\\w+) files.*", "find . -name \"*.$1\""),
+            rule("count lines in (\\S+)", "wc -l $1"),
+            rule("show (?:the )?first (\\d+) lines of (\\S+)", "head -n $1 $2"),
+            rule("show (?:the )?last (\\d+) lines of (\\S+)", "tail -n $1 $2"),
+            rule("search for (?:word |the word )?\"?([^\"]+?)\"? in (\\S+)", "grep \"$1\" $2"),
+            rule("show (?:the )?content(?:s)? of (\\S+)", "cat $1"),
+            rule("compress (\\S+) into (\\S+)", "zip $2 $1"),
+            rule("check if (\\S+) is reachable", "ping -c 4 $1"),
+            rule("ping (\\S+)", "ping -c 4 $1"),
+            rule("find process (?:by name )?(\\S+)", "ps aux | grep $1"),
+            rule(".*top processes.*", LINUX ? "ps aux --sort=-%cpu | head -n 20" : "top -l 1 | head -n 20"),
+            rule(".*(?:running )?processes.*", "ps aux"),
+            rule(".*current directory.*|where am i", "pwd"),
+            rule(".*(?:disk usage|free space).*", "df -h"),
+            rule(".*memory usage.*", LINUX ? "free -h" : "vm_stat"),
+            rule(".*(?:date|time).*", "date"),
+            rule(".*system info.*", "uname -a"),
+            rule(".*network connections.*", "netstat -an"),
+            rule(".*ip address.*", LINUX ? "hostname -I" : "ifconfig | grep \"inet \""),
+            rule(".*environment variables.*", "env"),
+            rule(".*home directory.*", "cd ~"));
+
+    private volatile String lastError = null;
+
+    private static Rule rule(String regex, String template) {
+        return new Rule(Pattern.compile(regex, Pattern.CASE_INSENSITIVE), template);
+    }
+
+    @Override
+    public String name() {
+        return "local rules (offline)";
+    }
+
+    @Override
+    public String generate(String instruction) {
+        String command = translate(instruction);
+        if (command == null) {
+            lastError = "no local rule matches '" + instruction + "'";
+        }
+        return command;
+    }
+
+    @Override
+    public String lastError() {
+        return lastError;
+    }
+
+    // Shared with FakeGeminiServer so the stand-in answers like a real model would
+    static String translate(String instruction) {
+        String text = instruction.trim().replaceAll("[?!.]+$", "");
+        for (Rule rule : RULES) {
+            Matcher m = rule.pattern().matcher(text);
+            if (m.matches()) {
+                // The match spans the whole text, so this is just the expanded template
+                StringBuilder sb = new StringBuilder();
+                m.appendReplacement(sb, rule.template());
+                return sb.toString();
+            }
+        }
+        return null;
+    }
+}
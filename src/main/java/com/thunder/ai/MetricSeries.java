@@ -0,0 +1,50 @@
+package com.thunder.ai;
+
+import java.util.Arrays;
+
+// Fixed-size ring of primitive samples. Appending never allocates; window
+// statistics reuse a preallocated scratch array for the percentile.
+public class MetricSeries {
+
+    public record Stats(int count, double min, double avg, double p95, double max) {}
+
+    private final double[] values;
+    private final double[] scratch;
+    private int head = -1;
+    private int count = 0;
+
+    public MetricSeries(int capacity) {
+        this.values = new double[capacity];
+        this.scratch = new double[capacity];
+    }
+
+    public synchronized void add(double value) {
+        head = (head + 1) % values.length;
+        values[head] = value;
+        if (count < values.length) count++;
+    }
+
+    public synchronized double latest() {
+        return head < 0 ? Double.NaN : values[head];
+    }
+
+    // Statistics over the newest n samples (or fewer if not collected yet)
+    public synchronized Stats window(int n) {
+        int size = Math.min(n, count);
+        if (size == 0) return new Stats(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double v = values[Math.floorMod(head - i, values.length)];
+            scratch[i] = v;
+            if (v < min) min = v;
+            if (v > max) max = v;
+            sum += v;
+        }
+        Arrays.sort(scratch, 0, size);
+        double p95 = scratch[Math.min(size - 1, (int) Math.ceil(size * 0.95) - 1)];
+        return new Stats(size, min, sum / size, p95, max);
+    }
+}
@@ -0,0 +1,182 @@
+package com.thunder.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/*
+ * Process-wide registry of counters, gauges and latency timers. Call sites look a
+ * series up once, keep the handle in a field and then only touch LongAdders and
+ * LatencyHistograms, so recording never locks or allocates. When disabled every
+ * record call is a single volatile read, and Timer.start() skips the clock.
+ *
+ * Series are named the Prometheus way (snake_case, _total for counters, _seconds
+ * for timers) with optional label pairs; MetricsExporter renders them.
+ */
+public final class Metrics {
+
+    public enum Type { COUNTER, GAUGE, TIMER }
+
+    // labels is the rendered Prometheus form, tags the same pairs as a map
+    public record Series(String name, String labels, Map<String, String> tags, String help, Type type, Object metric) {
+
+        // Counter and gauge value; timers report their count
+        public double value() {
+            return switch (type) {
+                case COUNTER, GAUGE -> ((DoubleSupplier) metric).getAsDouble();
+                case TIMER -> ((Timer) metric).histogram().count();
+            };
+        }
+    }
+
+    public static final class Counter implements DoubleSupplier {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            if (enabled) adder.increment();
+        }
+
+        public void add(long n) {
+            if (enabled) adder.add(n);
+        }
+
+        public long sum() {
+            return adder.sum();
+        }
+
+        @Override
+        public double getAsDouble() {
+            return adder.sum();
+        }
+    }
+
+    public static final class Gauge implements DoubleSupplier {
+        private volatile double value;
+
+        public void set(double value) {
+            if (enabled) this.value = value;
+        }
+
+        @Override
+        public double getAsDouble() {
+            return value;
+        }
+    }
+
+    public static final class Timer {
+        private static final long OFF = Long.MIN_VALUE;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        // Returns a token for stop(); reads no clock while metrics are off
+        public long start() {
+            return enabled ? System.nanoTime() : OFF;
+        }
+
+        public void stop(long start) {
+            if (start != OFF && enabled) histogram.recordNanos(System.nanoTime() - start);
+        }
+
+        public void recordNanos(long nanos) {
+            if (enabled) histogram.recordNanos(nanos);
+        }
+
+        public LatencyHistogram histogram() {
+            return histogram;
+        }
+    }
+
+    private static volatile boolean enabled = true;
+    // Sorted by name first so each family is contiguous when exported
+    private static final Map<String, Series> registry = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, Type.COUNTER, new Counter(), labels);
+    }
+
+    public static Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) register(name, help, Type.GAUGE, new Gauge(), labels);
+    }
+
+    public static Timer timer(String name, String help, String... labels) {
+        return (Timer) register(name, help, Type.TIMER, new Timer(), labels);
+    }
+
+    // Exposes a count some other class already keeps, so it is not counted twice
+    public static void counterOf(String name, String help, LongSupplier source, String... labels) {
+        register(name, help, Type.COUNTER, (DoubleSupplier) source::getAsLong, labels);
+    }
+
+    // Returns the existing metric when the series is already registered
+    private static Object register(String name, String help, Type type, Object metric, String... labels) {
+        String rendered = labels(labels);
+        Series series = registry.computeIfAbsent(name + '\u0000' + rendered,
+                k -> new Series(name, rendered, tags(labels), help, type, metric));
+        if (series.type() != type) throw new IllegalArgumentException(name + " is already a " + series.type());
+        return series.metric();
+    }
+
+    // "model", "gemini-2.5-flash" -> model="gemini-2.5-flash"
+    private static String labels(String... pairs) {
+        if (pairs.length % 2 != 0) throw new IllegalArgumentException("Labels come in name/value pairs");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(pairs[i]).append("=\"")
+                    .append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> tags(String... pairs) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            tags.put(pairs[i], pairs[i + 1]);
+        }
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public static List<Series> series() {
+        return new ArrayList<>(registry.values());
+    }
+
+    public static void printStats() {
+        System.out.println("📈 Metrics" + (enabled ? ":" : " (recording off):"));
+        boolean any = false;
+        for (Series s : registry.values()) {
+            String id = s.labels().isEmpty() ? s.name() : s.name() + "{" + s.labels() + "}";
+            if (s.type() == Type.TIMER) {
+                LatencyHistogram.Snapshot snap = ((Timer) s.metric()).histogram().snapshot();
+                if (snap.count() == 0) continue;
+                System.out.printf("  %s  n=%d  p50 %s  p90 %s  p99 %s  max %s%n", id, snap.count(),
+                        millis(snap.p50()), millis(snap.p90()), millis(snap.p99()), millis(snap.maxMicros()));
+            } else {
+                double v = s.value();
+                if (v == 0) continue;
+                System.out.println("  " + id + "  " + (v == Math.rint(v) ? String.valueOf((long) v) : String.format("%.1f", v)));
+            }
+            any = true;
+        }
+        if (!any) System.out.println("  nothing recorded yet");
+    }
+
+    private static String millis(long micros) {
+        return micros < 10_000 ? String.format("%.2f ms", micros / 1000.0) : (micros / 1000) + " ms";
+    }
+}
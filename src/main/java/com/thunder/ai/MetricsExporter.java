@@ -0,0 +1,144 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Renders the Metrics registry as Prometheus text exposition or JSON and, when a
+// file is configured, rewrites that file on an interval. Each dump is written to a
+// temporary sibling and moved into place, so a scraper never sees half a file.
+public class MetricsExporter {
+
+    public enum Format { PROMETHEUS, JSON }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    // Jackson takes the better part of a second to set up; only JSON output pays for it
+    private static final class Json {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+
+    private static Path file = null;
+    private static Format format = Format.PROMETHEUS;
+
+    // Format from the name unless given: *.json is JSON, anything else Prometheus text
+    public static Format parseFormat(String name, Path target) {
+        if (name != null && !name.isBlank()) {
+            return switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "json" -> Format.JSON;
+                case "prometheus", "prom", "text" -> Format.PROMETHEUS;
+                default -> throw new IllegalArgumentException("Unknown metrics format: " + name);
+            };
+        }
+        return target.toString().endsWith(".json") ? Format.JSON : Format.PROMETHEUS;
+    }
+
+    public static synchronized void start(ScheduledExecutorService scheduler, Path target, Format as, long intervalSeconds) {
+        if (file != null) return;
+        file = target;
+        format = as;
+        scheduler.scheduleAtFixedRate(MetricsExporter::dump, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Writes the configured file now; also called once on exit for the final numbers
+    public static synchronized void dump() {
+        if (file == null) return;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, render(format), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // Metrics must never take the assistant down; the next tick tries again
+        }
+    }
+
+    public static String render(Format as) {
+        return as == Format.JSON ? json() : prometheus();
+    }
+
+    // Timers become summaries in seconds: quantile series plus _sum and _count
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        String family = null;
+        for (Metrics.Series s : Metrics.series()) {
+            if (!s.name().equals(family)) {
+                family = s.name();
+                sb.append("# HELP ").append(s.name()).append(' ').append(s.help()).append('\n');
+                sb.append("# TYPE ").append(s.name()).append(' ').append(switch (s.type()) {
+                    case COUNTER -> "counter";
+                    case GAUGE -> "gauge";
+                    case TIMER -> "summary";
+                }).append('\n');
+            }
+            if (s.type() != Metrics.Type.TIMER) {
+                sb.append(s.name()).append(braces(s.labels())).append(' ').append(number(s.value())).append('\n');
+                continue;
+            }
+            LatencyHistogram h = ((Metrics.Timer) s.metric()).histogram();
+            LatencyHistogram.Snapshot snap = h.snapshot();
+            long[] values = {snap.p50(), snap.p90(), snap.p99()};
+            for (int i = 0; i < QUANTILES.length; i++) {
+                String labels = (s.labels().isEmpty() ? "" : s.labels() + ",") + "quantile=\"" + QUANTILES[i] + "\"";
+                sb.append(s.name()).append('{').append(labels).append("} ").append(seconds(values[i])).append('\n');
+            }
+            sb.append(s.name()).append("_sum").append(braces(s.labels())).append(' ').append(seconds(snap.sumMicros())).append('\n');
+            sb.append(s.name()).append("_count").append(braces(s.labels())).append(' ').append(snap.count()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static String json() {
+        ObjectNode root = Json.MAPPER.createObjectNode();
+        root.put("timestamp", System.currentTimeMillis());
+        root.put("enabled", Metrics.enabled());
+        ArrayNode metrics = root.putArray("metrics");
+        for (Metrics.Series s : Metrics.series()) {
+            ObjectNode m = metrics.addObject();
+            m.put("name", s.name());
+            m.put("type", s.type().name().toLowerCase(Locale.ROOT));
+            if (!s.tags().isEmpty()) {
+                ObjectNode labels = m.putObject("labels");
+                s.tags().forEach(labels::put);
+            }
+            if (s.type() != Metrics.Type.TIMER) {
+                m.put("value", s.value());
+                continue;
+            }
+            LatencyHistogram.Snapshot snap = ((Metrics.Timer) s.metric()).histogram().snapshot();
+            m.put("count", snap.count());
+            m.put("meanMillis", snap.meanMicros() / 1000.0);
+            m.put("p50Millis", snap.p50() / 1000.0);
+            m.put("p90Millis", snap.p90() / 1000.0);
+            m.put("p99Millis", snap.p99() / 1000.0);
+            m.put("maxMillis", snap.maxMicros() / 1000.0);
+        }
+        try {
+            return Json.MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String seconds(long micros) {
+        return number(micros / 1_000_000.0);
+    }
+
+    private static String number(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? String.valueOf((long) v) : String.valueOf(v);
+    }
+}
@@ -0,0 +1,14 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+
+// Backend that reads system resources without forking external commands
+public interface MetricsProvider {
+
+    MetricsSample sample() throws IOException;
+
+    // Linux reads /proc directly; elsewhere the JVM's OperatingSystemMXBean is used
+    static MetricsProvider detect() {
+        return ProcMetricsProvider.isSupported() ? new ProcMetricsProvider() : new MxBeanMetricsProvider();
+    }
+}
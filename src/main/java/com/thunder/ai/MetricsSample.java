@@ -0,0 +1,19 @@
+package com.thunder.ai;
+
+import java.util.List;
+
+// One point-in-time reading of system resources. processes is null when the
+// backend cannot enumerate processes itself.
+public record MetricsSample(long timestampMillis, double cpuUsage, long memTotal, long memAvailable,
+        long diskTotal, long diskUsable, double loadAverage, List<ProcessSample> processes) {
+
+    public record ProcessSample(int pid, String name, double cpuPercent, long rssBytes) {}
+
+    public long memUsed() {
+        return memTotal - memAvailable;
+    }
+
+    public long diskUsed() {
+        return diskTotal - diskUsable;
+    }
+}
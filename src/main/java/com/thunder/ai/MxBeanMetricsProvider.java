@@ -0,0 +1,25 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.sun.management.OperatingSystemMXBean;
+
+// Portable backend (macOS and others): CPU and memory from the JVM, disk from the
+// root FileStore. It cannot list processes, so callers fall back to ps for that.
+public class MxBeanMetricsProvider implements MetricsProvider {
+
+    private final OperatingSystemMXBean os =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    @Override
+    public MetricsSample sample() throws IOException {
+        FileStore store = Files.getFileStore(Paths.get("/"));
+        return new MetricsSample(System.currentTimeMillis(), Math.max(0, os.getCpuLoad()),
+                os.getTotalMemorySize(), os.getFreeMemorySize(),
+                store.getTotalSpace(), store.getUsableSpace(), os.getSystemLoadAverage(), null);
+    }
+}
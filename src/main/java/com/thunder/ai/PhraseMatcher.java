@@ -0,0 +1,222 @@
+package com.thunder.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+// Aho-Corasick automaton over a fixed set of phrases. Built once, then every
+// occurrence of every phrase is found in a single left-to-right pass over the
+// text. Transitions are one flat table over the phrases' own alphabet, indexed by
+// (state << shift) + symbol; any other character falls back to the root. With
+// ignoreCase, upper and lower case letters share a symbol, so the text never has
+// to be lower-cased first.
+public class PhraseMatcher {
+
+    private static final int ACCEPT = Integer.MIN_VALUE;
+
+    public interface Hit {
+        void onMatch(int phrase, int start);
+    }
+
+    private final String[] phrases;
+    private final int[] lengths;
+    private final int[] alphabet = new int[128];
+    // Rows are padded to a power of two so a table offset turns back into a state with a shift
+    private final int shift;
+    // Target states are stored as table offsets, with the sign bit set when
+    // the target completes a phrase, so the scan loop needs one load per character
+    private final int[] next;
+    // Plain trie edges (-1 when missing) and the phrase ending at each node, for anchored walks
+    private final int[] goTo;
+    private final int[] own;
+    private final int[][] outputs;
+
+    public PhraseMatcher(List<String> phrases) {
+        this(phrases, false);
+    }
+
+    public PhraseMatcher(List<String> phrases, boolean ignoreCase) {
+        this.phrases = phrases.toArray(new String[0]);
+        this.lengths = new int[this.phrases.length];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = this.phrases[i].length();
+        }
+
+        // Column 0 is shared by every character that no phrase contains
+        int symbols = 1;
+        for (String p : this.phrases) {
+            for (int i = 0; i < p.length(); i++) {
+                char c = p.charAt(i);
+                if (c >= 128) throw new IllegalArgumentException("Non-ASCII phrase: " + p);
+                if (alphabet[c] == 0) {
+                    alphabet[c] = symbols++;
+                    if (ignoreCase) {
+                        alphabet[Character.toLowerCase(c)] = alphabet[c];
+                        alphabet[Character.toUpperCase(c)] = alphabet[c];
+                    }
+                }
+            }
+        }
+
+        // Trie first; -1 marks a missing edge until the failure links fill it in
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(newRow(symbols));
+        out.add(new ArrayList<>());
+        for (int id = 0; id < this.phrases.length; id++) {
+            int state = 0;
+            for (char c : this.phrases[id].toCharArray()) {
+                int s = alphabet[c];
+                if (trie.get(state)[s] < 0) {
+                    trie.get(state)[s] = trie.size();
+                    trie.add(newRow(symbols));
+                    out.add(new ArrayList<>());
+                }
+                state = trie.get(state)[s];
+            }
+            out.get(state).add(id);
+        }
+
+        this.shift = 32 - Integer.numberOfLeadingZeros(symbols - 1);
+        int stride = 1 << shift;
+        this.goTo = new int[trie.size() * stride];
+        this.own = new int[trie.size()];
+        for (int state = 0; state < trie.size(); state++) {
+            for (int s = 0; s < symbols; s++) {
+                int child = trie.get(state)[s];
+                goTo[(state << shift) + s] = child < 0 ? -1 : child << shift;
+            }
+            own[state] = out.get(state).isEmpty() ? -1 : out.get(state).get(0);
+        }
+
+        // Breadth-first over the trie turns it into a full DFA
+        int[] fail = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < symbols; s++) {
+            int child = trie.get(0)[s];
+            if (child < 0) {
+                trie.get(0)[s] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            out.get(state).addAll(out.get(fail[state]));
+            for (int s = 0; s < symbols; s++) {
+                int child = trie.get(state)[s];
+                if (child < 0) {
+                    trie.get(state)[s] = trie.get(fail[state])[s];
+                } else {
+                    fail[child] = trie.get(fail[state])[s];
+                    queue.add(child);
+                }
+            }
+        }
+
+        this.outputs = new int[trie.size()][];
+        for (int i = 0; i < out.size(); i++) {
+            outputs[i] = out.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.next = new int[trie.size() * stride];
+        for (int state = 0; state < trie.size(); state++) {
+            for (int s = 0; s < symbols; s++) {
+                int target = trie.get(state)[s];
+                next[(state << shift) + s] = target << shift | (outputs[target].length > 0 ? ACCEPT : 0);
+            }
+        }
+    }
+
+    private static int[] newRow(int symbols) {
+        int[] row = new int[symbols];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    public int size() {
+        return phrases.length;
+    }
+
+    public String phrase(int id) {
+        return phrases[id];
+    }
+
+    public int length(int id) {
+        return lengths[id];
+    }
+
+    public void scan(CharSequence text, Hit hit) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int t = next[state + symbol(text.charAt(i))];
+            state = t & ~ACCEPT;
+            if (t >= 0) continue;
+            for (int id : outputs[state >>> shift]) {
+                hit.onMatch(id, i - lengths[id] + 1);
+            }
+        }
+    }
+
+    /*
+     * Allocation-free variant for hot paths: sets bit `id` in `anywhere` for every
+     * phrase found in text[from, to), and also in `atStart` when the occurrence
+     * begins at `from` (atStart may be null). Returns false if nothing matched.
+     */
+    public boolean mark(String text, int from, int to, long[] anywhere, long[] atStart) {
+        // Locals keep the tables in registers across the hit bookkeeping below
+        int[] next = this.next;
+        int[] alphabet = this.alphabet;
+        boolean any = false;
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int t = next[state + (c < 128 ? alphabet[c] : 0)];
+            state = t & ~ACCEPT;
+            if (t >= 0) continue;
+            any = true;
+            for (int id : outputs[state >>> shift]) {
+                anywhere[id >>> 6] |= 1L << id;
+                if (atStart != null && i - lengths[id] + 1 == from) atStart[id >>> 6] |= 1L << id;
+            }
+        }
+        return any;
+    }
+
+    /*
+     * For phrases that start at `from`: the lowest prefixRank[id] among them, also
+     * counting exactRank[id] for one that spans all of text[from, to), or
+     * Integer.MAX_VALUE if none starts there. Walks the plain trie and stops at the
+     * first character no phrase continues with, so a miss usually costs a
+     * character or two rather than a pass over the whole text.
+     */
+    public int bestPrefix(String text, int from, int to, int[] prefixRank, int[] exactRank) {
+        int best = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            state = goTo[state + symbol(text.charAt(i))];
+            if (state < 0) break;
+            int id = own[state >>> shift];
+            if (id >= 0) {
+                best = Math.min(best, prefixRank[id]);
+                if (i + 1 == to) best = Math.min(best, exactRank[id]);
+            }
+        }
+        return best;
+    }
+
+    public boolean containsAny(String text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next[state + symbol(text.charAt(i))];
+            if (state < 0) return true;
+        }
+        return false;
+    }
+
+    private int symbol(char c) {
+        return c < 128 ? alphabet[c] : 0;
+    }
+}
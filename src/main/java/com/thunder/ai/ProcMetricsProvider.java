@@ -0,0 +1,193 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Linux backend: /proc/stat, /proc/meminfo and /proc/[pid]/stat, plus the root FileStore
+public class ProcMetricsProvider implements MetricsProvider {
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final long CLOCK_TICKS = 100;   // USER_HZ on every mainstream kernel
+    // 4K on x86, but arm64 kernels may use 16K or 64K pages
+    private static final long PAGE_SIZE = pageSize();
+
+    private long prevTotal = 0;
+    private long prevIdle = 0;
+    private long prevNanos = 0;
+    // Keyed by pid; the start time tells a reused pid from the process seen last time
+    private Map<Integer, Seen> prevSeen = new HashMap<>();
+    // /proc/[pid]/stat is a single short line; reuse one buffer instead of a String per file
+    private final ByteBuffer statBuffer = ByteBuffer.allocate(1024);
+
+    private record Seen(long startTime, long ticks, String comm) {}
+
+    // The kernel page size of our first mapping, the java binary, which huge pages never back
+    private static long pageSize() {
+        try (Stream<String> lines = Files.lines(PROC.resolve("self").resolve("smaps"), StandardCharsets.US_ASCII)) {
+            return lines.filter(line -> line.startsWith("KernelPageSize:"))
+                    .findFirst()
+                    .map(ProcMetricsProvider::kilobytes)
+                    .filter(size -> size > 0)
+                    .orElse(4096L);
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            return 4096;
+        }
+    }
+
+    public static boolean isSupported() {
+        return Files.isReadable(PROC.resolve("stat")) && Files.isReadable(PROC.resolve("meminfo"));
+    }
+
+    @Override
+    public synchronized MetricsSample sample() throws IOException {
+        long now = System.nanoTime();
+        double cpu = readCpu();
+        long[] mem = readMemInfo();
+        FileStore store = Files.getFileStore(Paths.get("/"));
+        List<MetricsSample.ProcessSample> processes = readProcesses(now);
+        prevNanos = now;
+
+        return new MetricsSample(System.currentTimeMillis(), cpu, mem[0], mem[1],
+                store.getTotalSpace(), store.getUsableSpace(),
+                ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage(), processes);
+    }
+
+    // Busy fraction since the previous sample, from the aggregate "cpu" line
+    private double readCpu() throws IOException {
+        String line = firstLine(PROC.resolve("stat"));
+        String[] f = line.trim().split("\\s+");
+        long total = 0;
+        for (int i = 1; i < f.length; i++) {
+            total += Long.parseLong(f[i]);
+        }
+        long idle = Long.parseLong(f[4]) + (f.length > 5 ? Long.parseLong(f[5]) : 0); // idle + iowait
+
+        long dTotal = total - prevTotal;
+        long dIdle = idle - prevIdle;
+        prevTotal = total;
+        prevIdle = idle;
+        return dTotal <= 0 ? 0 : 1.0 - (double) dIdle / dTotal;
+    }
+
+    // {MemTotal, MemAvailable} in bytes
+    private long[] readMemInfo() throws IOException {
+        long total = 0;
+        long available = -1;
+        long free = 0;
+        for (String line : Files.readAllLines(PROC.resolve("meminfo"), StandardCharsets.US_ASCII)) {
+            if (line.startsWith("MemTotal:")) total = kilobytes(line);
+            else if (line.startsWith("MemAvailable:")) available = kilobytes(line);
+            else if (line.startsWith("MemFree:")) free = kilobytes(line);
+        }
+        return new long[]{total, available >= 0 ? available : free};
+    }
+
+    private List<MetricsSample.ProcessSample> readProcesses(long now) {
+        List<MetricsSample.ProcessSample> result = new ArrayList<>();
+        Map<Integer, Seen> seen = new HashMap<>();
+        double elapsedTicks = prevNanos == 0 ? 0 : (now - prevNanos) / 1e9 * CLOCK_TICKS;
+
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(PROC)) {
+            for (Path dir : dirs) {
+                String name = dir.getFileName().toString();
+                if (name.isEmpty() || !Character.isDigit(name.charAt(0))) continue;
+                try {
+                    int pid = Integer.parseInt(name);
+                    int length = readStat(dir.resolve("stat"));
+                    byte[] b = statBuffer.array();
+
+                    // comm may contain spaces and parentheses, so everything is relative to the last ')'
+                    int open = indexOf(b, 0, length, (byte) '(');
+                    int close = lastIndexOf(b, length, (byte) ')');
+
+                    // Fields after ')' start at field 3 (state); utime=14, stime=15, starttime=22, rss=24
+                    long utime = field(b, close + 2, length, 11);
+                    long stime = field(b, close + 2, length, 12);
+                    long startTime = field(b, close + 2, length, 19);
+                    long rss = field(b, close + 2, length, 21) * PAGE_SIZE;
+                    long used = utime + stime;
+
+                    Seen prev = prevSeen.get(pid);
+                    if (prev != null && prev.startTime() != startTime) prev = null; // pid was reused
+                    String comm = prev != null ? prev.comm() : new String(b, open + 1, close - open - 1, StandardCharsets.UTF_8);
+                    seen.put(pid, new Seen(startTime, used, comm));
+
+                    double cpuPercent = prev == null || elapsedTicks == 0 ? 0 : (used - prev.ticks()) * 100.0 / elapsedTicks;
+                    result.add(new MetricsSample.ProcessSample(pid, comm, cpuPercent, rss));
+                } catch (IOException | RuntimeException e) {
+                    // Process exited while we were reading it
+                }
+            }
+        } catch (IOException e) {
+            return result;
+        }
+
+        prevSeen = seen;
+        return result;
+    }
+
+    private int readStat(Path file) throws IOException {
+        statBuffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (statBuffer.hasRemaining() && channel.read(statBuffer) > 0) {
+                // keep reading until EOF or the buffer is full
+            }
+        }
+        return statBuffer.position();
+    }
+
+    // Parses the index-th space separated number starting at from
+    private static long field(byte[] b, int from, int length, int index) {
+        int i = from;
+        for (int skipped = 0; skipped < index && i < length; i++) {
+            if (b[i] == ' ') skipped++;
+        }
+        long value = 0;
+        boolean negative = i < length && b[i] == '-';
+        if (negative) i++;
+        for (; i < length && b[i] >= '0' && b[i] <= '9'; i++) {
+            value = value * 10 + (b[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static int indexOf(byte[] b, int from, int length, byte c) {
+        for (int i = from; i < length; i++) {
+            if (b[i] == c) return i;
+        }
+        throw new IllegalStateException("malformed stat");
+    }
+
+    private static int lastIndexOf(byte[] b, int length, byte c) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (b[i] == c) return i;
+        }
+        throw new IllegalStateException("malformed stat");
+    }
+
+    private static long kilobytes(String line) {
+        String[] f = line.trim().split("\\s+");
+        return Long.parseLong(f[1]) * 1024;
+    }
+
+    private static String firstLine(Path file) throws IOException {
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            return reader.readLine();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.thunder.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Runs shell commands with stdout and stderr pumped concurrently, line by line, as
+// the child produces them. Supports timeouts, Ctrl-C cancellation of the child (the
+// JVM keeps running) and several commands in parallel with tagged output.
+public class ProcessRunner {
+
+    private static final String SHELL = Files.isExecutable(Paths.get("/bin/zsh")) ? "/bin/zsh" : "/bin/sh";
+    private static final long POLL_MILLIS = 100;
+    private static final long KILL_GRACE_SECONDS = 2;
+
+    // Java 17 has no virtual threads; cached daemon threads keep the per-stream cost low
+    private static final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "process-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private static final Set<Process> cancelled = ConcurrentHashMap.newKeySet();
+    private static boolean interruptHandlerInstalled = false;
+
+    private static final Metrics.Timer SPAWN = Metrics.timer("process_spawn_seconds", "Time for ProcessBuilder.start to return");
+    private static final Metrics.Timer WALL = Metrics.timer("process_run_seconds", "Wall time of shell commands, spawn to exit");
+    private static final Metrics.Counter FAILURES = Metrics.counter("process_failures_total",
+            "Commands that exited non-zero, timed out, were cancelled or never started");
+
+    public record Result(int exitCode, long wallNanos, long cpuNanos, boolean timedOut, boolean cancelled) {
+
+        public boolean succeeded() {
+            return exitCode == 0 && !timedOut && !cancelled;
+        }
+
+        public String summary() {
+            String status = timedOut ? "⏱️ Timed out" : cancelled ? "🛑 Cancelled" : (exitCode == 0 ? "✅" : "❌") + " Exit code " + exitCode;
+            return status + " · wall " + wallNanos / 1_000_000 + " ms"
+                    + (cpuNanos > 0 ? " · cpu " + cpuNanos / 1_000_000 + " ms" : "");
+        }
+    }
+
+    public interface OutputListener {
+        void onLine(String line, boolean stderr);
+    }
+
+    // Prints lines as they arrive, prefixed with the tag when running in parallel. The
+    // streams are resolved now: lines arrive on pump threads, outside any daemon session
+    public static OutputListener printer(String tag) {
+        String prefix = tag == null ? "" : "[" + tag + "] ";
+        PrintStream out = Daemon.resolve(System.out);
+        PrintStream err = Daemon.resolve(System.err);
+        return (line, stderr) -> (stderr ? err : out).println(prefix + line);
+    }
+
+    public static Result run(String cmd) {
+        return run(cmd, null, printer(null));
+    }
+
+    public static Result run(String cmd, Duration timeout, OutputListener listener) {
+        installInterruptHandler();
+        long start = System.nanoTime();
+        Process p;
+        try {
+            Path dir = Daemon.workingDirectory();
+            p = new ProcessBuilder(SHELL, "-c", cmd).directory(dir == null ? null : dir.toFile()).start();
+        } catch (IOException e) {
+            FAILURES.increment();
+            listener.onLine("❌ Error running command: " + e.getMessage(), true);
+            return new Result(-1, System.nanoTime() - start, 0, false, false);
+        }
+        SPAWN.recordNanos(System.nanoTime() - start);
+        running.add(p);
+
+        Future<?> out = workers.submit(() -> pump(p.getInputStream(), listener, false));
+        Future<?> err = workers.submit(() -> pump(p.getErrorStream(), listener, true));
+
+        long deadline = timeout == null ? Long.MAX_VALUE : start + timeout.toNanos();
+        long cpu = 0;
+        boolean timedOut = false;
+        try {
+            while (!p.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // CPU time is only readable while the process is alive, so keep the latest sample
+                cpu = Math.max(cpu, cpuNanos(p.toHandle()));
+                if (!timedOut && System.nanoTime() > deadline) {
+                    timedOut = true;
+                    kill(p);
+                }
+            }
+            out.get();
+            err.get();
+        } catch (InterruptedException e) {
+            kill(p);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            listener.onLine("⚠️ Output error: " + e.getCause().getMessage(), true);
+        } finally {
+            running.remove(p);
+        }
+
+        boolean wasCancelled = cancelled.remove(p);
+        int exit = p.isAlive() ? -1 : p.exitValue();
+        Result result = new Result(exit, System.nanoTime() - start, cpu, timedOut, wasCancelled);
+        WALL.recordNanos(result.wallNanos());
+        if (!result.succeeded()) FAILURES.increment();
+        return result;
+    }
+
+    // Runs all commands at once; results come back in input order
+    public static List<Result> runAll(List<String> cmds, Duration timeout) {
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < cmds.size(); i++) {
+            String cmd = cmds.get(i);
+            OutputListener listener = printer(String.valueOf(i + 1));
+            Path dir = Daemon.workingDirectory();
+            futures.add(workers.submit(() -> Daemon.inDirectory(dir, () -> run(cmd, timeout, listener))));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                results.add(new Result(-1, 0, 0, false, false));
+            }
+        }
+        return results;
+    }
+
+    public static void cancelAll() {
+        for (Process p : running) {
+            cancelled.add(p);
+            kill(p);
+        }
+    }
+
+    private static void pump(InputStream in, OutputListener listener, boolean stderr) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                listener.onLine(line, stderr);
+            }
+        } catch (IOException e) {
+            // Stream closed because the process was killed
+        }
+    }
+
+    private static void kill(Process p) {
+        p.descendants().forEach(ProcessHandle::destroy);
+        p.destroy();
+        workers.submit(() -> {
+            try {
+                if (!p.waitFor(KILL_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                    p.descendants().forEach(ProcessHandle::destroyForcibly);
+                    p.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static long cpuNanos(ProcessHandle handle) {
+        long total = handle.info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+        for (ProcessHandle child : handle.descendants().toList()) {
+            total += child.info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+        }
+        return total;
+    }
+
+    // Ctrl-C reaches both the JVM and the child; while commands run it only kills them.
+    // Otherwise the JVM exits and its shutdown hooks stop watchers and flush metrics
+    private static void onInterrupt() {
+        if (running.isEmpty()) {
+            System.out.println("\n👋 Bye my friend!");
+            System.exit(130);
+        }
+        cancelAll();
+    }
+
+    // sun.misc.Signal is looked up at run time: naming it draws a proprietary-API
+    // warning from javac that cannot be suppressed. Without it Ctrl-C just ends the JVM
+    private static synchronized void installInterruptHandler() {
+        if (interruptHandlerInstalled) return;
+        interruptHandlerInstalled = true;
+        try {
+            Class<?> signal = Class.forName("sun.misc.Signal");
+            Class<?> handler = Class.forName("sun.misc.SignalHandler");
+            Object onSignal = Proxy.newProxyInstance(handler.getClassLoader(), new Class<?>[] {handler}, (proxy, method, args) -> {
+                if (method.getName().equals("handle")) {
+                    onInterrupt();
+                    return null;
+                }
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> "interrupt handler";
+                };
+            });
+            signal.getMethod("handle", signal, handler)
+                    .invoke(null, signal.getConstructor(String.class).newInstance("INT"), onSignal);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Signal handling not available on this platform or JVM
+        }
+    }
+}
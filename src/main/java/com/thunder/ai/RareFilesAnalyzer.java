@@ -0,0 +1,45 @@
+package com.thunder.ai;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.LongAdder;
+
+// Files whose last access time is older than the cutoff, least recently used first
+public class RareFilesAnalyzer implements FileAnalyzer {
+
+    private final long cutoffMillis;
+    private final TopK<Path> oldest;
+    private final LongAdder matches = new LongAdder();
+
+    public RareFilesAnalyzer(long cutoffMillis) {
+        this(cutoffMillis, 10);
+    }
+
+    public RareFilesAnalyzer(long cutoffMillis, int limit) {
+        this.cutoffMillis = cutoffMillis;
+        this.oldest = new TopK<>(limit);
+    }
+
+    @Override
+    public void onFile(Path file, BasicFileAttributes attrs) {
+        long atime = attrs.lastAccessTime().toMillis();
+        if (atime < cutoffMillis) {
+            matches.increment();
+            oldest.offer(-atime, file); // negate so the oldest have the largest keys
+        }
+    }
+
+    @Override
+    public void report() {
+        if (matches.sum() == 0) {
+            System.out.println("⏳ Rarely touched files: None");
+        } else {
+            System.out.println("⏳ Rarely touched files (" + matches.sum() + " total, oldest first):");
+            long now = System.currentTimeMillis();
+            for (TopK.Entry<Path> e : oldest.sortedDescending()) {
+                long days = (now + e.key()) / (24L * 60 * 60 * 1000);
+                System.out.println("  - " + e.item() + " (" + days + " days)");
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.thunder.ai;
+
+import java.util.List;
+import java.util.Locale;
+
+// Continuous view over SystemMetrics: keeps 15 minutes of CPU, memory and disk
+// readings in primitive rings, answers 1/5/15 minute rolling statistics, raises
+// alerts when a threshold is crossed and serves "top consumers" from the latest
+// per-process sample without running ps.
+public class ResourceMonitor {
+
+    private static final int CAPACITY = 15 * 60; // 15 minutes at the 1 s sampling interval
+    private static final int[] WINDOWS = {60, 5 * 60, 15 * 60};
+    private static final String[] WINDOW_NAMES = {"1m", "5m", "15m"};
+
+    private static final MetricSeries cpu = new MetricSeries(CAPACITY);
+    private static final MetricSeries mem = new MetricSeries(CAPACITY);
+    private static final MetricSeries disk = new MetricSeries(CAPACITY);
+
+    // Latest per-process readings, reused between samples
+    private static int[] pids = new int[512];
+    private static double[] procCpu = new double[512];
+    private static long[] procRss = new long[512];
+    private static String[] procNames = new String[512];
+    private static int procCount = 0;
+
+    private static final String[] METRIC_NAMES = {"cpu", "mem", "disk"};
+    private static final double[] thresholds = {90, 90, 90};
+    private static final boolean[] alerting = new boolean[3];
+
+    public static void start() {
+        SystemMetrics.addListener(ResourceMonitor::record);
+    }
+
+    static void record(MetricsSample s) {
+        double[] current = {
+            s.cpuUsage() * 100,
+            s.memTotal() == 0 ? 0 : s.memUsed() * 100.0 / s.memTotal(),
+            s.diskTotal() == 0 ? 0 : s.diskUsed() * 100.0 / s.diskTotal()
+        };
+        cpu.add(current[0]);
+        mem.add(current[1]);
+        disk.add(current[2]);
+        recordProcesses(s.processes());
+        checkThresholds(current);
+    }
+
+    private static synchronized void recordProcesses(List<MetricsSample.ProcessSample> processes) {
+        if (processes == null) {
+            procCount = 0;
+            return;
+        }
+        int n = processes.size();
+        if (n > pids.length) {
+            int capacity = Math.max(n, pids.length * 2);
+            pids = new int[capacity];
+            procCpu = new double[capacity];
+            procRss = new long[capacity];
+            procNames = new String[capacity];
+        }
+        for (int i = 0; i < n; i++) {
+            MetricsSample.ProcessSample p = processes.get(i);
+            pids[i] = p.pid();
+            procCpu[i] = p.cpuPercent();
+            procRss[i] = p.rssBytes();
+            procNames[i] = p.name();
+        }
+        procCount = n;
+    }
+
+    // Edge-triggered so a sustained spike alerts once, then once more on recovery
+    private static synchronized void checkThresholds(double[] current) {
+        for (int i = 0; i < current.length; i++) {
+            if (!alerting[i] && current[i] >= thresholds[i]) {
+                alerting[i] = true;
+                System.out.println(String.format(Locale.ROOT, "%n🚨 Alert: %s at %.1f%% (threshold %.0f%%)",
+                        METRIC_NAMES[i], current[i], thresholds[i]));
+            } else if (alerting[i] && current[i] < thresholds[i]) {
+                alerting[i] = false;
+                System.out.println(String.format(Locale.ROOT, "%n✅ Recovered: %s back to %.1f%%", METRIC_NAMES[i], current[i]));
+            }
+        }
+    }
+
+    public static synchronized boolean setThreshold(String metric, double percent) {
+        for (int i = 0; i < METRIC_NAMES.length; i++) {
+            if (METRIC_NAMES[i].equals(metric)) {
+                thresholds[i] = percent;
+                alerting[i] = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void printSummary() {
+        System.out.println("📈 Resource monitor (% used, min / avg / p95 / max):");
+        printSeries("CPU", cpu, thresholds[0]);
+        printSeries("RAM", mem, thresholds[1]);
+        printSeries("Disk", disk, thresholds[2]);
+        System.out.println(String.format(Locale.ROOT, "  Sampler overhead: %.2f%% CPU", SystemMetrics.overheadPercent()));
+    }
+
+    private static void printSeries(String label, MetricSeries series, double threshold) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "  %-5s now %5.1f", label, series.latest()));
+        for (int i = 0; i < WINDOWS.length; i++) {
+            MetricSeries.Stats s = series.window(WINDOWS[i]);
+            if (s.count() == 0) continue;
+            sb.append(String.format(Locale.ROOT, " | %s %.0f/%.0f/%.0f/%.0f", WINDOW_NAMES[i], s.min(), s.avg(), s.p95(), s.max()));
+        }
+        sb.append(String.format(Locale.ROOT, " | alert ≥ %.0f", threshold));
+        System.out.println(sb);
+    }
+
+    public static synchronized boolean printTopConsumers(int limit) {
+        if (procCount == 0) return false;
+        System.out.println("🔥 Top CPU consumers:");
+        printTop(limit, true);
+        System.out.println("🧠 Top memory consumers:");
+        printTop(limit, false);
+        return true;
+    }
+
+    // Partial selection over the primitive arrays; only the index array is allocated
+    private static void printTop(int limit, boolean byCpu) {
+        int n = Math.min(limit, procCount);
+        int[] chosen = new int[n];
+        boolean[] taken = new boolean[procCount];
+        for (int k = 0; k < n; k++) {
+            int best = -1;
+            for (int i = 0; i < procCount; i++) {
+                if (taken[i]) continue;
+                if (best < 0 || (byCpu ? procCpu[i] > procCpu[best] : procRss[i] > procRss[best])) {
+                    best = i;
+                }
+            }
+            taken[best] = true;
+            chosen[k] = best;
+        }
+        for (int i : chosen) {
+            System.out.println(String.format(Locale.ROOT, "  %7d %6.1f%% %8d MB  %s",
+                    pids[i], procCpu[i], procRss[i] / 1024 / 1024, procNames[i]));
+        }
+    }
+}
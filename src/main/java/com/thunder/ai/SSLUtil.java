@@ -11,12 +11,19 @@ import javax.net.ssl.X509TrustManager;
 
 public class SSLUtil {
 
+    private static boolean disabled = false;
     private static SSLContext sslContext;
 
-    public static void disableSSLVerification() {
-        try {
-            System.out.println("⚡ SSL Verification Disabled");
+    // Only records the choice; the trust-all context costs a few hundred milliseconds
+    // to build, so getSSLContext builds it for the first HTTP client that asks
+    public static synchronized void disableSSLVerification() {
+        if (disabled) return;
+        disabled = true;
+        System.err.println("⚡ SSL Verification Disabled");
+    }
 
+    private static void build() {
+        try {
             TrustManager[] trustAllCerts = new TrustManager[]{
                     new X509TrustManager() {
                         public X509Certificate[] getAcceptedIssuers() {
@@ -35,11 +42,14 @@ public class SSLUtil {
             HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid);
 
         } catch (Exception e) {
-            System.out.println("❌ SSL Disable Failed: " + e.getMessage());
+            sslContext = null;
+            System.err.println("❌ SSL Disable Failed: " + e.getMessage());
         }
     }
 
-    public static SSLContext getSSLContext() {
+    // Null unless verification was disabled
+    public static synchronized SSLContext getSSLContext() {
+        if (disabled && sslContext == null) build();
         return sslContext;
     }
 }
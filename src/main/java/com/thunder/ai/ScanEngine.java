@@ -0,0 +1,140 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Single-pass parallel filesystem walker. Each directory is listed once with
+// Files.walkFileTree (depth 1), attributes are read once per entry, and every
+// subdirectory becomes its own fork so idle workers can steal it.
+public class ScanEngine {
+
+    // Directory listing is I/O bound, so run more workers than cores
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static ForkJoinPool pool = null;
+
+    private static final Metrics.Counter FILES = Metrics.counter("scan_files_total", "Files visited by full scans");
+    private static final Metrics.Counter BYTES = Metrics.counter("scan_bytes_total", "Bytes of the files visited by full scans");
+    private static final Metrics.Timer DURATION = Metrics.timer("scan_seconds", "Wall time of one full scan");
+    private static final Metrics.Gauge RATE = Metrics.gauge("scan_files_per_second", "Throughput of the latest full scan");
+
+    public record Result(long files, long directories, long bytes, long errors, long elapsedNanos) {
+
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+
+    static synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(PARALLELISM);
+        }
+        return pool;
+    }
+
+    public static Result scan(Path root, FileAnalyzer... analyzers) {
+        return scan(root, List.of(analyzers));
+    }
+
+    public static Result scan(Path root, List<FileAnalyzer> analyzers) {
+        Counters counters = new Counters();
+        FileAnalyzer[] targets = analyzers.toArray(new FileAnalyzer[0]);
+        long start = System.nanoTime();
+
+        try {
+            BasicFileAttributes rootAttrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (rootAttrs.isDirectory()) {
+                pool().invoke(new DirectoryTask(root, targets, counters));
+            } else if (rootAttrs.isRegularFile()) {
+                dispatch(root.getParent(), root, rootAttrs, targets, counters);
+            }
+        } catch (IOException e) {
+            counters.errors.increment();
+        }
+
+        Result result = new Result(counters.files.sum(), counters.directories.sum(), counters.bytes.sum(),
+                counters.errors.sum(), System.nanoTime() - start);
+        FILES.add(result.files());
+        BYTES.add(result.bytes());
+        DURATION.recordNanos(result.elapsedNanos());
+        RATE.set(result.filesPerSecond());
+        return result;
+    }
+
+    private static void dispatch(Path dir, Path file, BasicFileAttributes attrs, FileAnalyzer[] analyzers, Counters counters) {
+        counters.files.increment();
+        counters.bytes.add(attrs.size());
+        for (FileAnalyzer analyzer : analyzers) {
+            analyzer.onFile(dir, file, attrs);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder files = new LongAdder();
+        final LongAdder directories = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final FileAnalyzer[] analyzers;
+        private final Counters counters;
+
+        DirectoryTask(Path dir, FileAnalyzer[] analyzers, Counters counters) {
+            this.dir = dir;
+            this.analyzers = analyzers;
+            this.counters = counters;
+        }
+
+        @Override
+        protected void compute() {
+            counters.directories.increment();
+            List<DirectoryTask> subtasks = new ArrayList<>();
+
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        // At depth 1 subdirectories arrive here too, with their attributes
+                        if (attrs.isDirectory()) {
+                            DirectoryTask task = new DirectoryTask(file, analyzers, counters);
+                            task.fork();
+                            subtasks.add(task);
+                        } else if (attrs.isRegularFile()) {
+                            dispatch(dir, file, attrs, analyzers, counters);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        counters.errors.increment();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                counters.errors.increment();
+            }
+
+            for (DirectoryTask task : subtasks) {
+                task.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.thunder.ai;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Samples the MetricsProvider on a fixed interval into a small ring buffer so
+// "show cpu usage" and friends are answered from memory instead of forking top/ps.
+public class SystemMetrics {
+
+    private static final int RING_SIZE = 60;
+    private static final long INTERVAL_MILLIS = 1000;
+
+    private static final MetricsSample[] ring = new MetricsSample[RING_SIZE];
+    private static volatile int head = -1;   // index of the newest sample
+    private static MetricsProvider provider = null;
+    private static final List<Consumer<MetricsSample>> listeners = new CopyOnWriteArrayList<>();
+
+    // CPU time spent sampling versus wall time since start, to keep the sampler honest
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static volatile long samplerCpuNanos = 0;
+    private static long startNanos = 0;
+
+    public static synchronized void start(ScheduledExecutorService scheduler) {
+        if (provider != null) return;
+        provider = MetricsProvider.detect();
+        startNanos = System.nanoTime();
+        // Take the first sample now so the CPU baseline exists, then keep sampling
+        collect();
+        scheduler.scheduleAtFixedRate(SystemMetrics::collect, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static MetricsSample latest() {
+        int h = head;
+        return h < 0 ? null : ring[h];
+    }
+
+    public static void addListener(Consumer<MetricsSample> listener) {
+        listeners.add(listener);
+    }
+
+    public static double overheadPercent() {
+        long elapsed = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsed <= 0 ? 0 : samplerCpuNanos * 100.0 / elapsed;
+    }
+
+    private static void collect() {
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        try {
+            MetricsSample sample = provider.sample();
+            int next = (head + 1) % RING_SIZE;
+            ring[next] = sample;
+            head = next;
+            for (Consumer<MetricsSample> listener : listeners) {
+                listener.accept(sample);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Skip this tick; the previous sample stays current
+        } finally {
+            samplerCpuNanos += threads.getCurrentThreadCpuTime() - cpuStart;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.thunder.ai;
+
+import java.util.concurrent.TimeUnit;
+
+// Client-side rate limit: refills `perSecond` tokens up to `capacity`, one token per
+// request. Callers reserve a token and are told how long to wait for it, so a
+// burst queues up in reservation order instead of spinning on the lock; the
+// bucket goes into debt and later reservations wait correspondingly longer.
+public class TokenBucket {
+
+    private final double perNano;
+    private final double capacity;
+    private double tokens;
+    private long refilled = System.nanoTime();
+
+    public TokenBucket(double perSecond, double capacity) {
+        if (perSecond <= 0 || capacity < 1) throw new IllegalArgumentException("rate and capacity must be positive");
+        this.perNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    // requestsPerMinute <= 0 means no limit
+    public static TokenBucket perMinute(double requestsPerMinute, int burst) {
+        return requestsPerMinute <= 0 ? unlimited() : new TokenBucket(requestsPerMinute / 60, Math.max(1, burst));
+    }
+
+    public static TokenBucket unlimited() {
+        return new TokenBucket(Double.MAX_VALUE, Double.MAX_VALUE) {
+            @Override
+            public long reserve() {
+                return 0;
+            }
+
+            @Override
+            public boolean hasToken() {
+                return true;
+            }
+        };
+    }
+
+    // Takes a token and returns the nanoseconds to wait before using it (0 when one was free)
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / perNano);
+    }
+
+    // Whether a request could go right now, for optional extras such as hedges
+    public synchronized boolean hasToken() {
+        refill();
+        return tokens >= 1;
+    }
+
+    // Waits on the calling thread for a token; returns the nanoseconds waited
+    public long acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        return wait;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilled) * perNano);
+        refilled = now;
+    }
+}
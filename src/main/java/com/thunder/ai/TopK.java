@@ -0,0 +1,97 @@
+package com.thunder.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Keeps the K entries with the largest keys seen so far. Keys live in a primitive
+// min-heap alongside slot indices into a fixed item array, so memory stays O(K)
+// no matter how many entries are offered. Safe for concurrent offers.
+public class TopK<T> {
+
+    public record Entry<T>(long key, T item) {}
+
+    private final int k;
+    private final long[] keys;   // heap ordered, smallest key at 0
+    private final int[] slots;   // heap position -> index into items
+    private final Object[] items;
+    private int size = 0;
+    // Smallest key still kept once the heap is full; lets most offers skip the lock
+    private volatile long floor = Long.MIN_VALUE;
+
+    public TopK(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        this.k = k;
+        this.keys = new long[k];
+        this.slots = new int[k];
+        this.items = new Object[k];
+    }
+
+    public boolean offer(long key, T item) {
+        if (key <= floor) return false;
+
+        synchronized (this) {
+            if (size < k) {
+                items[size] = item;
+                keys[size] = key;
+                slots[size] = size;
+                siftUp(size++);
+            } else if (key > keys[0]) {
+                items[slots[0]] = item;
+                keys[0] = key;
+                siftDown(0);
+            } else {
+                return false;
+            }
+            if (size == k) {
+                floor = keys[0];
+            }
+            return true;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Largest key first
+    @SuppressWarnings("unchecked")
+    public synchronized List<Entry<T>> sortedDescending() {
+        List<Entry<T>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Entry<>(keys[i], (T) items[slots[i]]));
+        }
+        result.sort(Comparator.comparingLong((Entry<T> e) -> e.key()).reversed());
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= keys[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int smallest = right < size && keys[right] < keys[left] ? right : left;
+            if (keys[i] <= keys[smallest]) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int slot = slots[a];
+        slots[a] = slots[b];
+        slots[b] = slot;
+    }
+}